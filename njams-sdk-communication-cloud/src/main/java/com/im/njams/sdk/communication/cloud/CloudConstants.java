@@ -35,4 +35,7 @@ public class CloudConstants {
     public static final String CLIENT_PRIVATEKEY = PROPERTY_PREFIX + ".client.privatekey";
     
     public static final String MAX_PAYLOAD_BYTES = PROPERTY_PREFIX + ".maxPayloadBytes";
+    public static final String ENDPOINT_REFRESH_INTERVAL = PROPERTY_PREFIX + ".endpointRefreshInterval";
+    public static final String PRESIGNED_URL_POOL_SIZE = PROPERTY_PREFIX + ".presignedUrlPoolSize";
+    public static final String UPLOAD_COMPRESSION = PROPERTY_PREFIX + ".uploadCompression";
 }
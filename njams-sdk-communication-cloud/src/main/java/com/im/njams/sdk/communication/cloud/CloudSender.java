@@ -22,20 +22,27 @@ import com.faizsiegeln.njams.messageformat.v4.projectmessage.ProjectMessage;
 import com.faizsiegeln.njams.messageformat.v4.tracemessage.TraceMessage;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import com.im.njams.sdk.communication.AbstractSender;
+import com.im.njams.sdk.communication.BatchBody;
 import com.im.njams.sdk.communication.Sender;
+import com.im.njams.sdk.common.JsonSerializerFactory;
+import com.im.njams.sdk.communication.http.SharedSslContext;
 import com.im.njams.sdk.utils.JsonUtils;
+import com.im.njams.sdk.utils.ReusableByteArrayOutputStream;
 import java.io.BufferedReader;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.net.URL;
 import static java.nio.charset.Charset.defaultCharset;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
@@ -56,15 +63,25 @@ public class CloudSender extends AbstractSender {
     public static final String NJAMS_MESSAGEVERSION = "x-njams-messageversion";
     public static final String NJAMS_PATH = "x-njams-path";
     public static final String NJAMS_LOGID = "x-njams-logid";
+    public static final String NJAMS_BATCHSIZE = "x-njams-batchsize";
 
     public static final int FALLBACK_MAX_PAYLOAD_BYTES = 10485760;
     private int maxPayloadBytes;
 
-    private URL url;
-    private String apikey;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1048576;
+
+    private EndpointCache endpointCache;
+    private PresignedUrlPool presignedUrlPool;
+    private boolean gzipUploads;
+    // every message is serialized once, as UTF-8, into this buffer
+    private final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(BUFFER_SIZE);
+    private final ReusableByteArrayOutputStream compressed = new ReusableByteArrayOutputStream(BUFFER_SIZE);
+    private final SharedSslContext sslContext = SharedSslContext.getSystemDefault();
 
     @Override
     public void init(Properties properties) {
+        this.properties = properties;
         //TODO: do it for production
         //        try {
         //            loadKeystore();
@@ -91,18 +108,35 @@ public class CloudSender extends AbstractSender {
              maxPayloadBytes = FALLBACK_MAX_PAYLOAD_BYTES;
         }
         
+        long refreshInterval;
         try {
-            apikey = ApiKeyReader.getApiKey(apikeypath);
-        } catch (Exception e) {
-            LOG.error("Failed to load api key from file " + apikeypath, e);
-            throw new IllegalStateException("Failed to load api key from file");
+            refreshInterval = Long.parseLong(properties.getProperty(CloudConstants.ENDPOINT_REFRESH_INTERVAL,
+                    String.valueOf(EndpointCache.DEFAULT_REFRESH_INTERVAL)));
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for endpointRefreshInterval, fallback to {} seconds",
+                    EndpointCache.DEFAULT_REFRESH_INTERVAL);
+            refreshInterval = EndpointCache.DEFAULT_REFRESH_INTERVAL;
+        }
+
+        // the api key and the endpoints are resolved once and shared by all senders
+        String endpoint = properties.getProperty(CloudConstants.ENDPOINT);
+        if (endpoint == null) {
+            throw new NjamsSdkRuntimeException("unable to init http sender, please provide property "
+                    + CloudConstants.ENDPOINT);
         }
+        endpointCache = EndpointCache.getInstance(endpoint, apikeypath, refreshInterval, sslContext);
+        endpointCache.get();
 
+        int poolSize = 0;
         try {
-            url = new URL(getIngestEndpoint(properties.getProperty(CloudConstants.ENDPOINT)));
-        } catch (final Exception ex) {
-            throw new NjamsSdkRuntimeException("unable to init http sender", ex);
+            poolSize = Integer.parseInt(properties.getProperty(CloudConstants.PRESIGNED_URL_POOL_SIZE, "0"));
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for presignedUrlPoolSize, presigned urls are not prefetched");
+        }
+        if (poolSize > 0) {
+            presignedUrlPool = PresignedUrlPool.getInstance(endpointCache, poolSize);
         }
+        gzipUploads = "gzip".equalsIgnoreCase(properties.getProperty(CloudConstants.UPLOAD_COMPRESSION, "none").trim());
     }
 
     @Override
@@ -112,29 +146,95 @@ public class CloudSender extends AbstractSender {
 
     @Override
     protected void send(final LogMessage msg) {
+        final Properties properties = getProperties(msg);
+        try {
+            LOG.trace("Sending log message");
+            send(msg, properties);
+        } catch (Exception ex) {
+            LOG.error("Error sending LogMessage", ex);
+        }
+    }
+
+    /**
+     * Send the given LogMessages as {@link BatchBody}, in as few requests as
+     * the byte limit and maxPayloadBytes allow. A message that exceeds
+     * maxPayloadBytes on its own is uploaded separately, after the messages
+     * before it. Every message is serialized once, into the reusable buffer.
+     * Sent messages are removed from the list, so that a retry after a failed
+     * request continues with the first message that has not been sent.
+     *
+     * @param msgs the LogMessages to send, sent messages are removed
+     * @throws NjamsSdkRuntimeException if a request fails
+     */
+    @Override
+    protected void sendLogMessages(final List<LogMessage> msgs) throws NjamsSdkRuntimeException {
+        final int maxBytes = Math.min(getMaxBatchBytes(), maxPayloadBytes);
+        BatchBody body = new BatchBody(maxBytes);
+        int batched = 0;
+        try {
+            while (batched < msgs.size()) {
+                final LogMessage msg = msgs.get(batched);
+                final Properties properties = getProperties(msg);
+                serialize(msg);
+                if (buffer.size() > maxPayloadBytes) {
+                    if (batched > 0) {
+                        send(body);
+                        msgs.subList(0, batched).clear();
+                        batched = 0;
+                        body = new BatchBody(maxBytes);
+                    }
+                    sendSerialized(properties);
+                    msgs.remove(0);
+                } else if (body.add(properties, buffer.getBuffer(), buffer.size())) {
+                    batched++;
+                } else {
+                    send(body);
+                    msgs.subList(0, batched).clear();
+                    body = new BatchBody(maxBytes);
+                    body.add(properties, buffer.getBuffer(), buffer.size());
+                    batched = 1;
+                }
+            }
+        } catch (IOException ex) {
+            throw new NjamsSdkRuntimeException("Error sending LogMessages", ex);
+        }
+        if (batched > 0) {
+            send(body);
+            msgs.clear();
+        }
+    }
+
+    private Properties getProperties(final LogMessage msg) {
         final Properties properties = new Properties();
         properties.put(NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
         properties.put(NJAMS_PATH, msg.getPath());
         properties.put(NJAMS_LOGID, msg.getLogId());
+        return properties;
+    }
+
+    private void send(final BatchBody body) {
+        final Properties properties = new Properties();
+        properties.put(NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
+        properties.put(NJAMS_BATCHSIZE, String.valueOf(body.getCount()));
+        LOG.trace("Sending {} log messages", body.getCount());
+        HttpsURLConnection connection = null;
+        boolean completed = false;
         try {
-            LOG.trace("Sending log message");
-            final String body = JsonUtils.serialize(msg);
-
-            byte[] byteBody = body.getBytes("UTF-8");
-            int utf8Bytes = byteBody.length;
-            LOG.debug("Message size in Bytes: {}", utf8Bytes);
-            if (utf8Bytes > maxPayloadBytes) {
-                LOG.debug("Message exceeds Byte limit: {}/{}", utf8Bytes, maxPayloadBytes);
-                URL presignedUrl = getPresignedUrl(properties);
-                send(body, presignedUrl);
-
-            } else {
-                final String response = send(body, properties);
-                LOG.trace("Response: " + response);
+            connection = openConnection(properties);
+            final byte[] bytes = body.toByteArray();
+            connection.setRequestProperty("Content-Length", Integer.toString(bytes.length));
+            try (final DataOutputStream wr = new DataOutputStream(connection.getOutputStream())) {
+                wr.write(bytes);
+            }
+            LOG.trace("Response: " + readResponse(connection));
+            completed = true;
+        } catch (Exception e) {
+            throw new NjamsSdkRuntimeException("Error sending messages", e);
+        } finally {
+            // keep a completed connection open for the keep-alive cache
+            if (connection != null && !completed) {
+                connection.disconnect();
             }
-
-        } catch (Exception ex) {
-            LOG.error("Error sending LogMessage", ex);
         }
     }
 
@@ -146,21 +246,7 @@ public class CloudSender extends AbstractSender {
 
         try {
             LOG.trace("Sending project message");
-            final String body = JsonUtils.serialize(msg);
-            
-            byte[] byteBody = body.getBytes("UTF-8");
-            int utf8Bytes = byteBody.length;
-            LOG.debug("Message size in Bytes: {}", utf8Bytes);
-            if (utf8Bytes > maxPayloadBytes) {
-                LOG.debug("Message exceeds Byte limit: {}/{}", utf8Bytes, maxPayloadBytes);
-                URL presignedUrl = getPresignedUrl(properties);
-                send(body, presignedUrl);
-
-            } else {
-                final String response = send(body, properties);
-                LOG.trace("Response: " + response);
-            }
-            
+            send(msg, properties);
         } catch (Exception ex) {
             LOG.error("Error sending ProjectMessage", ex);
         }
@@ -174,64 +260,22 @@ public class CloudSender extends AbstractSender {
 
         try {
             LOG.trace("Sending trace message");
-            final String body = JsonUtils.serialize(msg);
-
-            byte[] byteBody = body.getBytes("UTF-8");
-            int utf8Bytes = byteBody.length;
-            LOG.debug("Message size in Bytes: {}", utf8Bytes);
-            if (utf8Bytes > maxPayloadBytes) {
-                LOG.debug("Message exceeds Byte limit: {}/{}", utf8Bytes, maxPayloadBytes);
-                URL presignedUrl = getPresignedUrl(properties);
-                send(body, presignedUrl);
-
-            } else {
-                final String response = send(body, properties);
-                LOG.trace("Response: " + response);
-            }
+            send(msg, properties);
         } catch (Exception ex) {
             LOG.error("Error sending TraceMessage", ex);
         }
     }
 
-     /**
-     * @return the ingest endpoint
-     */
-    protected String getIngestEndpoint(String endpoint) throws Exception {
-        String endpointUrl = "https://" + endpoint.trim() + "/v1/endpoints";
-
-        URL url = new URL(endpointUrl);
-        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setRequestProperty("x-api-key", apikey);
-
-        int responseCode = connection.getResponseCode();
-        LOG.debug("\nSending 'GET' request to URL : " + url);
-        LOG.debug("Response Code : " + responseCode);
-
-        BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-        String inputLine;
-        StringBuffer response = new StringBuffer();
-
-        while ((inputLine = in.readLine()) != null) {
-            response.append(inputLine);
-        }
-        in.close();
-
-        Endpoints endpoints = JsonUtils.parse(response.toString(), Endpoints.class);
-
-        return endpoints.ingest.startsWith("https://") ? endpoints.ingest : "https://" + endpoints.ingest;
-    }
-    
      /**
      * @return a presignedUrl
      */
     protected URL getPresignedUrl(final Properties properties) throws Exception {
-        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+        final EndpointCache.Entry endpoints = endpointCache.get();
+        HttpsURLConnection connection = openHttpsConnection(endpoints.getIngest());
         connection.setRequestMethod("GET");
         connection.setRequestProperty("Accept", "text/plain");
         connection.setRequestProperty("Connection", "keep-alive");
-        connection.setRequestProperty("x-api-key", apikey);
+        connection.setRequestProperty("x-api-key", endpoints.getApiKey());
         connection.setRequestProperty(NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
         addAddtionalProperties(properties, connection);
 
@@ -258,106 +302,178 @@ public class CloudSender extends AbstractSender {
         entrySet.forEach(entry -> connection.setRequestProperty(entry.getKey().toString(), entry.getValue().toString()));
     }
 
-    private void send(final String body, final URL presignedUrl) {
+    private void send(final Object msg, final Properties properties) throws Exception {
+        serialize(msg);
+        sendSerialized(properties);
+    }
+
+    private void serialize(final Object msg) throws IOException {
+        buffer.reset(MAX_RETAINED_BUFFER_SIZE);
+        JsonSerializerFactory.getDefaultMapper().writeValue(buffer, msg);
+    }
+
+    /**
+     * Sends the message in the buffer, it is uploaded to a presigned url if
+     * it exceeds maxPayloadBytes.
+     */
+    private void sendSerialized(final Properties properties) throws NjamsSdkRuntimeException {
+        final int utf8Bytes = buffer.size();
+        LOG.debug("Message size in Bytes: {}", utf8Bytes);
+        if (utf8Bytes > maxPayloadBytes) {
+            LOG.debug("Message exceeds Byte limit: {}/{}", utf8Bytes, maxPayloadBytes);
+            final URL presignedUrl;
+            try {
+                // pooled urls are fetched per message type, the path and logId are part of the uploaded body
+                presignedUrl = presignedUrlPool != null
+                        ? presignedUrlPool.take(properties.getProperty(NJAMS_MESSAGETYPE))
+                        : getPresignedUrl(properties);
+            } catch (NjamsSdkRuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new NjamsSdkRuntimeException("Unable to get presigned url", e);
+            }
+            upload(presignedUrl);
+        } else {
+            final String response = post(properties);
+            LOG.trace("Response: " + response);
+        }
+    }
+
+    private void upload(final URL presignedUrl) {
         HttpsURLConnection connection = null;
+        boolean completed = false;
 
         try {
+            ReusableByteArrayOutputStream body = buffer;
+            if (gzipUploads) {
+                compressed.reset(MAX_RETAINED_BUFFER_SIZE);
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed, BUFFER_SIZE)) {
+                    out.write(buffer.getBuffer(), 0, buffer.size());
+                }
+                body = compressed;
+            }
+
             //Create connection
-            connection = (HttpsURLConnection) presignedUrl.openConnection();
+            connection = openHttpsConnection(presignedUrl);
             connection.setRequestMethod("PUT");
             connection.setDoOutput(true);
+            // the body is streamed from the buffer instead of being copied by the connection
+            connection.setFixedLengthStreamingMode(body.size());
+            if (gzipUploads) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
 
-            LOG.debug("Send msg {}", body);
-
-            OutputStreamWriter out = new OutputStreamWriter(connection.getOutputStream());
-            out.write(body);
-            out.close();
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Send msg {}", new String(buffer.getBuffer(), 0, buffer.size(), StandardCharsets.UTF_8));
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBuffer(), 0, body.size());
+            }
 
             // Check the HTTP response code. To complete the upload and make the object available, 
             // you must interact with the connection object in some way.
-            connection.getResponseCode();
-
             LOG.debug("HTTP response code: {}", connection.getResponseCode());
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-            String inputLine;
-            StringBuffer response = new StringBuffer();
-
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            LOG.debug("response: {}", response.toString());
-
+            LOG.debug("response: {}", readResponse(connection));
+            completed = true;
         } catch (Exception e) {
             throw new NjamsSdkRuntimeException("Error sending message", e);
         } finally {
-            if (connection != null) {
+            // keep a completed connection open for the keep-alive cache
+            if (connection != null && !completed) {
                 connection.disconnect();
             }
         }
     }
 
-    private String send(final String body, final Properties properties) {
+    private String post(final Properties properties) {
         HttpsURLConnection connection = null;
+        boolean completed = false;
 
         try {
             //Create connection
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            connection.setRequestProperty("Accept", "text/plain");
-            connection.setRequestProperty("Connection", "keep-alive");
-            connection.setRequestProperty("x-api-key", apikey);
-
-            connection.setRequestProperty("Content-Length", Integer.toString(body.getBytes("UTF-8").length));
-            connection.setRequestProperty("Content-Language", "en-US");
-
-            connection.setUseCaches(false);
-            connection.setDoOutput(true);
-
-            connection.setRequestProperty(NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
-            addAddtionalProperties(properties, connection);
+            connection = openConnection(properties);
+            connection.setRequestProperty("Content-Length", Integer.toString(buffer.size()));
 
             connection.getRequestProperties().entrySet().forEach(e -> LOG.debug("Header {} : {}", e.getKey(), e.getValue()));
 
             //Send request
-            try (final DataOutputStream wr = new DataOutputStream(connection.getOutputStream())) {
-                wr.writeBytes(body);
+            try (final OutputStream out = connection.getOutputStream()) {
+                out.write(buffer.getBuffer(), 0, buffer.size());
             }
 
-            LOG.debug("Send msg {}", body);
-
-            //Get Response
-            final InputStream is = connection.getInputStream();
-            final StringBuilder response;
-            try (final BufferedReader rd = new BufferedReader(new InputStreamReader(is, defaultCharset()))) {
-                response = new StringBuilder();
-                String line;
-                while ((line = rd.readLine()) != null) {
-                    response.append(line);
-                    response.append('\r');
-                }
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Send msg {}", new String(buffer.getBuffer(), 0, buffer.size(), StandardCharsets.UTF_8));
             }
-            final int responseCode = connection.getResponseCode();
-            return new StringBuilder("rc = ")
-                    .append(responseCode)
-                    .append(", logId=")
-                    .append('"')
-                    .append(response)
-                    .append('"')
-                    .toString();
+
+            final String response = readResponse(connection);
+            completed = true;
+            return response;
         } catch (Exception e) {
             throw new NjamsSdkRuntimeException("Error sending message", e);
         } finally {
-            if (connection != null) {
+            // keep a completed connection open for the keep-alive cache
+            if (connection != null && !completed) {
                 connection.disconnect();
             }
         }
     }
 
+    /**
+     * Returns the SSL context used by this sender. It wraps the default SSL
+     * context of the JVM and is shared by all CloudSenders using it, its
+     * handshake metrics cover all of them.
+     *
+     * @return the shared SSL context
+     */
+    public SharedSslContext getSslContext() {
+        return sslContext;
+    }
+
+    private HttpsURLConnection openHttpsConnection(final URL target) throws IOException {
+        final HttpsURLConnection connection = (HttpsURLConnection) target.openConnection();
+        connection.setSSLSocketFactory(sslContext.getSocketFactory());
+        return connection;
+    }
+
+    private HttpsURLConnection openConnection(final Properties properties) throws IOException {
+        final EndpointCache.Entry endpoints = endpointCache.get();
+        final HttpsURLConnection connection = openHttpsConnection(endpoints.getIngest());
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+        connection.setRequestProperty("Accept", "text/plain");
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setRequestProperty("x-api-key", endpoints.getApiKey());
+        connection.setRequestProperty("Content-Language", "en-US");
+
+        connection.setUseCaches(false);
+        connection.setDoOutput(true);
+
+        connection.setRequestProperty(NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        addAddtionalProperties(properties, connection);
+        return connection;
+    }
+
+    private String readResponse(final HttpsURLConnection connection) throws IOException {
+        final InputStream is = connection.getInputStream();
+        final StringBuilder response;
+        try (final BufferedReader rd = new BufferedReader(new InputStreamReader(is, defaultCharset()))) {
+            response = new StringBuilder();
+            String line;
+            while ((line = rd.readLine()) != null) {
+                response.append(line);
+                response.append('\r');
+            }
+        }
+        final int responseCode = connection.getResponseCode();
+        return new StringBuilder("rc = ")
+                .append(responseCode)
+                .append(", logId=")
+                .append('"')
+                .append(response)
+                .append('"')
+                .toString();
+    }
+
     private void loadKeystore() throws IOException {
         if (System.getProperty("javax.net.ssl.trustStore") == null) {
             try (InputStream keystoreInput
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.cloud;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import org.slf4j.LoggerFactory;
+
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+import com.im.njams.sdk.communication.http.SharedSslContext;
+import com.im.njams.sdk.utils.JsonUtils;
+
+/**
+ * Caches the api key and the endpoints discovered for one nJAMS Cloud
+ * endpoint, so that the pooled CloudSenders do not read the api key file and
+ * query <code>/v1/endpoints</code> every time one is created.
+ * <p>
+ * The cached values are refreshed after the refresh interval by the first
+ * caller that finds them expired; meanwhile the other callers keep using the
+ * previous values. If the refresh fails, the previous values are kept for
+ * another interval.
+ */
+public class EndpointCache {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(EndpointCache.class);
+
+    /**
+     * Default refresh interval in seconds
+     */
+    public static final long DEFAULT_REFRESH_INTERVAL = 3600;
+
+    private static final ConcurrentMap<List<Object>, EndpointCache> CACHES = new ConcurrentHashMap<>();
+
+    /**
+     * The values resolved by one discovery.
+     */
+    public static final class Entry {
+
+        private final String apiKey;
+        private final URL ingest;
+        private final String client;
+        private final long expiresAt;
+
+        private Entry(String apiKey, URL ingest, String client, long expiresAt) {
+            this.apiKey = apiKey;
+            this.ingest = ingest;
+            this.client = client;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return the api key
+         */
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        /**
+         * @return the ingest endpoint
+         */
+        public URL getIngest() {
+            return ingest;
+        }
+
+        /**
+         * @return the client endpoint
+         */
+        public String getClient() {
+            return client;
+        }
+    }
+
+    private final String endpoint;
+    private final String apiKeyPath;
+    private final long refreshMillis;
+    private final SharedSslContext sslContext;
+    private final Object lock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final LongAdder discoveryCount = new LongAdder();
+    private volatile Entry entry;
+
+    /**
+     * Creates a cache. Use {@link #getInstance(String, String, long, SharedSslContext)} to share
+     * the cache with the other senders of the endpoint.
+     *
+     * @param endpoint the nJAMS Cloud endpoint, host and optional port
+     * @param apiKeyPath the path of the api key file
+     * @param refreshMillis the refresh interval in milliseconds
+     * @param sslContext the context to query the endpoint with
+     */
+    public EndpointCache(String endpoint, String apiKeyPath, long refreshMillis, SharedSslContext sslContext) {
+        this.endpoint = endpoint.trim();
+        this.apiKeyPath = apiKeyPath;
+        this.refreshMillis = refreshMillis;
+        this.sslContext = sslContext;
+    }
+
+    /**
+     * Returns the cache shared by all senders of the given endpoint and api
+     * key file that use the current default SSL context of the JVM.
+     *
+     * @param endpoint the nJAMS Cloud endpoint, host and optional port
+     * @param apiKeyPath the path of the api key file
+     * @param refreshSeconds the refresh interval in seconds
+     * @return the shared cache
+     */
+    public static EndpointCache getInstance(String endpoint, String apiKeyPath, long refreshSeconds) {
+        return getInstance(endpoint, apiKeyPath, refreshSeconds, SharedSslContext.getSystemDefault());
+    }
+
+    /**
+     * Returns the cache shared by all senders of the given endpoint and api
+     * key file that use the given SSL context. The first sender creates the
+     * cache and sets its refresh interval.
+     *
+     * @param endpoint the nJAMS Cloud endpoint, host and optional port
+     * @param apiKeyPath the path of the api key file
+     * @param refreshSeconds the refresh interval in seconds
+     * @param sslContext the context of the senders
+     * @return the shared cache
+     */
+    public static EndpointCache getInstance(String endpoint, String apiKeyPath, long refreshSeconds,
+            SharedSslContext sslContext) {
+        return CACHES.computeIfAbsent(Arrays.asList(endpoint.trim(), apiKeyPath, sslContext),
+                key -> new EndpointCache(endpoint, apiKeyPath, TimeUnit.SECONDS.toMillis(refreshSeconds),
+                        sslContext));
+    }
+
+    /**
+     * @return the context the endpoint is queried with
+     */
+    public SharedSslContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * Returns the cached values, resolving them if they are missing or
+     * expired.
+     *
+     * @return the current values
+     */
+    public Entry get() {
+        Entry current = entry;
+        if (current == null) {
+            synchronized (lock) {
+                if (entry == null) {
+                    entry = resolve();
+                }
+                return entry;
+            }
+        }
+        if (System.currentTimeMillis() >= current.expiresAt && refreshing.compareAndSet(false, true)) {
+            try {
+                entry = resolve();
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to refresh the endpoints of {}, keep using {}", endpoint, current.ingest, e);
+                entry = new Entry(current.apiKey, current.ingest, current.client,
+                        System.currentTimeMillis() + refreshMillis);
+            } finally {
+                refreshing.set(false);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return the number of queries to <code>/v1/endpoints</code>
+     */
+    public long getDiscoveryCount() {
+        return discoveryCount.sum();
+    }
+
+    private Entry resolve() {
+        final String apiKey;
+        try {
+            apiKey = ApiKeyReader.getApiKey(apiKeyPath);
+        } catch (Exception e) {
+            LOG.error("Failed to load api key from file " + apiKeyPath, e);
+            throw new IllegalStateException("Failed to load api key from file");
+        }
+        try {
+            final Endpoints endpoints = discover(apiKey);
+            final URL ingest = new URL(
+                    endpoints.ingest.startsWith("https://") ? endpoints.ingest : "https://" + endpoints.ingest);
+            LOG.debug("Discovered ingest endpoint {}", ingest);
+            return new Entry(apiKey, ingest, endpoints.client, System.currentTimeMillis() + refreshMillis);
+        } catch (Exception e) {
+            throw new NjamsSdkRuntimeException("Unable to discover the endpoints of " + endpoint, e);
+        }
+    }
+
+    private Endpoints discover(String apiKey) throws Exception {
+        discoveryCount.increment();
+        final URL url = new URL("https://" + endpoint + "/v1/endpoints");
+        final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+        connection.setSSLSocketFactory(sslContext.getSocketFactory());
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("x-api-key", apiKey);
+
+        LOG.debug("Sending 'GET' request to URL : " + url);
+        LOG.debug("Response Code : " + connection.getResponseCode());
+
+        final StringBuilder response = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String inputLine;
+            while ((inputLine = in.readLine()) != null) {
+                response.append(inputLine);
+            }
+        }
+        return JsonUtils.parse(response.toString(), Endpoints.class);
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.cloud;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import org.slf4j.LoggerFactory;
+
+import com.faizsiegeln.njams.messageformat.v4.common.MessageVersion;
+import com.im.njams.sdk.communication.http.SharedSslContext;
+import com.im.njams.sdk.factories.ThreadFactoryBuilder;
+import com.im.njams.sdk.utils.JsonUtils;
+
+/**
+ * Keeps a few presigned upload URLs per message type ready, so that sending a
+ * message that exceeds maxPayloadBytes does not have to wait for the request
+ * that fetches the URL.
+ * <p>
+ * A URL is taken from the pool if one is left that does not expire within
+ * the next {@value #EXPIRY_MARGIN} milliseconds, otherwise it is fetched
+ * synchronously. After every take the pool is refilled in the background.
+ * The expiry is read from the <code>X-Amz-Date</code> and
+ * <code>X-Amz-Expires</code> or the <code>Expires</code> query parameter of
+ * the URL; a URL without either is kept for {@value #DEFAULT_VALIDITY}
+ * milliseconds.
+ * <p>
+ * The URLs are fetched with the message type only, so that every URL can be
+ * used for any message of its type. The path and logId of an uploaded message
+ * are not sent as headers; the ingest takes them from the uploaded body, which
+ * is the serialized message.
+ */
+public class PresignedUrlPool {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(PresignedUrlPool.class);
+
+    /**
+     * Time in milliseconds before its expiry after which a URL is not used
+     * anymore, so that the upload can complete
+     */
+    public static final long EXPIRY_MARGIN = 30000;
+
+    /**
+     * Validity in milliseconds of a URL whose expiry is unknown
+     */
+    public static final long DEFAULT_VALIDITY = 60000;
+
+    private static final ConcurrentMap<EndpointCache, PresignedUrlPool> POOLS = new ConcurrentHashMap<>();
+
+    private static final class Entry {
+
+        private final URL url;
+        private final long expiresAt;
+
+        private Entry(URL url, long expiresAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final EndpointCache endpointCache;
+    private final SharedSslContext sslContext;
+    private final int size;
+    private final Map<String, BlockingDeque<Entry>> urls = new ConcurrentHashMap<>();
+    private final Map<String, AtomicBoolean> refilling = new ConcurrentHashMap<>();
+    private final ExecutorService refiller;
+    private final LongAdder fetchCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Creates a pool.
+     *
+     * @param endpointCache provides the ingest endpoint and the api key
+     * @param sslContext the context to fetch the URLs with
+     * @param size the number of URLs kept per message type
+     */
+    public PresignedUrlPool(EndpointCache endpointCache, SharedSslContext sslContext, int size) {
+        this.endpointCache = endpointCache;
+        this.sslContext = sslContext;
+        this.size = size;
+        // the thread terminates when the pool has been idle for a minute
+        refiller = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNamePrefix("PresignedUrlPool").setDaemon(true).build());
+    }
+
+    /**
+     * Returns the pool shared by all senders that use the given endpoint
+     * cache. The first sender creates the pool and sets its size.
+     *
+     * @param endpointCache provides the ingest endpoint and the api key
+     * @param size the number of URLs kept per message type
+     * @return the shared pool
+     */
+    public static PresignedUrlPool getInstance(EndpointCache endpointCache, int size) {
+        return POOLS.computeIfAbsent(endpointCache,
+                key -> new PresignedUrlPool(endpointCache, endpointCache.getSslContext(), size));
+    }
+
+    /**
+     * Takes a URL for uploading a message of the given type.
+     *
+     * @param messageType the message type
+     * @return a URL that does not expire soon
+     * @throws Exception if no URL could be fetched
+     */
+    public URL take(String messageType) throws Exception {
+        final BlockingDeque<Entry> queue = urls.computeIfAbsent(messageType, key -> new LinkedBlockingDeque<>());
+        final long now = System.currentTimeMillis();
+        Entry entry;
+        while ((entry = queue.pollFirst()) != null && entry.expiresAt - EXPIRY_MARGIN <= now) {
+            LOG.debug("Discard expired presigned url");
+        }
+        if (entry == null) {
+            missCount.increment();
+            entry = fetch(messageType);
+        }
+        refill(messageType, queue);
+        return entry.url;
+    }
+
+    private void refill(String messageType, BlockingDeque<Entry> queue) {
+        final AtomicBoolean running = refilling.computeIfAbsent(messageType, key -> new AtomicBoolean());
+        if (queue.size() < size && running.compareAndSet(false, true)) {
+            refiller.execute(() -> {
+                boolean filled = false;
+                try {
+                    while (queue.size() < size) {
+                        queue.addLast(fetch(messageType));
+                    }
+                    filled = true;
+                } catch (Exception e) {
+                    LOG.warn("Failed to prefetch presigned url", e);
+                } finally {
+                    running.set(false);
+                }
+                if (filled) {
+                    // a take after the loop, but before the flag was cleared, did not start a refill
+                    refill(messageType, queue);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the number of URLs that have been fetched
+     */
+    public long getFetchCount() {
+        return fetchCount.sum();
+    }
+
+    /**
+     * @return the number of takes that had to wait for a URL to be fetched
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private Entry fetch(String messageType) throws Exception {
+        fetchCount.increment();
+        final EndpointCache.Entry endpoints = endpointCache.get();
+        final long fetchedAt = System.currentTimeMillis();
+        final HttpsURLConnection connection = (HttpsURLConnection) endpoints.getIngest().openConnection();
+        connection.setSSLSocketFactory(sslContext.getSocketFactory());
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Accept", "text/plain");
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setRequestProperty("x-api-key", endpoints.getApiKey());
+        connection.setRequestProperty(CloudSender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        connection.setRequestProperty(CloudSender.NJAMS_MESSAGETYPE, messageType);
+
+        final StringBuilder response = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String inputLine;
+            while ((inputLine = in.readLine()) != null) {
+                response.append(inputLine);
+            }
+        }
+        final URL url = new URL(JsonUtils.parse(response.toString(), PresignedUrl.class).url);
+        return new Entry(url, getExpiry(url, fetchedAt));
+    }
+
+    /**
+     * Reads the expiry of a presigned URL from its query parameters.
+     *
+     * @param url the presigned URL
+     * @param fetchedAt the time the URL has been fetched
+     * @return the time the URL expires in epoch milliseconds
+     */
+    static long getExpiry(URL url, long fetchedAt) {
+        final Map<String, String> parameters = new HashMap<>();
+        if (url.getQuery() != null) {
+            for (String parameter : url.getQuery().split("&")) {
+                final int index = parameter.indexOf('=');
+                if (index > 0) {
+                    parameters.put(parameter.substring(0, index), parameter.substring(index + 1));
+                }
+            }
+        }
+        try {
+            if (parameters.containsKey("X-Amz-Date") && parameters.containsKey("X-Amz-Expires")) {
+                final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'");
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return format.parse(parameters.get("X-Amz-Date")).getTime()
+                        + TimeUnit.SECONDS.toMillis(Long.parseLong(parameters.get("X-Amz-Expires")));
+            }
+            if (parameters.containsKey("Expires")) {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(parameters.get("Expires")));
+            }
+        } catch (ParseException | NumberFormatException e) {
+            LOG.debug("Unable to read the expiry of {}", url, e);
+        }
+        return fetchedAt + DEFAULT_VALIDITY;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.cloud;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.im.njams.sdk.communication.http.SharedSslContext;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the EndpointCache against a local HTTPS server that counts
+ * the discovery requests.
+ */
+public class EndpointCacheTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private HttpsServer server;
+    private File apiKeyFile;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String apiKey;
+    private volatile int responseCode = 200;
+    private volatile String ingest = "ingest.example.com";
+
+    @Before
+    public void setUp() throws Exception {
+        KeyManagerFactory keyFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyFactory.init(loadKeyStore(), PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyFactory.getKeyManagers(), null, null);
+
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/v1/endpoints", exchange -> {
+            requests.incrementAndGet();
+            apiKey = exchange.getRequestHeaders().getFirst("x-api-key");
+            byte[] response = ("{\"ingest\":\"" + ingest + "\",\"client\":\"client.example.com\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(responseCode, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        apiKeyFile = File.createTempFile("apikey", ".txt");
+        Files.write(apiKeyFile.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        apiKeyFile.delete();
+    }
+
+    private static KeyStore loadKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = EndpointCacheTest.class.getResourceAsStream("/localhost.jks")) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    private EndpointCache createCache(long refreshMillis) throws Exception {
+        TrustManagerFactory trustFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustFactory.init(loadKeyStore());
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustFactory.getTrustManagers(), null);
+        return new EndpointCache("127.0.0.1:" + server.getAddress().getPort(), apiKeyFile.getPath(), refreshMillis,
+                new SharedSslContext(clientContext));
+    }
+
+    @Test
+    public void testResolvesOnce() throws Exception {
+        EndpointCache cache = createCache(60000);
+        for (int i = 0; i < 10; i++) {
+            EndpointCache.Entry entry = cache.get();
+            assertEquals("secret", entry.getApiKey());
+            assertEquals("https://ingest.example.com", entry.getIngest().toString());
+            assertEquals("client.example.com", entry.getClient());
+        }
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.getDiscoveryCount());
+        assertEquals("secret", apiKey);
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        EndpointCache cache = createCache(50);
+        cache.get();
+        Files.write(apiKeyFile.toPath(), "rotated".getBytes(StandardCharsets.UTF_8));
+        ingest = "https://ingest2.example.com";
+        Thread.sleep(100);
+        EndpointCache.Entry entry = cache.get();
+        assertEquals(2, requests.get());
+        assertEquals("rotated", entry.getApiKey());
+        assertEquals("https://ingest2.example.com", entry.getIngest().toString());
+        assertEquals("rotated", apiKey);
+    }
+
+    @Test
+    public void testKeepsEntryIfRefreshFails() throws Exception {
+        EndpointCache cache = createCache(50);
+        EndpointCache.Entry first = cache.get();
+        responseCode = 500;
+        Thread.sleep(100);
+        EndpointCache.Entry entry = cache.get();
+        assertEquals(2, requests.get());
+        assertEquals(first.getIngest(), entry.getIngest());
+        // the failed refresh is not retried before the next interval
+        cache.get();
+        assertEquals(2, requests.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingApiKey() throws Exception {
+        apiKeyFile.delete();
+        createCache(60000).get();
+    }
+
+    @Test
+    public void testSharedInstance() {
+        assertSame(EndpointCache.getInstance("cloud.example.com", "apikey.txt", 60),
+                EndpointCache.getInstance("cloud.example.com ", "apikey.txt", 60));
+        assertNotSame(EndpointCache.getInstance("cloud.example.com", "apikey.txt", 60),
+                EndpointCache.getInstance("cloud.example.com", "other.txt", 60));
+    }
+
+    private static SharedSslContext createSslContext() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        return new SharedSslContext(context);
+    }
+
+    @Test
+    public void testSharedInstancePerSslContext() throws Exception {
+        SharedSslContext sslContext = createSslContext();
+        EndpointCache cache = EndpointCache.getInstance("cloud.example.com", "apikey.txt", 60, sslContext);
+        assertSame(sslContext, cache.getSslContext());
+        assertSame(cache, EndpointCache.getInstance("cloud.example.com", "apikey.txt", 60, sslContext));
+        assertNotSame(cache, EndpointCache.getInstance("cloud.example.com", "apikey.txt", 60,
+                createSslContext()));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.cloud;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.im.njams.sdk.communication.Sender;
+import com.im.njams.sdk.communication.http.SharedSslContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the PresignedUrlPool against a local HTTPS server.
+ */
+public class PresignedUrlPoolTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private HttpsServer server;
+    private File apiKeyFile;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile String messageType;
+    private volatile String path;
+    private volatile String expiry = "X-Amz-Date=20991231T000000Z&X-Amz-Expires=900";
+
+    @Before
+    public void setUp() throws Exception {
+        KeyManagerFactory keyFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyFactory.init(loadKeyStore(), PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyFactory.getKeyManagers(), null, null);
+
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/v1/endpoints", exchange -> respond(exchange, "{\"ingest\":\"https://127.0.0.1:"
+                + server.getAddress().getPort() + "/ingest\",\"client\":\"client.example.com\"}"));
+        server.createContext("/ingest", exchange -> {
+            messageType = exchange.getRequestHeaders().getFirst(CloudSender.NJAMS_MESSAGETYPE);
+            path = exchange.getRequestHeaders().getFirst(CloudSender.NJAMS_PATH);
+            respond(exchange, "{\"url\":\"https://127.0.0.1:" + server.getAddress().getPort() + "/upload/"
+                    + fetches.incrementAndGet() + "?" + expiry + "\"}");
+        });
+        server.start();
+
+        apiKeyFile = File.createTempFile("apikey", ".txt");
+        Files.write(apiKeyFile.toPath(), "secret".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] response = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        apiKeyFile.delete();
+    }
+
+    private static KeyStore loadKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = PresignedUrlPoolTest.class.getResourceAsStream("/localhost.jks")) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    private PresignedUrlPool createPool(int size) throws Exception {
+        TrustManagerFactory trustFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustFactory.init(loadKeyStore());
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustFactory.getTrustManagers(), null);
+        SharedSslContext sslContext = new SharedSslContext(clientContext);
+        EndpointCache endpointCache = new EndpointCache("127.0.0.1:" + server.getAddress().getPort(),
+                apiKeyFile.getPath(), 60000, sslContext);
+        return new PresignedUrlPool(endpointCache, sslContext, size);
+    }
+
+    private void awaitFetches(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fetches.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // let the refill put the last url into the pool
+        Thread.sleep(50);
+    }
+
+    @Test
+    public void testTakePrefetchedUrls() throws Exception {
+        PresignedUrlPool pool = createPool(3);
+        URL first = pool.take(Sender.NJAMS_MESSAGETYPE_TRACE);
+        assertEquals(Sender.NJAMS_MESSAGETYPE_TRACE, messageType);
+        assertEquals(1, pool.getMissCount());
+        awaitFetches(4);
+        assertEquals(4, fetches.get());
+
+        URL second = pool.take(Sender.NJAMS_MESSAGETYPE_TRACE);
+        assertNotEquals(first, second);
+        assertEquals(1, pool.getMissCount());
+        awaitFetches(5);
+        assertEquals(5, pool.getFetchCount());
+    }
+
+    @Test
+    public void testUrlsAreKeptPerMessageType() throws Exception {
+        PresignedUrlPool pool = createPool(1);
+        pool.take(Sender.NJAMS_MESSAGETYPE_EVENT);
+        awaitFetches(2);
+        // the path of a message is not part of its url
+        assertNull(path);
+
+        // the prefetched url has been fetched for the other type
+        pool.take(Sender.NJAMS_MESSAGETYPE_TRACE);
+        assertEquals(2, pool.getMissCount());
+        pool.take(Sender.NJAMS_MESSAGETYPE_EVENT);
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void testExpiredUrlsAreDiscarded() throws Exception {
+        expiry = "X-Amz-Date=20000101T000000Z&X-Amz-Expires=900";
+        PresignedUrlPool pool = createPool(1);
+        pool.take(Sender.NJAMS_MESSAGETYPE_PROJECT);
+        awaitFetches(2);
+        pool.take(Sender.NJAMS_MESSAGETYPE_PROJECT);
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void testGetExpiry() throws Exception {
+        assertEquals(4102358400000L + 900000L, PresignedUrlPool.getExpiry(
+                new URL("https://bucket.example.com/key?X-Amz-Date=20991231T000000Z&X-Amz-Expires=900"
+                        + "&X-Amz-Signature=abc"), 0L));
+        assertEquals(1600000000000L,
+                PresignedUrlPool.getExpiry(new URL("https://bucket.example.com/key?Expires=1600000000"), 0L));
+        assertEquals(1000L + PresignedUrlPool.DEFAULT_VALIDITY,
+                PresignedUrlPool.getExpiry(new URL("https://bucket.example.com/key"), 1000L));
+        assertEquals(1000L + PresignedUrlPool.DEFAULT_VALIDITY,
+                PresignedUrlPool.getExpiry(new URL("https://bucket.example.com/key?X-Amz-Expires=x"), 1000L));
+    }
+}
@@ -62,7 +62,8 @@ import com.im.njams.sdk.configuration.ConfigurationProvider;
 import com.im.njams.sdk.configuration.ConfigurationProviderFactory;
 import com.im.njams.sdk.configuration.ProcessConfiguration;
 import com.im.njams.sdk.configuration.provider.FileConfigurationProvider;
-import com.im.njams.sdk.logmessage.DataMasking;
+import com.im.njams.sdk.logmessage.DataMaskingRules;
+import com.im.njams.sdk.logmessage.ExtractHandler;
 import com.im.njams.sdk.logmessage.Job;
 import com.im.njams.sdk.model.ProcessModel;
 import com.im.njams.sdk.model.image.ImageSupplier;
@@ -72,6 +73,7 @@ import com.im.njams.sdk.model.layout.SimpleProcessModelLayouter;
 import com.im.njams.sdk.model.svg.NjamsProcessDiagramFactory;
 import com.im.njams.sdk.model.svg.ProcessDiagramFactory;
 import com.im.njams.sdk.serializer.Serializer;
+import com.im.njams.sdk.serializer.SerializerRegistry;
 import com.im.njams.sdk.serializer.StringSerializer;
 import com.im.njams.sdk.settings.Settings;
 
@@ -120,7 +122,6 @@ public class Njams implements InstructionListener {
     public static final String CURRENT_YEAR = "currentYear";
 
     private static final Serializer<Object> DEFAULT_SERIALIZER = new StringSerializer<>();
-    private static final Serializer<Object> NO_SERIALIZER = o -> null;
 
     private final String category;
 
@@ -155,11 +156,10 @@ public class Njams implements InstructionListener {
 
     private final List<InstructionListener> instructionListeners = new ArrayList<>();
 
-    // serializers
-    private final HashMap<Class<?>, Serializer<?>> serializers = new HashMap<>();
+    // serializers, replaced as a whole on every change
+    private volatile SerializerRegistry serializers = SerializerRegistry.EMPTY;
 
-    // serializers
-    private final HashMap<Class<?>, Serializer<?>> cachedSerializers = new HashMap<>();
+    private final Object serializersLock = new Object();
 
     // features
     private final List<String> features = new ArrayList<>();
@@ -169,6 +169,8 @@ public class Njams implements InstructionListener {
     private Receiver receiver;
 
     private Configuration configuration;
+    // datamasking rules of the configuration, replaced as a whole on every change
+    private volatile DataMaskingRules dataMaskingRules = DataMaskingRules.EMPTY;
     private String machine;
     private boolean started = false;
     private static final String NOT_STARTED_EXCEPTION_MESSAGE = "The instance needs to be started first!";
@@ -348,6 +350,20 @@ public class Njams implements InstructionListener {
         }
     }
 
+    /**
+     * Creates the sender and connects its idle senders
+     */
+    private void startSender() {
+        try {
+            Sender njamsSender = getSender();
+            if (njamsSender instanceof NjamsSender) {
+                ((NjamsSender) njamsSender).prewarm();
+            }
+        } catch (Exception e) {
+            LOG.error("Error starting Sender", e);
+        }
+    }
+
     /**
      * Start a client; it will initiate the connections and start processing.
      *
@@ -363,6 +379,7 @@ public class Njams implements InstructionListener {
             instructionListeners.add(this);
             instructionListeners.add(new ConfigurationInstructionListener(getConfiguration()));
             startReceiver();
+            startSender();
             LogMessageFlushTask.start(this);
             CleanTracepointsTask.start(this);
             started = true;
@@ -388,6 +405,7 @@ public class Njams implements InstructionListener {
                 receiver.stop();
             }
             instructionListeners.clear();
+            ExtractHandler.clearXPathSupport();
             started = false;
         } else {
             throw new NjamsSdkRuntimeException(NOT_STARTED_EXCEPTION_MESSAGE);
@@ -612,6 +630,7 @@ public class Njams implements InstructionListener {
     public void addJob(Job job) {
         if (isStarted()) {
             jobs.put(job.getJobId(), job);
+            LogMessageFlushTask.addJob(this, job);
         } else {
             throw new NjamsSdkRuntimeException(NOT_STARTED_EXCEPTION_MESSAGE);
         }
@@ -623,7 +642,10 @@ public class Njams implements InstructionListener {
      * @param jobId of the Job to be removed
      */
     public void removeJob(String jobId) {
-        jobs.remove(jobId);
+        Job job = jobs.remove(jobId);
+        if (job != null) {
+            LogMessageFlushTask.removeJob(this, job);
+        }
     }
 
     /**
@@ -749,10 +771,11 @@ public class Njams implements InstructionListener {
      * the former registered serializer.
      */
     public <T> Serializer<T> addSerializer(final Class<T> key, final Serializer<? super T> serializer) {
-        synchronized (cachedSerializers) {
+        synchronized (serializersLock) {
             if (key != null && serializer != null) {
-                cachedSerializers.clear();
-                return Serializer.class.cast(serializers.put(key, serializer));
+                Serializer<T> former = serializers.get(key);
+                serializers = serializers.with(key, serializer);
+                return former;
             }
             return null;
         }
@@ -767,10 +790,11 @@ public class Njams implements InstructionListener {
      * @return Registered serializer or <b>null</b>
      */
     public <T> Serializer<T> removeSerializer(final Class<T> key) {
-        synchronized (cachedSerializers) {
+        synchronized (serializersLock) {
             if (key != null) {
-                cachedSerializers.clear();
-                return Serializer.class.cast(serializers.remove(key));
+                Serializer<T> former = serializers.get(key);
+                serializers = serializers.without(key);
+                return former;
             }
             return null;
         }
@@ -786,7 +810,7 @@ public class Njams implements InstructionListener {
      */
     public <T> Serializer<T> getSerializer(final Class<T> key) {
         if (key != null) {
-            return Serializer.class.cast(serializers.get(key));
+            return serializers.get(key);
         }
         return null;
     }
@@ -805,23 +829,20 @@ public class Njams implements InstructionListener {
         }
 
         final Class<? super T> clazz = Class.class.cast(t.getClass());
-        synchronized (cachedSerializers) {
 
-            // search serializer
-            Serializer<? super T> serializer = this.findSerializer(clazz);
+        // search serializer
+        Serializer<? super T> serializer = this.findSerializer(clazz);
 
-            // user default serializer
-            if (serializer == null) {
-                serializer = DEFAULT_SERIALIZER;
-                cachedSerializers.put(clazz, serializer);
-            }
+        // user default serializer
+        if (serializer == null) {
+            serializer = DEFAULT_SERIALIZER;
+        }
 
-            try {
-                return serializer.serialize(t);
-            } catch (final Exception ex) {
-                LOG.error("could not serialize object " + t, ex);
-                return "";
-            }
+        try {
+            return serializer.serialize(t);
+        } catch (final Exception ex) {
+            LOG.error("could not serialize object " + t, ex);
+            return "";
         }
     }
 
@@ -837,34 +858,7 @@ public class Njams implements InstructionListener {
      * @return Serizalier of <b>null</b>.
      */
     public <T> Serializer<? super T> findSerializer(final Class<T> clazz) {
-        Serializer<? super T> serializer = getSerializer(clazz);
-        if (serializer == null) {
-            Serializer<?> cached = cachedSerializers.get(clazz);
-            if (cached == NO_SERIALIZER) {
-                return null;
-            } else if (cached != null) {
-                return Serializer.class.cast(cached);
-            }
-            final Class<? super T> superclass = clazz.getSuperclass();
-            if (superclass != null) {
-                serializer = findSerializer(superclass);
-            }
-        }
-        if (serializer == null) {
-            final Class<?>[] interfaces = clazz.getInterfaces();
-            for (int i = 0; i < interfaces.length && serializer == null; i++) {
-                final Class<? super T> anInterface = Class.class.cast(interfaces[i]);
-                serializer = Serializer.class.cast(findSerializer(anInterface));
-            }
-        }
-        if (serializer != null) {
-            if (!cachedSerializers.containsKey(clazz)) {
-                cachedSerializers.put(clazz, serializer);
-            }
-        } else {
-            cachedSerializers.put(clazz, NO_SERIALIZER);
-        }
-        return serializer;
+        return serializers.find(clazz);
     }
 
     /**
@@ -954,10 +948,32 @@ public class Njams implements InstructionListener {
         return processConfiguration != null && processConfiguration.isExclude();
     }
 
+    /**
+     * Returns the datamasking rules of this instance, which are compiled from
+     * the datamasking patterns of the configuration.
+     *
+     * @return the datamasking rules, never <b>null</b>
+     */
+    public DataMaskingRules getDataMaskingRules() {
+        return dataMaskingRules;
+    }
+
+    /**
+     * Replaces the datamasking patterns of the configuration and applies them
+     * to all data that is masked from now on.
+     *
+     * @param patterns the new datamasking patterns
+     */
+    public void setDataMasking(List<String> patterns) {
+        List<String> newPatterns = patterns == null ? new ArrayList<>() : new ArrayList<>(patterns);
+        configuration.setDataMasking(newPatterns);
+        dataMaskingRules = DataMaskingRules.compile(newPatterns);
+    }
+
     /**
      * Initialize the datamasking feature
      */
     private void initializeDataMasking() {
-        DataMasking.addPatterns(configuration.getDataMasking());
+        dataMaskingRules = DataMaskingRules.compile(configuration.getDataMasking());
     }
 }
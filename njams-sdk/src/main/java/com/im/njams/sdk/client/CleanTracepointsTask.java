@@ -21,12 +21,13 @@ import com.im.njams.sdk.Njams;
 import com.im.njams.sdk.configuration.ActivityConfiguration;
 import com.im.njams.sdk.configuration.Configuration;
 import com.im.njams.sdk.configuration.ProcessConfiguration;
+import com.im.njams.sdk.configuration.TracepointExpiryQueue;
 import com.im.njams.sdk.configuration.TracepointExt;
 import com.im.njams.sdk.common.DateTimeUtility;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.slf4j.LoggerFactory;
@@ -41,7 +42,7 @@ public class CleanTracepointsTask extends TimerTask {
 
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(CleanTracepointsTask.class);
 
-    private static Map<String, Njams> njamsInstances = new HashMap<>();
+    private static Map<String, Njams> njamsInstances = new ConcurrentHashMap<>();
 
     private static Timer timer = null;
 
@@ -63,7 +64,7 @@ public class CleanTracepointsTask extends TimerTask {
             throw new NjamsSdkRuntimeException("Start: Njams clientPath is null");
         }
         if (timer == null) {
-            timer = new Timer();
+            timer = new Timer(CleanTracepointsTask.class.getSimpleName(), true);
             timer.scheduleAtFixedRate(new CleanTracepointsTask(), DELAY, INTERVAL);
         }
 
@@ -114,61 +115,83 @@ public class CleanTracepointsTask extends TimerTask {
      */
     @Override
     public void run() {
-        try {
-            LocalDateTime now = DateTimeUtility.now();
-            njamsInstances.values().forEach(njams -> checkNjams(njams, now));
-        } catch (Exception e) {
-            LOG.error("Error in {}", this.getClass().getName(), e);
-        }
+        LocalDateTime now = DateTimeUtility.now();
+        njamsInstances.values().forEach(njams -> {
+            try {
+                checkNjams(njams, now);
+            } catch (Exception e) {
+                LOG.error("Error in {} for {}", this.getClass().getName(), njams, e);
+            }
+        });
     }
 
     private void checkNjams(Njams njams, LocalDateTime now) {
         Configuration configuration = njams.getConfiguration();
+        //only the tracepoints that are due are looked at, not the whole configuration
+        List<TracepointExpiryQueue.Entry> expired = configuration.getTracepointQueue().pollExpired(now);
+        if (expired.isEmpty()) {
+            return;
+        }
         TraceMessageBuilder tmBuilder = new TraceMessageBuilder(njams);
-        configuration.getProcesses().entrySet().forEach(processEntry -> checkProcess(configuration, processEntry, now, tmBuilder));
+        boolean changed = false;
+        for (TracepointExpiryQueue.Entry entry : expired) {
+            changed |= checkTracepoint(configuration, entry, tmBuilder);
+        }
+        if (changed) {
+            //saved in the background, the timer thread does not wait for the file I/O
+            configuration.saveAsync().whenComplete((v, e) -> {
+                if (e != null) {
+                    LOG.error("Error saving configuration", e);
+                }
+            });
+        }
         TraceMessage msg = tmBuilder.build();
         if(msg != null){
             njams.getSender().send(msg);
         }
     }
 
-    private void checkProcess(Configuration configuration, Entry<String, ProcessConfiguration> processEntry, LocalDateTime now, TraceMessageBuilder tmBuilder) {
-        //use itertor here, because we want to possibly modify the map itself
-        ProcessModel model = new ProcessModel();
-        Iterator<Entry<String, ActivityConfiguration>> it = processEntry.getValue().getActivities().entrySet().iterator();
-        while (it.hasNext()) {
-            Entry<String, ActivityConfiguration> ae = it.next();
-            if (checkActivity(configuration, processEntry, ae, now, tmBuilder)) {
-                it.remove();
-                configuration.save();
-            }
+    private boolean checkTracepoint(Configuration configuration, TracepointExpiryQueue.Entry entry, TraceMessageBuilder tmBuilder) {
+        String processPath = entry.getProcessPath();
+        String activityId = entry.getActivityId();
+        TracepointExt tracepoint = entry.getTracepoint();
+        ProcessConfiguration process = configuration.getProcess(processPath);
+        ActivityConfiguration activity = process == null ? null : process.getActivity(activityId);
+        if (activity == null || activity.getTracepoint() != tracepoint) {
+            //deleted or replaced in the meantime
+            return false;
         }
+        try {
+            fillTraceMessageBuilder(processPath, activityId, tracepoint, tmBuilder);
+            configuration.updateProcess(processPath, p -> removeTracepoint(p, activityId, tracepoint));
+            return true;
+        } catch (Exception e) {
+            LOG.error("Error deleting tracepoint", e);
+        }
+        return false;
     }
 
-    private boolean checkActivity(Configuration configuration, Entry<String, ProcessConfiguration> processEntry, Entry<String, ActivityConfiguration> ae, LocalDateTime now, TraceMessageBuilder tmBuilder) {
-        ActivityConfiguration activity = ae.getValue();
-        TracepointExt tracepoint = activity.getTracepoint();
-        if (tracepoint != null && (tracepoint.getEndtime().isBefore(now) || tracepoint.iterationsExceeded())) {
-            try {
-                fillTraceMessageBuilder(processEntry, ae, tmBuilder);
-                activity.setTracepoint(null);
-                configuration.save();
-                if (activity.isEmpty()) {
-                    return true;
-                }
-            } catch (Exception e) {
-                LOG.error("Error deleting tracepoint", e);
-            }
+    private void removeTracepoint(ProcessConfiguration process, String activityId, TracepointExt tracepoint) {
+        ActivityConfiguration activity = process.getActivity(activityId);
+        if (activity == null || activity.getTracepoint() != tracepoint) {
+            //changed by an instruction in the meantime
+            return;
+        }
+        ActivityConfiguration changed = new ActivityConfiguration(activity);
+        changed.setTracepoint(null);
+        if (changed.isEmpty()) {
+            process.removeActivity(activityId);
+        } else {
+            process.setActivity(activityId, changed);
         }
-        return false;
     }
 
-    private void fillTraceMessageBuilder(Entry<String, ProcessConfiguration> processEntry, Entry<String, ActivityConfiguration> ae, TraceMessageBuilder tmBuilder){
+    private void fillTraceMessageBuilder(String processPath, String activityId, TracepointExt tracepoint, TraceMessageBuilder tmBuilder){
         Activity act = new Activity();
-        act.setActivityId(ae.getKey());
-        act.setTracepoint(ae.getValue().getTracepoint());
+        act.setActivityId(activityId);
+        act.setTracepoint(tracepoint);
 
-        tmBuilder.addActivity(processEntry.getKey(), act);
+        tmBuilder.addActivity(processPath, act);
     }
 
 }
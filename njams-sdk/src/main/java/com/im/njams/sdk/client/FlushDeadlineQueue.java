@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.im.njams.sdk.logmessage.JobImpl;
+
+/**
+ * Holds the next flush deadline of every job of a Njams instance, ordered by
+ * the deadline. The LogMessageFlushTask only polls the jobs that are due,
+ * instead of checking every job on every run.
+ * <p>
+ * Rescheduling or removing a job does not touch the heap; the outdated entry
+ * stays in the heap and is skipped when it is polled.
+ */
+public class FlushDeadlineQueue {
+
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>();
+
+    // job -> the only valid deadline of this job
+    private final Map<JobImpl, Deadline> scheduled = new HashMap<>();
+
+    private long sequence = 0;
+
+    /**
+     * Sets the next flush deadline of the given job. A deadline that has been
+     * set before for this job becomes invalid.
+     *
+     * @param job the job to schedule
+     * @param deadline the time in milliseconds when the job has to be checked
+     */
+    public synchronized void schedule(JobImpl job, long deadline) {
+        Deadline entry = new Deadline(job, deadline, sequence++);
+        scheduled.put(job, entry);
+        deadlines.add(entry);
+    }
+
+    /**
+     * Removes the deadline of the given job, if there is any.
+     *
+     * @param job the job to remove
+     */
+    public synchronized void remove(JobImpl job) {
+        scheduled.remove(job);
+    }
+
+    /**
+     * Returns and removes the next deadline that is not after the given time.
+     *
+     * @param now the current time in milliseconds
+     * @return the next due deadline, or <b>null</b> if no job is due
+     */
+    public synchronized Deadline pollDue(long now) {
+        Deadline head = deadlines.peek();
+        while (head != null && head.deadline <= now) {
+            deadlines.poll();
+            if (scheduled.get(head.job) == head) {
+                scheduled.remove(head.job);
+                return head;
+            }
+            head = deadlines.peek();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of jobs that have a valid deadline.
+     *
+     * @return the number of scheduled jobs
+     */
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Removes all deadlines.
+     */
+    public synchronized void clear() {
+        scheduled.clear();
+        deadlines.clear();
+    }
+
+    /**
+     * The flush deadline of a job.
+     */
+    public static final class Deadline implements Comparable<Deadline> {
+
+        private final JobImpl job;
+        private final long deadline;
+        private final long sequence;
+
+        private Deadline(JobImpl job, long deadline, long sequence) {
+            this.job = job;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return the job that is due
+         */
+        public JobImpl getJob() {
+            return job;
+        }
+
+        /**
+         * @return the time in milliseconds when the job became due
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        @Override
+        public int compareTo(Deadline other) {
+            int result = Long.compare(deadline, other.deadline);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
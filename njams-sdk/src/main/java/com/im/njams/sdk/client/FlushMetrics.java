@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the flush lag of the jobs of a Njams instance. The flush lag is the
+ * time between the moment a job became due to be flushed and the moment its
+ * flush has been started by a flush worker.
+ */
+public class FlushMetrics {
+
+    private final LongAdder flushCount = new LongAdder();
+
+    private final LongAdder totalLag = new LongAdder();
+
+    private final AtomicLong maxLag = new AtomicLong();
+
+    /**
+     * Records the lag of one flush.
+     *
+     * @param lagMillis the flush lag in milliseconds
+     */
+    public void record(long lagMillis) {
+        long lag = Math.max(0, lagMillis);
+        flushCount.increment();
+        totalLag.add(lag);
+        maxLag.accumulateAndGet(lag, Math::max);
+    }
+
+    /**
+     * @return the number of recorded flushes
+     */
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    /**
+     * @return the average flush lag in milliseconds, or 0 if nothing has been
+     * flushed yet
+     */
+    public long getAverageLagMillis() {
+        long count = flushCount.sum();
+        return count == 0 ? 0 : totalLag.sum() / count;
+    }
+
+    /**
+     * @return the maximum flush lag in milliseconds
+     */
+    public long getMaxLagMillis() {
+        return maxLag.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FlushMetrics[flushes=" + getFlushCount() + ", averageLag=" + getAverageLagMillis() + "ms, maxLag="
+                + getMaxLagMillis() + "ms]";
+    }
+}
@@ -16,18 +16,35 @@
  */
 package com.im.njams.sdk.client;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.factories.ThreadFactoryBuilder;
+import com.im.njams.sdk.logmessage.JobImpl;
 import com.im.njams.sdk.settings.Settings;
 import com.im.njams.sdk.settings.encoding.Transformer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Configuration Entry for the LogMessageFlushTask for every Njams instance.
  * Holds the flush size and the flush interval values for every instance.
+ * Every instance has its own flush workers. The jobs are partitioned over the
+ * workers by their logId, so that the flushes of one job are always done in
+ * order by the same worker. The queue of every worker is bounded by
+ * {@link #FLUSH_QUEUE_CAPACITY}; a flush that does not fit is rejected and
+ * done later.
  *
  * @author pnientiedt
  */
 public class LMFTEntry {
 
+    private static final Logger LOG = LoggerFactory.getLogger(LMFTEntry.class);
+
     /**
      * Default flush size: 5MB
      */
@@ -36,10 +53,21 @@ public class LMFTEntry {
      * Default flush interval: 30s
      */
     public static final String DEFAULT_FLUSH_INTERVAL = "30";
+    /**
+     * Default number of flush workers: 1
+     */
+    public static final String DEFAULT_FLUSH_WORKERS = "1";
+    /**
+     * Maximum number of flushes waiting for one flush worker
+     */
+    public static final int FLUSH_QUEUE_CAPACITY = 10000;
 
     private Njams njams;
     private Long flushSize;
     private Long flushInterval;
+    private final FlushDeadlineQueue deadlines = new FlushDeadlineQueue();
+    private final ExecutorService[] flushWorkers;
+    private final FlushMetrics flushMetrics = new FlushMetrics();
 
     /**
      * Creates the objects by using the settings values of the Njams
@@ -53,6 +81,15 @@ public class LMFTEntry {
                 Transformer.decode(njams.getSettings().getProperties().getProperty(Settings.PROPERTY_FLUSH_SIZE, DEFAULT_FLUSH_SIZE)));
         this.flushInterval = Long.parseLong(Transformer.decode(njams.getSettings().getProperties()
                 .getProperty(Settings.PROPERTY_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL)));
+        int workers = Math.max(1, Integer.parseInt(Transformer.decode(njams.getSettings().getProperties()
+                .getProperty(Settings.PROPERTY_FLUSH_WORKERS, DEFAULT_FLUSH_WORKERS))));
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNamePrefix("LogMessageFlushWorker-" + njams.getClientPath()).setDaemon(true).build();
+        this.flushWorkers = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            flushWorkers[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(FLUSH_QUEUE_CAPACITY), threadFactory);
+        }
     }
 
     /**
@@ -96,4 +133,63 @@ public class LMFTEntry {
     public void setFlushInterval(Long flushInterval) {
         this.flushInterval = flushInterval;
     }
+
+    /**
+     * @return the flushInterval in milliseconds
+     */
+    public long getFlushIntervalMillis() {
+        return flushInterval * 1000;
+    }
+
+    /**
+     * @return the flush deadlines of the jobs of this instance
+     */
+    public FlushDeadlineQueue getDeadlines() {
+        return deadlines;
+    }
+
+    /**
+     * Returns the flush worker that is responsible for the given job. A job is
+     * always assigned to the same worker.
+     *
+     * @param job the job to flush
+     * @return the flush worker of the job
+     */
+    public ExecutorService getFlushWorker(JobImpl job) {
+        return flushWorkers[Math.floorMod(job.getLogId().hashCode(), flushWorkers.length)];
+    }
+
+    /**
+     * @return the number of flush workers
+     */
+    public int getFlushWorkerCount() {
+        return flushWorkers.length;
+    }
+
+    /**
+     * @return the flush lag metrics of this instance
+     */
+    public FlushMetrics getFlushMetrics() {
+        return flushMetrics;
+    }
+
+    /**
+     * Stops the flush workers. Flushes that have already been handed over are
+     * finished, but waited for 10 seconds at most.
+     */
+    public void shutdownFlushWorkers() {
+        for (ExecutorService flushWorker : flushWorkers) {
+            flushWorker.shutdown();
+        }
+        try {
+            for (ExecutorService flushWorker : flushWorkers) {
+                if (!flushWorker.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOG.error("The termination time of the flush worker has been exceeded (10 SECONDS).");
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOG.error("The shutdown of the flush workers has been interrupted.", ex);
+            Thread.currentThread().interrupt();
+        }
+    }
 }
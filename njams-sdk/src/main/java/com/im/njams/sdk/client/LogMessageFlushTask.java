@@ -26,14 +26,21 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * LogMessageFlushTask flushes new content of jobs periodically into LogMessages
+ * LogMessageFlushTask flushes new content of jobs periodically into LogMessages.
+ * Every job registers its next flush deadline in the {@link FlushDeadlineQueue}
+ * of its Njams instance, so that each run only checks the jobs that are due.
+ * The due jobs are flushed by the flush workers of their Njams instance, see
+ * {@link LMFTEntry}. Jobs that exceed the flush size are handed over to their
+ * flush worker immediately.
  *
  * @author stkniep
  */
@@ -41,7 +48,7 @@ public class LogMessageFlushTask extends TimerTask {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogMessageFlushTask.class);
 
-    private static final Map<String, LMFTEntry> NJAMS_INSTANCES = new HashMap<>();
+    private static final Map<String, LMFTEntry> NJAMS_INSTANCES = new ConcurrentHashMap<>();
 
     private static Timer timer = null;
 
@@ -53,7 +60,7 @@ public class LogMessageFlushTask extends TimerTask {
      *
      * @param njams Njams to add
      */
-    public static synchronized void start(Njams njams) {
+    public static void start(Njams njams) {
         if (njams == null) {
             throw new NjamsSdkRuntimeException("Start: Njams is null");
         }
@@ -61,30 +68,52 @@ public class LogMessageFlushTask extends TimerTask {
             throw new NjamsSdkRuntimeException("Start: Njams clientPath is null");
         }
 
-        if (timer == null) {
-            timer = new Timer();
-            timer.scheduleAtFixedRate(new LogMessageFlushTask(), 1000, 1000);
-        }
+        LMFTEntry replaced = null;
+        synchronized (LogMessageFlushTask.class) {
+            if (timer == null) {
+                timer = new Timer(LogMessageFlushTask.class.getSimpleName(), true);
+                timer.scheduleAtFixedRate(new LogMessageFlushTask(), 1000, 1000);
+            }
 
-        NJAMS_INSTANCES.put(njams.getClientPath().toString(), new LMFTEntry(njams));
+            LMFTEntry entry = NJAMS_INSTANCES.get(njams.getClientPath().toString());
+            if (entry == null || entry.getNjams() != njams) {
+                LMFTEntry newEntry = new LMFTEntry(njams);
+                NJAMS_INSTANCES.put(njams.getClientPath().toString(), newEntry);
+                replaced = entry;
+                njams.getJobs().forEach(job -> schedule(newEntry, (JobImpl) job));
+            }
+        }
+        if (replaced != null) {
+            replaced.shutdownFlushWorkers();
+        }
     }
 
     /**
      * Removes a given Njams instance from the LogMessageFlushTask, flushes all
      * jobs of the instance, and stops it the timer if no Njams instance is left
-     * to work on
+     * to work on. Waiting for the flush workers of the instance does not block
+     * the other instances.
      *
      * @param njams Njams instance to remove
      */
-    public static synchronized void stop(Njams njams) {
+    public static void stop(Njams njams) {
         if (njams == null) {
             throw new NjamsSdkRuntimeException("Stop: Njams is null");
         }
         if (njams.getClientPath() == null) {
             throw new NjamsSdkRuntimeException("Stop: Njams clientPath is null");
         }
-        LMFTEntry entry = NJAMS_INSTANCES.remove(njams.getClientPath().toString());
+        LMFTEntry entry;
+        synchronized (LogMessageFlushTask.class) {
+            entry = NJAMS_INSTANCES.remove(njams.getClientPath().toString());
+            if (NJAMS_INSTANCES.size() <= 0 && timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+        }
         if (entry != null) {
+            entry.getDeadlines().clear();
+            entry.shutdownFlushWorkers();
             Njams stoppingNjams = entry.getNjams();
             stoppingNjams.getJobs().forEach(job -> ((JobImpl) job).flush());
 
@@ -93,14 +122,114 @@ public class LogMessageFlushTask extends TimerTask {
                     "The LogMessageFlushTask hasn't been started before stopping for this instance: {}. Did not flush...",
                     njams);
         }
-        if (NJAMS_INSTANCES.size() <= 0 && timer != null) {
-            timer.cancel();
-            timer = null;
+    }
+
+    /**
+     * Registers the first flush deadline of a job that has been added to the
+     * given Njams instance.
+     *
+     * @param njams the Njams instance the job belongs to
+     * @param job the job to register
+     */
+    public static void addJob(Njams njams, Job job) {
+        LMFTEntry entry = getEntry(njams);
+        if (entry != null) {
+            schedule(entry, (JobImpl) job);
+        }
+    }
+
+    /**
+     * Removes the flush deadline of a job that has been removed from the given
+     * Njams instance.
+     *
+     * @param njams the Njams instance the job belongs to
+     * @param job the job to remove
+     */
+    public static void removeJob(Njams njams, Job job) {
+        LMFTEntry entry = getEntry(njams);
+        if (entry != null) {
+            entry.getDeadlines().remove((JobImpl) job);
         }
     }
 
     /**
-     * Run
+     * Hands the given job over to the flush worker of its Njams instance, which
+     * flushes it immediately regardless of its flush interval. This is used by
+     * jobs that exceed the flush size, so that they are not flushed on the
+     * business thread.
+     *
+     * @param job the job to flush
+     */
+    public static void requestFlush(JobImpl job) {
+        LMFTEntry entry = getEntry(job.getNjams());
+        if (entry != null) {
+            long requested = System.currentTimeMillis();
+            ExecutorService flushWorker = entry.getFlushWorker(job);
+            try {
+                flushWorker.execute(() -> flushOversized(entry, job, requested));
+            } catch (RejectedExecutionException e) {
+                if (flushWorker.isShutdown()) {
+                    LOG.debug("The flush workers have been stopped, job {} is flushed on stop.", job);
+                } else {
+                    // the next run hands it over again, processJob flushes it for its size
+                    LOG.debug("The flush worker is busy, job {} is flushed later.", job);
+                    entry.getDeadlines().schedule(job, requested + 1);
+                }
+            }
+        }
+    }
+
+    private static void flushOversized(LMFTEntry entry, JobImpl job, long requested) {
+        try {
+            if (job.isFinished() || job.getEstimatedSize() <= entry.getFlushSize()) {
+                return;
+            }
+            entry.getFlushMetrics().record(System.currentTimeMillis() - requested);
+            job.flush();
+            LOG.debug("Flush job {} which exceeded the flush size", job);
+            schedule(entry, job);
+            if (job.isFinished()) {
+                entry.getDeadlines().remove(job);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not flush job {}", job, e);
+        }
+    }
+
+    /**
+     * Returns the flush lag metrics of the given Njams instance.
+     *
+     * @param njams the Njams instance
+     * @return the flush metrics, or <b>null</b> if the instance has not been
+     * started
+     */
+    public static FlushMetrics getFlushMetrics(Njams njams) {
+        LMFTEntry entry = getEntry(njams);
+        return entry != null ? entry.getFlushMetrics() : null;
+    }
+
+    /**
+     * @param njams the Njams instance
+     * @return the entry of the given Njams instance, or <b>null</b> if it has
+     * not been started
+     */
+    static LMFTEntry getEntry(Njams njams) {
+        if (njams == null || njams.getClientPath() == null) {
+            return null;
+        }
+        LMFTEntry entry = NJAMS_INSTANCES.get(njams.getClientPath().toString());
+        return entry != null && entry.getNjams() == njams ? entry : null;
+    }
+
+    private static void schedule(LMFTEntry entry, JobImpl job) {
+        job.setFlushSize(entry.getFlushSize());
+        entry.getDeadlines().schedule(job, System.currentTimeMillis() + entry.getFlushIntervalMillis());
+    }
+
+    /**
+     * Hands the jobs that are due over to the flush workers of their Njams
+     * instance. The flushes themselves are never done by the timer thread, so
+     * that a slow flush of one instance does not delay the other instances.
      */
     @Override
     public void run() {
@@ -114,31 +243,62 @@ public class LogMessageFlushTask extends TimerTask {
                 }
                 running.set(true);
             }
-            synchronized (LogMessageFlushTask.class) {
-                NJAMS_INSTANCES.values().forEach(entry -> processNjams(entry));
-            }
+            NJAMS_INSTANCES.values().forEach(entry -> processNjams(entry));
         } finally {
             running.set(false);
         }
     }
 
     private void processNjams(LMFTEntry entry) {
-        LocalDateTime boundary = DateTimeUtility.now().minusSeconds(entry.getFlushInterval());
-        entry.getNjams().getJobs().forEach(job -> processJob(entry, job, boundary));
+        long now = System.currentTimeMillis();
+        FlushDeadlineQueue deadlines = entry.getDeadlines();
+        FlushDeadlineQueue.Deadline due;
+        while ((due = deadlines.pollDue(now)) != null) {
+            JobImpl job = due.getJob();
+            long deadline = due.getDeadline();
+            ExecutorService flushWorker = entry.getFlushWorker(job);
+            try {
+                flushWorker.execute(() -> processJob(entry, job, deadline));
+            } catch (RejectedExecutionException e) {
+                if (flushWorker.isShutdown()) {
+                    LOG.debug("The flush workers have been stopped, job {} is flushed on stop.", job);
+                } else {
+                    // checked again by the next run
+                    LOG.debug("The flush worker is busy, job {} is flushed later.", job);
+                    deadlines.schedule(job, now + 1);
+                }
+            }
+        }
     }
 
-    private void processJob(LMFTEntry entry, final Job jobParam, LocalDateTime boundary) {
-        JobImpl job = (JobImpl) jobParam;
-        // only send updates automatically, if a change has been
-        // made to the job between individual send events.
-        LOG.trace("Job {}: lastPush: {}, age: {}, size: {}", job, job.getLastFlush(),
-                Duration.between(job.getLastFlush(), DateTimeUtility.now()), job.getEstimatedSize());
-        if ((job.getLastFlush().isBefore(boundary) || job.getEstimatedSize() > entry.getFlushSize())
-                && (!job.getActivities().isEmpty() || !job.getAttributes().isEmpty() || job.getEndTime() != null)) {
-            job.flush();
-            LOG.debug("Flush job {}", job);
+    private static void processJob(LMFTEntry entry, JobImpl job, long deadline) {
+        try {
+            if (job.isFinished()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            LocalDateTime boundary = DateTimeUtility.now().minusSeconds(entry.getFlushInterval());
+            LOG.trace("Job {}: lastPush: {}, age: {}, size: {}", job, job.getLastFlush(),
+                    Duration.between(job.getLastFlush(), DateTimeUtility.now()), job.getEstimatedSize());
+            FlushDeadlineQueue deadlines = entry.getDeadlines();
+            if (job.getLastFlush().isBefore(boundary) || job.getEstimatedSize() > entry.getFlushSize()) {
+                if (!job.getActivities().isEmpty() || !job.getAttributes().isEmpty() || job.getEndTime() != null) {
+                    entry.getFlushMetrics().record(now - deadline);
+                    job.flush();
+                    LOG.debug("Flush job {}", job);
+                }
+                deadlines.schedule(job, now + entry.getFlushIntervalMillis());
+            } else {
+                // the job has been flushed in the meantime, check it again one interval after that flush
+                deadlines.schedule(job, DateTimeUtility.toMilli(job.getLastFlush()) + entry.getFlushIntervalMillis());
+            }
+            if (job.isFinished()) {
+                // the job has been ended concurrently, don't keep it
+                deadlines.remove(job);
+            }
+        } catch (Exception e) {
+            LOG.error("Could not flush job {}", job, e);
         }
-
     }
 
 }
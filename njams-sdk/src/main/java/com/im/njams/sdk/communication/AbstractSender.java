@@ -16,6 +16,8 @@
  */
 package com.im.njams.sdk.communication;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -40,14 +42,21 @@ public abstract class AbstractSender implements Sender {
 
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(AbstractSender.class);
 
-    protected ConnectionStatus connectionStatus;
+    protected volatile ConnectionStatus connectionStatus;
     protected String discardPolicy;
     protected Properties properties;
 
+    /**
+     * Default maximum number of bytes of one batch transmission
+     */
+    public static final int DEFAULT_BATCH_BYTES = 1048576;
+
     private static final AtomicBoolean hasConnected = new AtomicBoolean(false);
 
     private static final AtomicInteger connecting = new AtomicInteger(0);
 
+    private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+
     /**
      * returns a new AbstractSender
      */
@@ -104,24 +113,29 @@ public abstract class AbstractSender implements Sender {
             }
         }
 
-        while (!isConnected()) {
-            try {
-                connect();
-                synchronized (hasConnected) {
-                    if (!hasConnected.get()) {
-                        LOG.info("Connection can be established again!");
-                        LOG.info("Reconnected sender {}", getName());
-                        hasConnected.set(true);
-                    }
-                    LOG.debug("{} senders still need to reconnect.", connecting.decrementAndGet());
-                }
-            } catch (NjamsSdkRuntimeException e) {
+        reconnecting.set(true);
+        try {
+            while (!isConnected()) {
                 try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e1) {
-                    return;
+                    connect();
+                    synchronized (hasConnected) {
+                        if (!hasConnected.get()) {
+                            LOG.info("Connection can be established again!");
+                            LOG.info("Reconnected sender {}", getName());
+                            hasConnected.set(true);
+                        }
+                        LOG.debug("{} senders still need to reconnect.", connecting.decrementAndGet());
+                    }
+                } catch (NjamsSdkRuntimeException e) {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e1) {
+                        return;
+                    }
                 }
             }
+        } finally {
+            reconnecting.set(false);
         }
     }
 
@@ -132,18 +146,37 @@ public abstract class AbstractSender implements Sender {
      */
     @Override
     public void send(CommonMessage msg) {
+        sendWithPolicy(() -> {
+            if (msg instanceof LogMessage) {
+                send((LogMessage) msg);
+            } else if (msg instanceof ProjectMessage) {
+                send((ProjectMessage) msg);
+            } else if (msg instanceof TraceMessage) {
+                send((TraceMessage) msg);
+            }
+        });
+    }
+
+    /**
+     * Send the given LogMessages as one batch. This method automatically
+     * applies the discardPolicy onConnectionLoss, if set. A retry resumes with
+     * the first message that has not been delivered yet.
+     *
+     * @param msgs the messages to send
+     */
+    @Override
+    public void sendBatch(List<LogMessage> msgs) {
+        List<LogMessage> pending = new ArrayList<>(msgs);
+        sendWithPolicy(() -> sendLogMessages(pending));
+    }
+
+    private void sendWithPolicy(Runnable sendAction) {
         // do this until message is sent or discard policy onConnectionLoss is satisfied
         boolean isSent = false;
         do {
             if (isConnected()) {
                 try {
-                    if (msg instanceof LogMessage) {
-                        send((LogMessage) msg);
-                    } else if (msg instanceof ProjectMessage) {
-                        send((ProjectMessage) msg);
-                    } else if (msg instanceof TraceMessage) {
-                        send((TraceMessage) msg);
-                    }
+                    sendAction.run();
                     isSent = true;
                     break;
                 } catch (NjamsSdkRuntimeException e) {
@@ -209,6 +242,42 @@ public abstract class AbstractSender implements Sender {
      */
     protected abstract void send(TraceMessage msg) throws NjamsSdkRuntimeException;
 
+    /**
+     * Override this method to send several LogMessages in one transmission. A
+     * transmission should not exceed {@link #getMaxBatchBytes()}. By default
+     * the messages are sent one by one.
+     * <p>
+     * Before throwing, implementations have to remove every message that has
+     * already been delivered from the given list, since the retry sends the
+     * remaining messages again.
+     *
+     * @param msgs the messages to send, delivered messages are removed
+     * @throws NjamsSdkRuntimeException NjamsSdkRuntimeException
+     */
+    protected void sendLogMessages(List<LogMessage> msgs) throws NjamsSdkRuntimeException {
+        int sent = 0;
+        try {
+            for (LogMessage msg : msgs) {
+                send(msg);
+                sent++;
+            }
+        } finally {
+            msgs.subList(0, sent).clear();
+        }
+    }
+
+    /**
+     * @return the maximum number of bytes of one batch transmission, as set
+     * by {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_BYTES}
+     */
+    protected int getMaxBatchBytes() {
+        if (properties == null) {
+            return DEFAULT_BATCH_BYTES;
+        }
+        return Integer.parseInt(properties.getProperty(Settings.PROPERTY_BATCH_BYTES,
+                String.valueOf(DEFAULT_BATCH_BYTES)));
+    }
+
     @Override
     public void close() {
         // TODO Auto-generated method stub
@@ -229,6 +298,14 @@ public abstract class AbstractSender implements Sender {
         return connectionStatus == ConnectionStatus.DISCONNECTED;
     }
 
+    /**
+     * @return true while {@link #reconnect(NjamsSdkRuntimeException)} is
+     * trying to connect this sender again
+     */
+    public boolean isReconnecting() {
+        return reconnecting.get();
+    }
+
     /**
      * @return true if connectionStatus == ConnectionStatus.CONNECTING
      */
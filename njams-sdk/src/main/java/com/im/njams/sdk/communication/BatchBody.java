@@ -0,0 +1,142 @@
+/* 
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The Software shall be used for Good, not Evil.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.im.njams.sdk.common.JsonSerializerFactory;
+
+/**
+ * Body of one batch transmission for HTTP based senders. The body is a UTF-8
+ * encoded JSON array with one entry per message, which holds the header
+ * properties the message would have been sent with and the message itself:
+ * <pre>
+ * [{"properties":{"NJAMS_LOGID":"..."},"message":{...}},...]
+ * </pre>
+ * A body is limited to a maximum number of bytes; a message that does not fit
+ * anymore has to be sent with the next body. A single message that exceeds
+ * the limit is always accepted by an empty body.
+ */
+public class BatchBody {
+
+    private static final byte[] PROPERTIES = "{\"properties\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE = ",\"message\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper mapper = JsonSerializerFactory.getDefaultMapper();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final int maxBytes;
+    private int count;
+
+    /**
+     * Creates an empty body.
+     *
+     * @param maxBytes the maximum number of bytes of the body
+     */
+    public BatchBody(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a message to this body, if it still fits.
+     *
+     * @param properties the header properties of the message
+     * @param message the serialized message
+     * @return <b>true</b> if the message has been added, <b>false</b> if the
+     * body is full
+     * @throws JsonProcessingException if the properties can not be serialized
+     */
+    public boolean add(Properties properties, String message) throws JsonProcessingException {
+        byte[] data = message.getBytes(StandardCharsets.UTF_8);
+        return add(properties, data, data.length);
+    }
+
+    /**
+     * Adds a message that is already UTF-8 encoded to this body, if it still
+     * fits. The bytes are copied, the given array can be reused afterwards.
+     *
+     * @param properties the header properties of the message
+     * @param data the serialized message
+     * @param dataLength the number of bytes of the message in data
+     * @return <b>true</b> if the message has been added, <b>false</b> if the
+     * body is full
+     * @throws JsonProcessingException if the properties can not be serialized
+     */
+    public boolean add(Properties properties, byte[] data, int dataLength) throws JsonProcessingException {
+        byte[] header = mapper.writeValueAsBytes(properties);
+        // separator or opening bracket, entry, closing brace and bracket
+        int length = 1 + PROPERTIES.length + header.length + MESSAGE.length + dataLength + 2;
+        if (count > 0 && out.size() + length > maxBytes) {
+            return false;
+        }
+        out.write(count == 0 ? '[' : ',');
+        out.write(PROPERTIES, 0, PROPERTIES.length);
+        out.write(header, 0, header.length);
+        out.write(MESSAGE, 0, MESSAGE.length);
+        out.write(data, 0, dataLength);
+        out.write('}');
+        count++;
+        return true;
+    }
+
+    /**
+     * @return the number of messages in this body
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return whether no message has been added yet
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Writes the UTF-8 encoded body to the given stream.
+     *
+     * @param target the stream to write to
+     * @throws IOException if the body can not be written
+     */
+    public void writeTo(OutputStream target) throws IOException {
+        if (count == 0) {
+            target.write('[');
+        } else {
+            out.writeTo(target);
+        }
+        target.write(']');
+    }
+
+    /**
+     * @return the UTF-8 encoded body
+     */
+    public byte[] toByteArray() {
+        if (count == 0) {
+            return "[]".getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[out.size() + 1];
+        System.arraycopy(out.toByteArray(), 0, bytes, 0, out.size());
+        bytes[bytes.length - 1] = ']';
+        return bytes;
+    }
+}
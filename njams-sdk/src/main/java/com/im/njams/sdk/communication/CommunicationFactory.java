@@ -101,6 +101,26 @@ public class CommunicationFactory {
         }
     }
 
+    /**
+     * The ServiceLoader is not thread-safe, but the SenderPool creates senders
+     * concurrently.
+     *
+     * @param name the name of the sender
+     * @return the loaded sender with the given name, or null
+     */
+    private Sender findSender(String name) {
+        synchronized (senderList) {
+            final Iterator<Sender> iterator = senderList.iterator();
+            while (iterator.hasNext()) {
+                final Sender sender = iterator.next();
+                if (sender.getName().equals(name)) {
+                    return sender;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the Sender specified by the value of {@value #COMMUNICATION}
      * specified in the CommunicationProperties in the Settings
@@ -109,22 +129,19 @@ public class CommunicationFactory {
      */
     public Sender getSender() {
         if (settings.getProperties().containsKey(COMMUNICATION)) {
-            final Iterator<Sender> iterator = senderList.iterator();
             final String requiredSenderName = Transformer.decode(settings.getProperties().getProperty(COMMUNICATION));
-            while (iterator.hasNext()) {
-                final Sender sender = iterator.next();
-                if (sender.getName().equals(requiredSenderName)) {
-                    try {
-                        // create a new instance
-                        LOG.info("Create sender {}", sender.getName());
-                        Sender newInstance = sender.getClass().newInstance();
-                        newInstance.validate();
-                        newInstance.init(Transformer.decode(settings.getProperties()));
-                        return newInstance;
-                    } catch (Exception e) {
-                        throw new UnsupportedOperationException(
-                                "Unable to create new " + requiredSenderName + " instance", e);
-                    }
+            final Sender sender = findSender(requiredSenderName);
+            if (sender != null) {
+                try {
+                    // create a new instance
+                    LOG.info("Create sender {}", sender.getName());
+                    Sender newInstance = sender.getClass().newInstance();
+                    newInstance.validate();
+                    newInstance.init(Transformer.decode(settings.getProperties()));
+                    return newInstance;
+                } catch (Exception e) {
+                    throw new UnsupportedOperationException(
+                            "Unable to create new " + requiredSenderName + " instance", e);
                 }
             }
             String available = StreamSupport
@@ -0,0 +1,168 @@
+/* 
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The Software shall be used for Good, not Evil.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.LoggerFactory;
+
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.im.njams.sdk.settings.Settings;
+
+/**
+ * Collects LogMessages into batches for the NjamsSender. A batch is closed
+ * when it holds
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_SIZE} messages, or
+ * when its first message has waited
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_LINGER}
+ * milliseconds. Closed batches are handed to the given consumer, which ships
+ * them with {@link Sender#sendBatch(List)}. The byte limit
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_BYTES} is applied
+ * by the senders, which know the serialized size of the messages.
+ */
+public class LogMessageBatcher {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(LogMessageBatcher.class);
+
+    /**
+     * Default batch size, which disables batching
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    /**
+     * Default linger time in milliseconds
+     */
+    public static final long DEFAULT_LINGER = 20;
+
+    private final int batchSize;
+    private final long linger;
+    private final Consumer<List<LogMessage>> batchConsumer;
+    private final ScheduledExecutorService timer;
+    private List<LogMessage> batch;
+    private ScheduledFuture<?> lingerTask;
+    private boolean closed;
+
+    /**
+     * Creates a batcher.
+     *
+     * @param properties the properties for
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_SIZE} and
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_LINGER}
+     * @param threadFactory creates the thread that closes lingering batches
+     * @param batchConsumer ships the closed batches
+     */
+    public LogMessageBatcher(Properties properties, ThreadFactory threadFactory,
+            Consumer<List<LogMessage>> batchConsumer) {
+        batchSize = getBatchSize(properties);
+        linger = Long.parseLong(properties.getProperty(Settings.PROPERTY_BATCH_LINGER,
+                String.valueOf(DEFAULT_LINGER)));
+        if (linger <= 0) {
+            throw new IllegalArgumentException("linger must be greater than 0: " + linger);
+        }
+        this.batchConsumer = batchConsumer;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, threadFactory);
+        executor.setRemoveOnCancelPolicy(true);
+        timer = executor;
+        LOG.debug("Batching up to {} LogMessages for {} ms", batchSize, linger);
+    }
+
+    /**
+     * Returns the configured batch size.
+     *
+     * @param properties the properties to read
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_SIZE} from
+     * @return the batch size, a value greater than 1 enables batching
+     */
+    public static int getBatchSize(Properties properties) {
+        return Integer.parseInt(properties.getProperty(Settings.PROPERTY_BATCH_SIZE,
+                String.valueOf(DEFAULT_BATCH_SIZE)));
+    }
+
+    /**
+     * Adds the given message to the current batch, and ships the batch if it
+     * is full.
+     *
+     * @param msg the message to add
+     */
+    public void add(LogMessage msg) {
+        List<LogMessage> full = null;
+        synchronized (this) {
+            if (closed) {
+                full = Collections.singletonList(msg);
+            } else {
+                if (batch == null) {
+                    List<LogMessage> opened = new ArrayList<>(batchSize);
+                    batch = opened;
+                    lingerTask = timer.schedule(() -> closeLingering(opened), linger, TimeUnit.MILLISECONDS);
+                }
+                batch.add(msg);
+                if (batch.size() >= batchSize) {
+                    full = batch;
+                    batch = null;
+                    lingerTask.cancel(false);
+                }
+            }
+        }
+        if (full != null) {
+            batchConsumer.accept(full);
+        }
+    }
+
+    private void closeLingering(List<LogMessage> lingering) {
+        synchronized (this) {
+            if (batch != lingering) {
+                // already shipped because it was full
+                return;
+            }
+            batch = null;
+        }
+        batchConsumer.accept(lingering);
+    }
+
+    /**
+     * Ships the current batch and stops the linger timer. Messages added
+     * afterwards are shipped one by one.
+     */
+    public void close() {
+        List<LogMessage> remaining;
+        synchronized (this) {
+            closed = true;
+            timer.shutdownNow();
+            remaining = batch;
+            batch = null;
+        }
+        if (remaining != null) {
+            batchConsumer.accept(remaining);
+        }
+    }
+
+    /**
+     * @return the maximum number of messages in a batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+}
@@ -17,12 +17,15 @@
 package com.im.njams.sdk.communication;
 
 import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
 import com.im.njams.sdk.Njams;
 import com.im.njams.sdk.factories.ThreadFactoryBuilder;
 import com.im.njams.sdk.settings.Settings;
 import com.im.njams.sdk.settings.encoding.Transformer;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -48,6 +51,15 @@ public class NjamsSender implements Sender {
     
     //The executor Threadpool that send the messages to the right senders.
     private ThreadPoolExecutor executor = null;    
+
+    //The ring buffer dispatcher, used instead of the executor if configured.
+    private RingBufferDispatcher dispatcher = null;
+
+    //Collects LogMessages into batches for the executor, if batching is enabled.
+    private LogMessageBatcher batcher = null;
+
+    //The maximum number of LogMessages in one transmission, 1 disables batching.
+    private int batchSize = LogMessageBatcher.DEFAULT_BATCH_SIZE;
     
     //The njamsInstance to work for
     private final Njams njams;
@@ -74,15 +86,32 @@ public class NjamsSender implements Sender {
     }
 
     /**
-     * This method initializes a CommunicationFactory, a ThreadPoolExecutor and
-     * a SenderPool.
+     * This method initializes a CommunicationFactory, a ThreadPoolExecutor or
+     * a RingBufferDispatcher, and a SenderPool.
+     * <p>
+     * If {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_SIZE} is
+     * greater than 1, LogMessages are sent in batches. The executor gets them
+     * from a LogMessageBatcher, the RingBufferDispatcher groups the
+     * LogMessages of every drained batch, so its batches are limited to
+     * {@value com.im.njams.sdk.communication.RingBufferDispatcher#BATCH_SIZE}
+     * messages and do not linger.
      *
      * @param properties the properties for MIN_QUEUE_LENGTH, MAX_QUEUE_LENGTH
-     * and IDLE_TIME for the sender threads.
+     * and IDLE_TIME for the sender threads, or the ring buffer settings if
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_DISPATCHER} is
+     * <code>ringbuffer</code>, and the batch settings.
      */
     @Override
     public void init(Properties properties) {
         CommunicationFactory communicationFactory = new CommunicationFactory(njams, settings);
+        this.senderPool = new SenderPool(communicationFactory, properties);
+        this.batchSize = LogMessageBatcher.getBatchSize(properties);
+        if ("ringbuffer".equalsIgnoreCase(properties.getProperty(Settings.PROPERTY_DISPATCHER))) {
+            ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                    .setNamePrefix(getName() + "-Dispatcher-Thread").setDaemon(true).build();
+            this.dispatcher = new RingBufferDispatcher(properties, threadFactory, this::sendBatch);
+            return;
+        }
         int minQueueLength = Integer.parseInt(properties.getProperty(Settings.PROPERTY_MIN_QUEUE_LENGTH, "1"));
         int maxQueueLength = Integer.parseInt(properties.getProperty(Settings.PROPERTY_MAX_QUEUE_LENGTH, "8"));
         long idleTime = Long.parseLong(properties.getProperty(Settings.PROPERTY_SENDER_THREAD_IDLE_TIME, "10000"));
@@ -91,7 +120,11 @@ public class NjamsSender implements Sender {
         this.executor = new ThreadPoolExecutor(minQueueLength, maxQueueLength, idleTime, TimeUnit.MILLISECONDS,
                 new ArrayBlockingQueue<>(maxQueueLength), threadFactory,
                 new MaxQueueLengthHandler(properties));
-        this.senderPool = new SenderPool(communicationFactory, properties);
+        if (batchSize > 1) {
+            ThreadFactory batcherThreadFactory = new ThreadFactoryBuilder()
+                    .setNamePrefix(getName() + "-Batcher-Thread").setDaemon(true).build();
+            this.batcher = new LogMessageBatcher(properties, batcherThreadFactory, this::executeBatch);
+        }
     }
 
     /**
@@ -102,6 +135,14 @@ public class NjamsSender implements Sender {
      */
     @Override
     public void send(CommonMessage msg) {
+        if (dispatcher != null) {
+            dispatcher.dispatch(msg);
+            return;
+        }
+        if (batcher != null && msg instanceof LogMessage) {
+            batcher.add((LogMessage) msg);
+            return;
+        }
         executor.execute(() -> {
             Sender sender = null;
             try {
@@ -120,17 +161,99 @@ public class NjamsSender implements Sender {
     }
 
     /**
-     * This method closes the ThreadPoolExecutor safely. It awaits the
-     * termination for 10 seconds, after that, an InterruptedException will be
-     * thrown and the senders will be closed.
+     * This method starts a thread that sends a batch closed by the
+     * LogMessageBatcher to a sender in the senderpool.
+     *
+     * @param batch the LogMessages that will be send in one transmission.
+     */
+    private void executeBatch(List<LogMessage> batch) {
+        executor.execute(() -> {
+            Sender sender = null;
+            try {
+                sender = senderPool.get();
+                if (sender != null) {
+                    sender.sendBatch(batch);
+                }
+            } catch (Exception e) {
+                LOG.error("could not send {} messages, {}", batch.size(), e);
+            } finally {
+                if (sender != null) {
+                    senderPool.close(sender);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends a batch of messages drained by the RingBufferDispatcher with one
+     * sender of the senderpool. If batching is enabled, the LogMessages are
+     * sent in batch transmissions.
+     *
+     * @param batch the messages
+     * @param count the number of messages in the batch
+     */
+    private void sendBatch(CommonMessage[] batch, int count) {
+        Sender sender = null;
+        try {
+            sender = senderPool.get();
+            if (sender != null) {
+                List<LogMessage> logMessages = new ArrayList<>(Math.min(batchSize, count));
+                for (int i = 0; i < count; i++) {
+                    if (batchSize > 1 && batch[i] instanceof LogMessage) {
+                        logMessages.add((LogMessage) batch[i]);
+                        if (logMessages.size() >= batchSize) {
+                            sendLogMessages(sender, logMessages);
+                            logMessages = new ArrayList<>(Math.min(batchSize, count));
+                        }
+                        continue;
+                    }
+                    try {
+                        sender.send(batch[i]);
+                    } catch (Exception e) {
+                        LOG.error("could not send message {}, {}", batch[i], e);
+                    }
+                }
+                if (!logMessages.isEmpty()) {
+                    sendLogMessages(sender, logMessages);
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("could not send {} messages, {}", count, e);
+        } finally {
+            if (sender != null) {
+                senderPool.close(sender);
+            }
+        }
+    }
+
+    private void sendLogMessages(Sender sender, List<LogMessage> logMessages) {
+        try {
+            sender.sendBatch(logMessages);
+        } catch (Exception e) {
+            LOG.error("could not send {} messages, {}", logMessages.size(), e);
+        }
+    }
+
+    /**
+     * This method closes the ThreadPoolExecutor or the RingBufferDispatcher
+     * safely. It awaits the termination for 10 seconds, after that, an
+     * InterruptedException will be thrown and the senders will be closed.
      */
     @Override
     public void close() {
         try {
             int waitTime = 10;
             TimeUnit unit = TimeUnit.SECONDS;
-            executor.shutdown();
-            boolean awaitTermination = executor.awaitTermination(waitTime, unit);
+            boolean awaitTermination;
+            if (dispatcher != null) {
+                awaitTermination = dispatcher.close(waitTime, unit);
+            } else {
+                if (batcher != null) {
+                    batcher.close();
+                }
+                executor.shutdown();
+                awaitTermination = executor.awaitTermination(waitTime, unit);
+            }
             if(!awaitTermination){
                LOG.error("The termination time of the executor has been exceeded ({} {}).", waitTime, unit); 
             }
@@ -155,10 +278,48 @@ public class NjamsSender implements Sender {
     /**
      * This method return the ThreadPoolExecutor
      * 
-     * @return the ThreadPoolExecutor
+     * @return the ThreadPoolExecutor, or null if the RingBufferDispatcher is used
      */
     ThreadPoolExecutor getExecutor(){
         return executor;
     }
 
+    /**
+     * This method return the RingBufferDispatcher
+     *
+     * @return the RingBufferDispatcher, or null if the ThreadPoolExecutor is used
+     */
+    RingBufferDispatcher getDispatcher(){
+        return dispatcher;
+    }
+
+    /**
+     * This method return the LogMessageBatcher
+     *
+     * @return the LogMessageBatcher, or null if batching is disabled or the
+     * RingBufferDispatcher is used
+     */
+    LogMessageBatcher getBatcher(){
+        return batcher;
+    }
+
+    /**
+     * Creates and connects the configured minimum number of idle senders, so
+     * the first messages do not wait for a connection.
+     *
+     * @return the number of senders created
+     */
+    public int prewarm() {
+        return senderPool.prewarm();
+    }
+
+    /**
+     * This method returns the SenderPool
+     *
+     * @return the SenderPool, with its metrics
+     */
+    public SenderPool getSenderPool() {
+        return senderPool;
+    }
+
 }
@@ -0,0 +1,285 @@
+/* 
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The Software shall be used for Good, not Evil.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.LoggerFactory;
+
+import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
+import com.im.njams.sdk.settings.Settings;
+import com.im.njams.sdk.utils.RingBuffer;
+
+/**
+ * Dispatch stage of the NjamsSender, which hands the messages over to a fixed
+ * number of consumer threads through a preallocated {@link RingBuffer}.
+ * Consumers drain the ring buffer in batches and send every batch with one
+ * sender from the SenderPool.
+ * <p>
+ * If the ring buffer is full, the message is discarded if the discard policy
+ * is <code>discard</code>, otherwise the caller waits for a free slot. Once
+ * the dispatcher is closed, messages are discarded.
+ * <p>
+ * The batches are not lingered, a consumer sends what it has drained, at most
+ * {@link #BATCH_SIZE} messages. So the LogMessages of a batch transmission are
+ * limited to {@link #BATCH_SIZE} too, even if
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_SIZE} is greater,
+ * and {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_LINGER} is not
+ * applied. The byte limit
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_BATCH_BYTES} is applied
+ * by the senders.
+ */
+public class RingBufferDispatcher {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(RingBufferDispatcher.class);
+
+    /**
+     * Default capacity of the ring buffer
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Default number of consumer threads
+     */
+    public static final int DEFAULT_CONSUMERS = 2;
+
+    /**
+     * Maximum number of messages that are sent with one sender, and of
+     * LogMessages in one batch transmission
+     */
+    public static final int BATCH_SIZE = 64;
+
+    /**
+     * Strategy used by idle consumers, and by producers waiting for a free
+     * slot.
+     */
+    public enum WaitStrategy {
+        /**
+         * Park the thread until it is signalled. Lowest CPU usage, highest
+         * latency.
+         */
+        BLOCKING,
+        /**
+         * Park the thread for a short time.
+         */
+        SLEEPING,
+        /**
+         * Yield the thread.
+         */
+        YIELDING,
+        /**
+         * Spin without giving up the CPU. Lowest latency, uses one core per
+         * waiting thread.
+         */
+        BUSY_SPIN
+    }
+
+    /**
+     * Sends a batch of messages.
+     */
+    @FunctionalInterface
+    public interface BatchSender {
+        /**
+         * Sends the first <code>count</code> messages of the given batch.
+         *
+         * @param batch the messages
+         * @param count the number of messages in the batch
+         */
+        void send(CommonMessage[] batch, int count);
+    }
+
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final RingBuffer<CommonMessage> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final boolean discard;
+    private final BatchSender batchSender;
+    private final List<Thread> consumers = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private volatile boolean running = true;
+
+    /**
+     * Creates the dispatcher and starts its consumer threads.
+     *
+     * @param properties the properties for
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_RING_BUFFER_SIZE},
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_RING_BUFFER_CONSUMERS},
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_WAIT_STRATEGY} and
+     * {@value com.im.njams.sdk.settings.Settings#PROPERTY_DISCARD_POLICY}
+     * @param threadFactory creates the consumer threads
+     * @param batchSender sends the drained messages
+     */
+    public RingBufferDispatcher(Properties properties, ThreadFactory threadFactory, BatchSender batchSender) {
+        int capacity = Integer.parseInt(properties.getProperty(Settings.PROPERTY_RING_BUFFER_SIZE,
+                String.valueOf(DEFAULT_CAPACITY)));
+        int consumerCount = Integer.parseInt(properties.getProperty(Settings.PROPERTY_RING_BUFFER_CONSUMERS,
+                String.valueOf(DEFAULT_CONSUMERS)));
+        if (consumerCount <= 0) {
+            throw new IllegalArgumentException("consumers must be greater than 0: " + consumerCount);
+        }
+        ringBuffer = new RingBuffer<>(capacity);
+        waitStrategy = WaitStrategy.valueOf(properties.getProperty(Settings.PROPERTY_WAIT_STRATEGY,
+                WaitStrategy.BLOCKING.name()).trim().toUpperCase());
+        discard = "discard".equalsIgnoreCase(properties.getProperty(Settings.PROPERTY_DISCARD_POLICY, "none"));
+        this.batchSender = batchSender;
+        for (int i = 0; i < consumerCount; i++) {
+            Thread consumer = threadFactory.newThread(this::consume);
+            consumers.add(consumer);
+            consumer.start();
+        }
+        LOG.debug("Started {} consumers on a ring buffer of {} slots, waiting {}", consumerCount,
+                ringBuffer.capacity(), waitStrategy);
+    }
+
+    /**
+     * Hands the given message over to the consumers.
+     *
+     * @param msg the message to send
+     */
+    public void dispatch(CommonMessage msg) {
+        // checked before offering, the consumers may have exited already
+        while (running) {
+            if (ringBuffer.offer(msg)) {
+                signalConsumer();
+                return;
+            }
+            if (discard) {
+                LOG.debug("Message discarded");
+                return;
+            }
+            LOG.trace("Waiting for free slot in ring buffer");
+            idle(waitStrategy == WaitStrategy.BLOCKING ? WaitStrategy.SLEEPING : waitStrategy);
+        }
+        LOG.warn("Dispatcher is closed, message discarded");
+    }
+
+    private void signalConsumer() {
+        if (waitStrategy == WaitStrategy.BLOCKING && waitingConsumers.get() > 0) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void consume() {
+        CommonMessage[] batch = new CommonMessage[BATCH_SIZE];
+        while (running || !ringBuffer.isEmpty()) {
+            int count = ringBuffer.drainTo(batch, BATCH_SIZE);
+            if (count == 0) {
+                if (waitStrategy == WaitStrategy.BLOCKING) {
+                    awaitMessages();
+                } else {
+                    idle(waitStrategy);
+                }
+                continue;
+            }
+            try {
+                batchSender.send(batch, count);
+            } catch (Exception e) {
+                LOG.error("could not send {} messages", count, e);
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    batch[i] = null;
+                }
+            }
+        }
+    }
+
+    private void awaitMessages() {
+        lock.lock();
+        waitingConsumers.incrementAndGet();
+        try {
+            if (running && ringBuffer.isEmpty()) {
+                // timed, so a signal that comes in before waiting is not lost
+                notEmpty.awaitNanos(BLOCKING_TIMEOUT_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitingConsumers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    private static void idle(WaitStrategy strategy) {
+        switch (strategy) {
+        case YIELDING:
+            Thread.yield();
+            break;
+        case BUSY_SPIN:
+            break;
+        default:
+            LockSupport.parkNanos(SLEEP_NANOS);
+            break;
+        }
+    }
+
+    /**
+     * Stops accepting messages and waits until the consumers have sent the
+     * remaining messages, or the given time has elapsed.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return <b>true</b> if all consumers have finished
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread consumer : consumers) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining > 0) {
+                consumer.join(remaining);
+            }
+        }
+        return consumers.stream().noneMatch(Thread::isAlive);
+    }
+
+    /**
+     * @return the number of messages waiting to be sent
+     */
+    public int getQueueSize() {
+        return ringBuffer.size();
+    }
+
+    /**
+     * @return the capacity of the ring buffer
+     */
+    public int getCapacity() {
+        return ringBuffer.capacity();
+    }
+}
@@ -17,9 +17,11 @@
 package com.im.njams.sdk.communication;
 
 import com.im.njams.sdk.utils.ClasspathValidator;
+import java.util.List;
 import java.util.Properties;
 
 import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
 
 /**
  * This interface must be implemented to create a nJAMS Sender Inplementations
@@ -47,6 +49,16 @@ public interface Sender extends AutoCloseable, ClasspathValidator {
      * every message
      */
     public static final String NJAMS_MESSAGETYPE = "NJAMS_MESSAGETYPE";
+    /**
+     * Property key for header properties which specifies the number of
+     * messages in a batch transmission
+     */
+    public static final String NJAMS_BATCHSIZE = "NJAMS_BATCHSIZE";
+    /**
+     * Property key for header properties which specifies the compression of a
+     * binary message body, <code>gzip</code> or <code>deflate</code>
+     */
+    public static final String NJAMS_COMPRESSION = "NJAMS_COMPRESSION";
     /**
      * Property value for header properties which specifies a logmessage
      */
@@ -74,6 +86,19 @@ public interface Sender extends AutoCloseable, ClasspathValidator {
      */
     void send(CommonMessage msg);
 
+    /**
+     * Send the given LogMessages as one batch. Senders that can ship several
+     * messages in one transmission override this; by default the messages are
+     * sent one by one.
+     *
+     * @param msgs the messages to send
+     */
+    default void sendBatch(List<LogMessage> msgs) {
+        for (LogMessage msg : msgs) {
+            send(msg);
+        }
+    }
+
     /**
      * Close this Sender.
      */
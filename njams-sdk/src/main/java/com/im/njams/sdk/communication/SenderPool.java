@@ -16,39 +16,117 @@
  */
 package com.im.njams.sdk.communication;
 
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+import com.im.njams.sdk.factories.ThreadFactoryBuilder;
 import com.im.njams.sdk.pools.ObjectPool;
 import com.im.njams.sdk.settings.Settings;
+import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * pool for Sender sub-classes
+ * <p>
+ * The pool holds at most
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_MAX_QUEUE_LENGTH}
+ * senders, or one per consumer of the RingBufferDispatcher if that is more.
+ * New senders are connected when they are created, and an idle sender that
+ * has lost its connection is connected again before it is handed out; if
+ * that fails, it is closed and replaced. Senders that are reconnecting in
+ * the background are kept. Idle senders are closed after
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_SENDER_POOL_IDLE_TIME},
+ * keeping
+ * {@value com.im.njams.sdk.settings.Settings#PROPERTY_SENDER_POOL_MIN_IDLE}
+ * of them.
  *
  * @author hsiegeln
  *
  */
 public class SenderPool extends ObjectPool<Sender> {
 
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(SenderPool.class);
+
+    /**
+     * Default number of idle senders created on start and kept on eviction
+     */
+    public static final int DEFAULT_MIN_IDLE = 1;
+
+    /**
+     * Default time in milliseconds after which an idle sender is closed
+     */
+    public static final long DEFAULT_IDLE_TIME = 300000;
+
     private Properties properties;
     private CommunicationFactory factory;
+    private final ScheduledExecutorService evictor;
 
     public SenderPool(CommunicationFactory factory, Properties properties) {
-        super(Integer.parseInt(properties.getProperty(Settings.PROPERTY_MAX_QUEUE_LENGTH, "8")));
+        super(getMaxCapacity(properties),
+                Integer.parseInt(properties.getProperty(Settings.PROPERTY_SENDER_POOL_MIN_IDLE,
+                        String.valueOf(DEFAULT_MIN_IDLE))),
+                getIdleTime(properties));
         this.properties = properties;
         this.factory = factory;
+        long idleTime = getIdleTime(properties);
+        if (idleTime > 0) {
+            long period = Math.max(idleTime / 2, 1000);
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNamePrefix("SenderPool-Evictor-Thread").setDaemon(true).build());
+            evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    private static int getMaxCapacity(Properties properties) {
+        int maxCapacity = Integer.parseInt(properties.getProperty(Settings.PROPERTY_MAX_QUEUE_LENGTH, "8"));
+        if ("ringbuffer".equalsIgnoreCase(properties.getProperty(Settings.PROPERTY_DISPATCHER))) {
+            // every consumer of the ring buffer holds one sender while sending
+            maxCapacity = Math.max(maxCapacity,
+                    Integer.parseInt(properties.getProperty(Settings.PROPERTY_RING_BUFFER_CONSUMERS,
+                            String.valueOf(RingBufferDispatcher.DEFAULT_CONSUMERS))));
+        }
+        return maxCapacity;
+    }
+
+    private static long getIdleTime(Properties properties) {
+        return Long.parseLong(properties.getProperty(Settings.PROPERTY_SENDER_POOL_IDLE_TIME,
+                String.valueOf(DEFAULT_IDLE_TIME)));
     }
 
     @Override
     protected Sender create() {
         Sender sender = factory.getSender();
-        //        sender.init(properties);
+        if (sender instanceof AbstractSender && !((AbstractSender) sender).isConnected()) {
+            // connect now instead of on the first message
+            try {
+                ((AbstractSender) sender).connect();
+            } catch (NjamsSdkRuntimeException e) {
+                LOG.warn("Could not connect new sender {}: {}", sender.getName(), e.toString());
+            }
+        }
         return sender;
     }
 
     @Override
     public boolean validate(Sender sender) {
-        // TODO: there must be a better solution!
-        return true;
+        if (!(sender instanceof AbstractSender)) {
+            return true;
+        }
+        AbstractSender abstractSender = (AbstractSender) sender;
+        if (abstractSender.isConnected() || abstractSender.isReconnecting()) {
+            // a reconnecting sender keeps its reconnect thread, closing it would leak that
+            return true;
+        }
+        try {
+            abstractSender.connect();
+        } catch (NjamsSdkRuntimeException e) {
+            LOG.debug("Could not connect idle sender {}: {}", sender.getName(), e.toString());
+        }
+        return abstractSender.isConnected();
     }
 
     @Override
@@ -56,6 +134,14 @@ public class SenderPool extends ObjectPool<Sender> {
         sender.close();
     }
 
+    @Override
+    public void expireAll() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        super.expireAll();
+    }
+
     public void setSenderFactory(CommunicationFactory senderFactory) {
         this.factory = senderFactory;
     }
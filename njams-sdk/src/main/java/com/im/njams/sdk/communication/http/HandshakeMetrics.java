@@ -0,0 +1,77 @@
+/* 
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The Software shall be used for Good, not Evil.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the TLS handshakes of the connections opened with a
+ * {@link SharedSslContext}. The handshake time is the time between the moment
+ * the TLS socket has been layered over the connected socket and the moment the
+ * handshake has been completed.
+ */
+public class HandshakeMetrics {
+
+    private final LongAdder handshakeCount = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records one completed handshake.
+     *
+     * @param nanos the handshake time in nanoseconds
+     */
+    public void record(long nanos) {
+        long time = Math.max(0, nanos);
+        handshakeCount.increment();
+        totalNanos.add(time);
+        maxNanos.accumulateAndGet(time, Math::max);
+    }
+
+    /**
+     * @return the number of completed handshakes
+     */
+    public long getHandshakeCount() {
+        return handshakeCount.sum();
+    }
+
+    /**
+     * @return the average handshake time in microseconds, or 0 if no handshake
+     * has been completed yet
+     */
+    public long getAverageHandshakeMicros() {
+        long count = handshakeCount.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / count);
+    }
+
+    /**
+     * @return the maximum handshake time in microseconds
+     */
+    public long getMaxHandshakeMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "HandshakeMetrics[handshakes=" + getHandshakeCount() + ", averageTime=" + getAverageHandshakeMicros()
+                + "us, maxTime=" + getMaxHandshakeMicros() + "us]";
+    }
+}
@@ -18,18 +18,12 @@ package com.im.njams.sdk.communication.http;
 
 import static java.nio.charset.Charset.defaultCharset;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Base64;
-import java.util.Map;
+import java.util.List;
 import java.util.Properties;
-import java.util.Set;
 
 import com.faizsiegeln.njams.messageformat.v4.tracemessage.TraceMessage;
 import org.slf4j.LoggerFactory;
@@ -38,8 +32,10 @@ import com.faizsiegeln.njams.messageformat.v4.common.MessageVersion;
 import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.ProjectMessage;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.im.njams.sdk.common.JsonSerializerFactory;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import com.im.njams.sdk.communication.AbstractSender;
+import com.im.njams.sdk.communication.BatchBody;
 import com.im.njams.sdk.communication.Sender;
 import com.im.njams.sdk.settings.Settings;
 
@@ -71,9 +67,18 @@ public class HttpSender extends AbstractSender {
      * http sender password
      */
     public static final String SENDER_PASSWORD = PROPERTY_PREFIX + ".sender.password";
+    /**
+     * http sender compression, <code>none</code> (default) or <code>gzip</code>
+     */
+    public static final String SENDER_COMPRESSION = PROPERTY_PREFIX + ".sender.compression";
+    /**
+     * http sender maximum number of requests in flight to the endpoint
+     */
+    public static final String SENDER_MAX_CONNECTIONS = PROPERTY_PREFIX + ".sender.maxconnections";
     private String user;
     private String password;
     private URL url;
+    private HttpTransport transport;
 
     /**
      * Initializes this Sender via the given Properties.
@@ -83,6 +88,8 @@ public class HttpSender extends AbstractSender {
      * <li>{@value com.im.njams.sdk.communication.http.HttpSender#SENDER_URL}
      * <li>{@value com.im.njams.sdk.communication.http.HttpSender#SENDER_USERNAME}
      * <li>{@value com.im.njams.sdk.communication.http.HttpSender#SENDER_PASSWORD}
+     * <li>{@value com.im.njams.sdk.communication.http.HttpSender#SENDER_COMPRESSION}
+     * <li>{@value com.im.njams.sdk.communication.http.HttpSender#SENDER_MAX_CONNECTIONS}
      * </ul>
      *
      * @param properties the properties needed to initialize
@@ -98,15 +105,28 @@ public class HttpSender extends AbstractSender {
         }
         user = properties.getProperty(SENDER_USERNAME);
         password = properties.getProperty(SENDER_PASSWORD);
+        if (mapper == null) {
+            mapper = JsonSerializerFactory.getDefaultMapper();
+        }
+        transport = new HttpTransport(url,
+                Integer.parseInt(properties.getProperty(SENDER_MAX_CONNECTIONS,
+                        String.valueOf(HttpTransport.DEFAULT_MAX_CONNECTIONS))),
+                HttpTransport.GZIP.equalsIgnoreCase(properties.getProperty(SENDER_COMPRESSION, "none").trim()));
+        transport.setRequestProperty("Accept", "text/plain");
+        transport.setRequestProperty("Content-Language", "en-US");
+        transport.setRequestProperty(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        if (user != null) {
+            final Base64.Encoder encoder = Base64.getEncoder();
+            final String userpassword = user + ":" + password;
+            final byte[] encodedAuthorization = encoder.encode(userpassword.getBytes(defaultCharset()));
+            transport.setRequestProperty("Authorization",
+                    "Basic " + new String(encodedAuthorization, defaultCharset()));
+        }
     }
 
     @Override
     protected void send(final LogMessage msg) {
-        final Properties properties = new Properties();
-        properties.put(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
-        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
-        properties.put(Sender.NJAMS_PATH, msg.getPath());
-        properties.put(Sender.NJAMS_LOGID, msg.getLogId());
+        final Properties properties = getProperties(msg);
         try {
             LOG.debug("Sending log message");
             final String response = send(msg, properties);
@@ -116,6 +136,61 @@ public class HttpSender extends AbstractSender {
         }
     }
 
+    /**
+     * Send the given LogMessages as {@link BatchBody}, in as few requests as
+     * the byte limit allows. Sent messages are removed from the list, so that
+     * a retry after a failed request continues with the first message that
+     * has not been sent.
+     *
+     * @param msgs the LogMessages to send, sent messages are removed
+     * @throws NjamsSdkRuntimeException if a request fails
+     */
+    @Override
+    protected void sendLogMessages(final List<LogMessage> msgs) throws NjamsSdkRuntimeException {
+        final int maxBytes = getMaxBatchBytes();
+        BatchBody body = new BatchBody(maxBytes);
+        int batched = 0;
+        try {
+            while (batched < msgs.size()) {
+                final LogMessage msg = msgs.get(batched);
+                final Properties properties = getProperties(msg);
+                final String data = mapper.writeValueAsString(msg);
+                if (body.add(properties, data)) {
+                    batched++;
+                } else {
+                    send(body);
+                    msgs.subList(0, batched).clear();
+                    body = new BatchBody(maxBytes);
+                    body.add(properties, data);
+                    batched = 1;
+                }
+            }
+            if (batched > 0) {
+                send(body);
+                msgs.clear();
+            }
+        } catch (final IOException ex) {
+            throw new NjamsSdkRuntimeException("Error sending LogMessages", ex);
+        }
+    }
+
+    private Properties getProperties(final LogMessage msg) {
+        final Properties properties = new Properties();
+        properties.put(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
+        properties.put(Sender.NJAMS_PATH, msg.getPath());
+        properties.put(Sender.NJAMS_LOGID, msg.getLogId());
+        return properties;
+    }
+
+    private void send(final BatchBody body) throws IOException {
+        final Properties properties = new Properties();
+        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
+        properties.put(Sender.NJAMS_BATCHSIZE, String.valueOf(body.getCount()));
+        LOG.debug("Sending {} log messages", body.getCount());
+        LOG.debug("Response: " + transport.post(body::writeTo, properties));
+    }
+
     @Override
     protected void send(final ProjectMessage msg) {
         final Properties properties = new Properties();
@@ -148,70 +223,14 @@ public class HttpSender extends AbstractSender {
         }
     }
 
-    private void addAddtionalProperties(final Properties properties, final HttpURLConnection connection) {
-        final Set<Map.Entry<Object, Object>> entrySet = properties.entrySet();
-        entrySet.forEach(
-                entry -> connection.setRequestProperty(entry.getKey().toString(), entry.getValue().toString()));
-    }
-
     private String send(final Object msg, final Properties properties) throws IOException {
-        HttpURLConnection connection = null;
-
-        try {
-            //Create connection
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "text/plain");
-
-            if (user != null) {
-                final Base64.Encoder encoder = Base64.getEncoder();
-                final String userpassword = user + ":" + password;
-                final byte[] encodedAuthorization = encoder.encode(userpassword.getBytes(defaultCharset()));
-                connection.setRequestProperty("Authorization",
-                        "Basic " + new String(encodedAuthorization, defaultCharset()));
-            }
-
-            final String body = mapper.writeValueAsString(msg);
-            connection.setRequestProperty("Content-Length",
-                    Integer.toString(body.getBytes().length));
-            connection.setRequestProperty("Content-Language", "en-US");
-
-            connection.setUseCaches(false);
-            connection.setDoOutput(true);
-
-            connection.setRequestProperty(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
-            addAddtionalProperties(properties, connection);
-
-            //Send request
-            try (final DataOutputStream wr = new DataOutputStream(connection.getOutputStream())) {
-                wr.writeBytes(body);
-            }
+        return transport.post(out -> mapper.writeValue(out, msg), properties);
+    }
 
-            //Get Response
-            final InputStream is = connection.getInputStream();
-            final StringBuilder response;
-            try (final BufferedReader rd = new BufferedReader(new InputStreamReader(is, defaultCharset()))) {
-                response = new StringBuilder();
-                String line;
-                while ((line = rd.readLine()) != null) {
-                    response.append(line);
-                    response.append('\r');
-                }
-            }
-            final int responseCode = connection.getResponseCode();
-            final String toString = new StringBuilder("rc = ")
-                    .append(responseCode)
-                    .append(", logId=")
-                    .append('"')
-                    .append(response)
-                    .append('"')
-                    .toString();
-            return toString;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+    @Override
+    public void close() {
+        if (transport != null) {
+            transport.close();
         }
     }
 
@@ -0,0 +1,304 @@
+/* 
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The Software shall be used for Good, not Evil.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import static java.nio.charset.Charset.defaultCharset;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import org.slf4j.LoggerFactory;
+
+import com.im.njams.sdk.utils.ReusableByteArrayOutputStream;
+
+/**
+ * Transport of the HTTP based senders. Every sender owns one transport.
+ * <p>
+ * The body is encoded as UTF-8 into a buffer that is reused for every
+ * request, optionally gzip compressed. Large bodies are streamed with a fixed
+ * length instead of being copied by the connection. The
+ * response is always read completely and the connection is not disconnected,
+ * so the keep-alive cache of {@link HttpURLConnection} can reuse the
+ * connection for the next request to the same endpoint. The number of
+ * requests in flight to one endpoint is bounded across all open transports of
+ * the JVM, since they share the keep-alive cache; the JDK keeps up to
+ * <code>http.maxConnections</code> (default 5) idle connections per endpoint,
+ * so the bound should not exceed it. The bound is set by the first transport
+ * opened for the endpoint, and released when the last one is closed.
+ * <p>
+ * HTTPS connections use the socket factory of the {@link SharedSslContext}
+ * set on the transport, if there is one.
+ */
+public class HttpTransport {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(HttpTransport.class);
+
+    /**
+     * Default maximum number of requests in flight to one endpoint
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 5;
+
+    /**
+     * Content-Encoding for gzip compressed bodies
+     */
+    public static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1048576;
+    // smaller bodies are sent in one packet with the headers
+    private static final int STREAMING_THRESHOLD = 65536;
+
+    private static final Map<String, Limit> IN_FLIGHT = new HashMap<>();
+
+    /**
+     * The bound of one endpoint, shared by the transports using it.
+     */
+    private static class Limit {
+        private final Semaphore semaphore;
+        private final int maxConnections;
+        private int transports;
+
+        private Limit(int maxConnections) {
+            semaphore = new Semaphore(maxConnections);
+            this.maxConnections = maxConnections;
+        }
+    }
+
+    /**
+     * Writes the body of a request.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        /**
+         * Writes the body to the given stream.
+         *
+         * @param out the stream to write to
+         * @throws IOException if the body can not be written
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final URL url;
+    private final boolean gzip;
+    private final String key;
+    private final Limit inFlight;
+    private boolean closed;
+    private final Map<String, String> requestProperties = new LinkedHashMap<>();
+    private final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream(BUFFER_SIZE);
+    private SharedSslContext sslContext;
+
+    /**
+     * Creates a transport.
+     *
+     * @param url the endpoint to post to
+     * @param maxConnections the maximum number of requests in flight to the
+     * endpoint. The first transport opened for an endpoint sets it.
+     * @param gzip whether bodies are gzip compressed
+     */
+    public HttpTransport(URL url, int maxConnections, boolean gzip) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be greater than 0: " + maxConnections);
+        }
+        this.url = url;
+        this.gzip = gzip;
+        key = url.toExternalForm();
+        synchronized (IN_FLIGHT) {
+            inFlight = IN_FLIGHT.computeIfAbsent(key, k -> new Limit(maxConnections));
+            inFlight.transports++;
+        }
+        if (inFlight.maxConnections != maxConnections) {
+            LOG.warn("Using {} connections to {} as set by another sender instead of the configured {}",
+                    inFlight.maxConnections, url, maxConnections);
+        }
+    }
+
+    /**
+     * Releases the bound of the endpoint, if this is the last open transport
+     * for it.
+     */
+    public void close() {
+        synchronized (IN_FLIGHT) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (--inFlight.transports == 0) {
+                IN_FLIGHT.remove(key, inFlight);
+            }
+        }
+    }
+
+    /**
+     * @return the maximum number of requests in flight to the endpoint
+     */
+    int getMaxConnections() {
+        return inFlight.maxConnections;
+    }
+
+    /**
+     * Sets a request property that is sent with every request.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void setRequestProperty(String key, String value) {
+        requestProperties.put(key, value);
+    }
+
+    /**
+     * Sets the context whose socket factory is used for HTTPS connections.
+     *
+     * @param sslContext the shared context
+     */
+    public void setSslContext(SharedSslContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    /**
+     * @return the context whose socket factory is used for HTTPS
+     * connections, may be <b>null</b>
+     */
+    public SharedSslContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * Posts a body to the endpoint.
+     *
+     * @param body writes the UTF-8 encoded body
+     * @param properties additional request properties for this request
+     * @return the response code and the response
+     * @throws IOException if the request fails
+     */
+    public String post(BodyWriter body, Properties properties) throws IOException {
+        buffer.reset(MAX_RETAINED_BUFFER_SIZE);
+        OutputStream out = gzip ? new GZIPOutputStream(buffer, BUFFER_SIZE) : buffer;
+        body.write(out);
+        out.close();
+        try {
+            inFlight.semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            return post(properties);
+        } finally {
+            inFlight.semaphore.release();
+        }
+    }
+
+    private String post(Properties properties) throws IOException {
+        final HttpURLConnection connection = openConnection();
+        boolean completed = false;
+        try {
+            connection.setRequestMethod("POST");
+            connection.setUseCaches(false);
+            connection.setDoOutput(true);
+            requestProperties.forEach(connection::setRequestProperty);
+            properties.forEach((key, value) -> connection.setRequestProperty(key.toString(), value.toString()));
+            connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+            if (gzip) {
+                connection.setRequestProperty("Content-Encoding", GZIP);
+            }
+            if (buffer.size() > STREAMING_THRESHOLD) {
+                connection.setFixedLengthStreamingMode(buffer.size());
+            }
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(buffer.getBuffer(), 0, buffer.size());
+            }
+
+            final String response;
+            try {
+                response = readFully(connection.getInputStream());
+            } catch (IOException e) {
+                // read the error response, so that the connection can be reused
+                try {
+                    readFully(connection.getErrorStream());
+                    completed = true;
+                } catch (IOException ex) {
+                    LOG.debug("Unable to read error response", ex);
+                }
+                throw e;
+            }
+            completed = true;
+            return new StringBuilder("rc = ")
+                    .append(connection.getResponseCode())
+                    .append(", logId=")
+                    .append('"')
+                    .append(response)
+                    .append('"')
+                    .toString();
+        } finally {
+            if (!completed) {
+                LOG.debug("Closing connection to {}", url);
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Opens the connection for one request. The connection is backed by a
+     * pooled keep-alive connection, if one is available.
+     *
+     * @return the connection
+     * @throws IOException if the connection can not be opened
+     */
+    protected HttpURLConnection openConnection() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (sslContext != null && connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
+        }
+        return connection;
+    }
+
+    private static String readFully(InputStream is) throws IOException {
+        if (is == null) {
+            return "";
+        }
+        final StringBuilder response = new StringBuilder();
+        try (final BufferedReader rd = new BufferedReader(new InputStreamReader(is, defaultCharset()))) {
+            String line;
+            while ((line = rd.readLine()) != null) {
+                response.append(line);
+                response.append('\r');
+            }
+        }
+        return response.toString();
+    }
+
+    /**
+     * @return the URL of the endpoint
+     */
+    public URL getUrl() {
+        return url;
+    }
+}
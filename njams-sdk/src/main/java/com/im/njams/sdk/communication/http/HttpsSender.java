@@ -18,20 +18,17 @@ package com.im.njams.sdk.communication.http;
 
 import static java.nio.charset.Charset.defaultCharset;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.KeyStore;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
-import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -48,6 +45,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.im.njams.sdk.common.JsonSerializerFactory;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import com.im.njams.sdk.communication.AbstractSender;
+import com.im.njams.sdk.communication.BatchBody;
 import com.im.njams.sdk.communication.Sender;
 
 /**
@@ -78,10 +76,23 @@ public class HttpsSender extends AbstractSender {
      * http sender password
      */
     public static final String SENDER_PASSWORD = PROPERTY_PREFIX + ".sender.password";
+    /**
+     * http sender compression, <code>none</code> (default) or <code>gzip</code>
+     */
+    public static final String SENDER_COMPRESSION = PROPERTY_PREFIX + ".sender.compression";
+    /**
+     * http sender maximum number of requests in flight to the endpoint
+     */
+    public static final String SENDER_MAX_CONNECTIONS = PROPERTY_PREFIX + ".sender.maxconnections";
     private String user;
     private String password;
     private URL url;
+    private HttpTransport transport;
     private final ObjectMapper mapper = JsonSerializerFactory.getDefaultMapper();
+    private final SharedSslContext sslContext;
+
+    // set up once per keystore and truststore, and shared by the HttpsSenders using them, see SharedSslContext
+    private static final Map<String, SharedSslContext> SSL_CONTEXTS = new HashMap<>();
 
     /**
      * Create new HttpsSender
@@ -90,7 +101,7 @@ public class HttpsSender extends AbstractSender {
         super();
 
         try {
-            loadKeystore();
+            sslContext = getSharedSslContext();
         } catch (final Exception ex) {
             throw new NjamsSdkRuntimeException("Error setting up HttpsSender", ex);
         }
@@ -98,6 +109,7 @@ public class HttpsSender extends AbstractSender {
 
     @Override
     public void init(final Properties properties) {
+        this.properties = properties;
         try {
             url = new URL(properties.getProperty(SENDER_URL));
         } catch (final MalformedURLException ex) {
@@ -105,6 +117,23 @@ public class HttpsSender extends AbstractSender {
         }
         user = properties.getProperty(SENDER_USERNAME);
         password = properties.getProperty(SENDER_PASSWORD);
+        transport = new HttpTransport(url,
+                Integer.parseInt(properties.getProperty(SENDER_MAX_CONNECTIONS,
+                        String.valueOf(HttpTransport.DEFAULT_MAX_CONNECTIONS))),
+                HttpTransport.GZIP.equalsIgnoreCase(properties.getProperty(SENDER_COMPRESSION, "none").trim()));
+        transport.setSslContext(sslContext);
+        transport.setRequestProperty("Accept", "text/plain");
+        transport.setRequestProperty("Connection", "keep-alive");
+        transport.setRequestProperty("x-njams-type", "keep-alive");
+        transport.setRequestProperty("Content-Language", "en-US");
+        transport.setRequestProperty(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        if (user != null) {
+            final Base64.Encoder encoder = Base64.getEncoder();
+            final String userpassword = user + ":" + password;
+            final byte[] encodedAuthorization = encoder.encode(userpassword.getBytes(defaultCharset()));
+            transport.setRequestProperty("Authorization",
+                    "Basic " + new String(encodedAuthorization, defaultCharset()));
+        }
     }
 
     @Override
@@ -114,11 +143,7 @@ public class HttpsSender extends AbstractSender {
 
     @Override
     public void send(final LogMessage msg) {
-        final Properties properties = new Properties();
-        properties.put(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
-        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
-        properties.put(Sender.NJAMS_PATH, msg.getPath());
-        properties.put(Sender.NJAMS_LOGID, msg.getLogId());
+        final Properties properties = getProperties(msg);
         try {
             LOG.debug("Sending log message");
             final String response = send(msg, properties);
@@ -128,6 +153,61 @@ public class HttpsSender extends AbstractSender {
         }
     }
 
+    /**
+     * Send the given LogMessages as {@link BatchBody}, in as few requests as
+     * the byte limit allows. Sent messages are removed from the list, so that
+     * a retry after a failed request continues with the first message that
+     * has not been sent.
+     *
+     * @param msgs the LogMessages to send, sent messages are removed
+     * @throws NjamsSdkRuntimeException if a request fails
+     */
+    @Override
+    protected void sendLogMessages(final List<LogMessage> msgs) throws NjamsSdkRuntimeException {
+        final int maxBytes = getMaxBatchBytes();
+        BatchBody body = new BatchBody(maxBytes);
+        int batched = 0;
+        try {
+            while (batched < msgs.size()) {
+                final LogMessage msg = msgs.get(batched);
+                final Properties properties = getProperties(msg);
+                final String data = mapper.writeValueAsString(msg);
+                if (body.add(properties, data)) {
+                    batched++;
+                } else {
+                    send(body);
+                    msgs.subList(0, batched).clear();
+                    body = new BatchBody(maxBytes);
+                    body.add(properties, data);
+                    batched = 1;
+                }
+            }
+            if (batched > 0) {
+                send(body);
+                msgs.clear();
+            }
+        } catch (final IOException ex) {
+            throw new NjamsSdkRuntimeException("Error sending LogMessages", ex);
+        }
+    }
+
+    private Properties getProperties(final LogMessage msg) {
+        final Properties properties = new Properties();
+        properties.put(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
+        properties.put(Sender.NJAMS_PATH, msg.getPath());
+        properties.put(Sender.NJAMS_LOGID, msg.getLogId());
+        return properties;
+    }
+
+    private void send(final BatchBody body) throws IOException {
+        final Properties properties = new Properties();
+        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
+        properties.put(Sender.NJAMS_BATCHSIZE, String.valueOf(body.getCount()));
+        LOG.debug("Sending {} log messages", body.getCount());
+        LOG.debug("Response: " + transport.post(body::writeTo, properties));
+    }
+
     @Override
     public void send(final ProjectMessage msg) {
         final Properties properties = new Properties();
@@ -160,90 +240,64 @@ public class HttpsSender extends AbstractSender {
         }
     }
 
-    private void addAddtionalProperties(final Properties properties, final HttpsURLConnection connection) {
-        final Set<Map.Entry<Object, Object>> entrySet = properties.entrySet();
-        entrySet.forEach(
-                entry -> connection.setRequestProperty(entry.getKey().toString(), entry.getValue().toString()));
-    }
-
     private String send(final Object msg, final Properties properties) throws IOException {
-        HttpsURLConnection connection = null;
-
-        try {
-            //Create connection
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "text/plain");
-            connection.setRequestProperty("Connection", "keep-alive");
-            connection.setRequestProperty("x-njams-type", "keep-alive");
-
-            if (user != null) {
-                final Base64.Encoder encoder = Base64.getEncoder();
-                final String userpassword = user + ":" + password;
-                final byte[] encodedAuthorization = encoder.encode(userpassword.getBytes(defaultCharset()));
-                connection.setRequestProperty("Authorization",
-                        "Basic " + new String(encodedAuthorization, defaultCharset()));
-            }
-
-            final String body = mapper.writeValueAsString(msg);
-            connection.setRequestProperty("Content-Length",
-                    Integer.toString(body.getBytes().length));
-            connection.setRequestProperty("Content-Language", "en-US");
-
-            connection.setUseCaches(false);
-            connection.setDoOutput(true);
+        return transport.post(out -> mapper.writeValue(out, msg), properties);
+    }
 
-            connection.setRequestProperty(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
-            addAddtionalProperties(properties, connection);
+    @Override
+    public void close() {
+        if (transport != null) {
+            transport.close();
+        }
+    }
 
-            //Send request
-            try (final DataOutputStream wr = new DataOutputStream(connection.getOutputStream())) {
-                wr.writeBytes(body);
-            }
+    /**
+     * Returns the SSL context used by this sender. It is shared by all
+     * HttpsSenders that use the same keystore and truststore, its handshake
+     * metrics cover all of them.
+     *
+     * @return the shared SSL context
+     */
+    public SharedSslContext getSslContext() {
+        return sslContext;
+    }
 
-            //Get Response
-            final InputStream is = connection.getInputStream();
-            final StringBuilder response;
-            try (final BufferedReader rd = new BufferedReader(new InputStreamReader(is, defaultCharset()))) {
-                response = new StringBuilder();
-                String line;
-                while ((line = rd.readLine()) != null) {
-                    response.append(line);
-                    response.append('\r');
-                }
-            }
-            final int responseCode = connection.getResponseCode();
-            final String toString = new StringBuilder("rc = ")
-                    .append(responseCode)
-                    .append(", logId=")
-                    .append('"')
-                    .append(response)
-                    .append('"')
-                    .toString();
-            return toString;
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+    /**
+     * Returns the context for the keystore and truststore of the current
+     * context class loader, so that Njams instances of different applications
+     * do not use each other's keystores.
+     */
+    private static SharedSslContext getSharedSslContext() throws Exception {
+        if (System.getProperty("javax.net.ssl.trustStore") != null) {
+            LOG.debug("***      nJAMS: using provided keystore" + System.getProperty("javax.net.ssl.trustStore"));
+            return SharedSslContext.getSystemDefault();
+        }
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final URL keystore = classLoader.getResource("client.ks");
+        final URL truststore = classLoader.getResource("client.ts");
+        final String key = keystore + "|" + truststore;
+        synchronized (SSL_CONTEXTS) {
+            SharedSslContext shared = SSL_CONTEXTS.get(key);
+            if (shared == null) {
+                shared = loadKeystore(keystore, truststore);
+                SSL_CONTEXTS.put(key, shared);
             }
+            return shared;
         }
     }
 
-    private void loadKeystore() throws Exception {
-        if (System.getProperty("javax.net.ssl.trustStore") == null) {
-            InputStream truststoreInput;
-            try (InputStream keystoreInput =
-                    Thread.currentThread().getContextClassLoader().getResourceAsStream("client.ks")) {
-                truststoreInput = Thread.currentThread().getContextClassLoader().getResourceAsStream("client.ts");
-                setSSLFactories(keystoreInput, "password", truststoreInput);
-            }
-            truststoreInput.close();
-        } else {
-            LOG.debug("***      nJAMS: using provided keystore" + System.getProperty("javax.net.ssl.trustStore"));
+    private static SharedSslContext loadKeystore(final URL keystore, final URL truststore) throws Exception {
+        try (InputStream keystoreInput = openStream(keystore);
+                InputStream truststoreInput = openStream(truststore)) {
+            return new SharedSslContext(setSSLFactories(keystoreInput, "password", truststoreInput));
         }
     }
 
-    private static void setSSLFactories(final InputStream keyStream, final String keyStorePassword,
+    private static InputStream openStream(final URL url) throws IOException {
+        return url != null ? url.openStream() : null;
+    }
+
+    private static SSLContext setSSLFactories(final InputStream keyStream, final String keyStorePassword,
             final InputStream trustStream)
             throws Exception {
         // Get keyStore
@@ -282,5 +336,6 @@ public class HttpsSender extends AbstractSender {
         final SSLContext sslContext = SSLContext.getInstance("SSL");
         sslContext.init(keyManagers, trustManagers, null);
         SSLContext.setDefault(sslContext);
+        return sslContext;
     }
 }
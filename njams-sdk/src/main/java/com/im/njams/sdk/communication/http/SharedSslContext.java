@@ -0,0 +1,186 @@
+/* 
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The Software shall be used for Good, not Evil.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.slf4j.LoggerFactory;
+
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+
+/**
+ * An initialized {@link SSLContext} that is shared by the HTTPS based senders,
+ * instead of every sender setting up its own.
+ * <p>
+ * All connections opened with the socket factory of a shared context use the
+ * same client session cache, so a new connection to a known endpoint resumes
+ * the cached TLS session instead of doing a full handshake. The keep-alive
+ * cache of {@link javax.net.ssl.HttpsURLConnection} only hands out a pooled
+ * connection to a request with the same socket factory, so sharing the factory
+ * also lets every sender reuse the connections opened by the others.
+ * <p>
+ * Every completed handshake is recorded in the {@link HandshakeMetrics} of the
+ * context.
+ */
+public class SharedSslContext {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(SharedSslContext.class);
+
+    private static volatile SharedSslContext systemDefault;
+
+    private final SSLContext context;
+    private final SSLSocketFactory socketFactory;
+    private final HandshakeMetrics metrics = new HandshakeMetrics();
+
+    /**
+     * Creates a shared context.
+     *
+     * @param context the initialized context to share
+     */
+    public SharedSslContext(SSLContext context) {
+        this.context = context;
+        socketFactory = new MeasuringSocketFactory(context.getSocketFactory());
+    }
+
+    /**
+     * Returns the shared context that wraps the current default
+     * {@link SSLContext} of the JVM, as it is configured by the
+     * <code>javax.net.ssl</code> system properties. If the default has been
+     * replaced by {@link SSLContext#setDefault(SSLContext)}, a new shared
+     * context wraps the new default.
+     *
+     * @return the shared default context
+     */
+    public static SharedSslContext getSystemDefault() {
+        final SSLContext current;
+        try {
+            current = SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new NjamsSdkRuntimeException("Unable to get the default SSLContext", e);
+        }
+        SharedSslContext shared = systemDefault;
+        if (shared == null || shared.context != current) {
+            synchronized (SharedSslContext.class) {
+                if (systemDefault == null || systemDefault.context != current) {
+                    systemDefault = new SharedSslContext(current);
+                }
+                shared = systemDefault;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * @return the shared context
+     */
+    public SSLContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return the socket factory to set on every HTTPS connection
+     */
+    public SSLSocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    /**
+     * @return the handshakes of the connections opened with this context
+     */
+    public HandshakeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Measures the handshake of every socket it creates. It does not create
+     * unconnected sockets, so that HttpsURLConnection connects a plain socket
+     * first and layers the TLS socket over it, and the measured time does not
+     * include the TCP connect.
+     */
+    private class MeasuringSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        private MeasuringSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private Socket measure(Socket socket) {
+            if (socket instanceof SSLSocket) {
+                final long start = System.nanoTime();
+                final SSLSocket sslSocket = (SSLSocket) socket;
+                sslSocket.addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                    @Override
+                    public void handshakeCompleted(HandshakeCompletedEvent event) {
+                        // only the initial handshake of the socket is measured
+                        sslSocket.removeHandshakeCompletedListener(this);
+                        metrics.record(System.nanoTime() - start);
+                        LOG.debug("Completed {} handshake with {}", event.getSession().getProtocol(),
+                                event.getSession().getPeerHost());
+                    }
+                });
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return measure(delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return measure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+                throws IOException {
+            return measure(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return measure(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return measure(delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
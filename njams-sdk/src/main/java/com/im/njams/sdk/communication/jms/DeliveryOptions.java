@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.jms;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+
+import org.slf4j.LoggerFactory;
+
+import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.ProjectMessage;
+import com.faizsiegeln.njams.messageformat.v4.tracemessage.TraceMessage;
+import com.im.njams.sdk.logmessage.JobStatus;
+
+/**
+ * The delivery mode and priority of the messages of a JmsSender, as set by
+ * {@value com.im.njams.sdk.communication.jms.JmsConstants#DELIVERY_MODE} and
+ * {@value com.im.njams.sdk.communication.jms.JmsConstants#PRIORITY}. A
+ * setting for the job status of a LogMessage overrides the setting for its
+ * message type, which overrides the general setting. The settings are
+ * resolved once, when the sender is initialized.
+ */
+public class DeliveryOptions {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(DeliveryOptions.class);
+
+    /**
+     * Suffix of the settings for ProjectMessages
+     */
+    public static final String PROJECT = "project";
+
+    /**
+     * Suffix of the settings for TraceMessages
+     */
+    public static final String TRACE = "trace";
+
+    /**
+     * Suffix of the settings for LogMessages, followed by the job status in
+     * lower case for a single status
+     */
+    public static final String EVENT = "event";
+
+    private final Map<String, Integer> deliveryModes = new HashMap<>();
+    private final Map<String, Integer> priorities = new HashMap<>();
+
+    /**
+     * Resolves the delivery options from the given properties.
+     *
+     * @param properties the properties of the sender
+     */
+    public DeliveryOptions(Properties properties) {
+        int deliveryMode = parseDeliveryMode(properties.getProperty(JmsConstants.DELIVERY_MODE),
+                DeliveryMode.PERSISTENT);
+        int priority = parsePriority(properties.getProperty(JmsConstants.PRIORITY), Message.DEFAULT_PRIORITY);
+        for (String type : new String[]{PROJECT, TRACE, EVENT}) {
+            int typeDeliveryMode = parseDeliveryMode(
+                    properties.getProperty(JmsConstants.DELIVERY_MODE + "." + type), deliveryMode);
+            int typePriority = parsePriority(properties.getProperty(JmsConstants.PRIORITY + "." + type), priority);
+            deliveryModes.put(type, typeDeliveryMode);
+            priorities.put(type, typePriority);
+            if (EVENT.equals(type)) {
+                for (JobStatus status : JobStatus.values()) {
+                    String key = getKey(status);
+                    deliveryModes.put(key, parseDeliveryMode(
+                            properties.getProperty(JmsConstants.DELIVERY_MODE + "." + key), typeDeliveryMode));
+                    priorities.put(key, parsePriority(
+                            properties.getProperty(JmsConstants.PRIORITY + "." + key), typePriority));
+                }
+            }
+        }
+    }
+
+    private static String getKey(JobStatus status) {
+        return EVENT + "." + status.name().toLowerCase();
+    }
+
+    private static int parseDeliveryMode(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        switch (value.trim().toLowerCase()) {
+            case "persistent":
+                return DeliveryMode.PERSISTENT;
+            case "non_persistent":
+                return DeliveryMode.NON_PERSISTENT;
+            default:
+                LOG.warn("Unknown delivery mode {}, using {}", value, defaultValue);
+                return defaultValue;
+        }
+    }
+
+    private static int parsePriority(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int priority = Integer.parseInt(value.trim());
+            if (priority >= 0 && priority <= 9) {
+                return priority;
+            }
+        } catch (NumberFormatException e) {
+            // logged below
+        }
+        LOG.warn("Invalid priority {}, using {}", value, defaultValue);
+        return defaultValue;
+    }
+
+    private static String getKey(CommonMessage msg) {
+        if (msg instanceof ProjectMessage) {
+            return PROJECT;
+        }
+        if (msg instanceof TraceMessage) {
+            return TRACE;
+        }
+        if (msg instanceof LogMessage) {
+            Integer status = ((LogMessage) msg).getStatus();
+            for (JobStatus jobStatus : JobStatus.values()) {
+                if (status != null && jobStatus.getValue() == status) {
+                    return getKey(jobStatus);
+                }
+            }
+        }
+        return EVENT;
+    }
+
+    /**
+     * @param msg the message to send
+     * @return the JMS delivery mode of the given message
+     */
+    public int getDeliveryMode(CommonMessage msg) {
+        return deliveryModes.get(getKey(msg));
+    }
+
+    /**
+     * @param msg the message to send
+     * @return the JMS priority of the given message
+     */
+    public int getPriority(CommonMessage msg) {
+        return priorities.get(getKey(msg));
+    }
+}
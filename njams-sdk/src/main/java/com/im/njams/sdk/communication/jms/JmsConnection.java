@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.jms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import javax.naming.InitialContext;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+
+import org.slf4j.LoggerFactory;
+
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+import com.im.njams.sdk.settings.PropertyUtil;
+
+/**
+ * One JMS Connection that is shared by all JmsSenders with the same JMS
+ * properties, instead of one connection per pooled sender. Every sender
+ * creates its own Session and MessageProducer on it, since those must not be
+ * used by several threads.
+ * <p>
+ * The ConnectionFactory and the destinations are looked up in JNDI once and
+ * cached, also across reconnects. The connection is opened by the first
+ * sender and closed when the last sender is closed. If it fails, it is closed
+ * once and every sender that uses it is notified through its
+ * ExceptionListener; the senders then reconnect through
+ * {@link #open(ExceptionListener)}, which connects at most once per
+ * {@link #RETRY_INTERVAL} for all of them.
+ * <p>
+ * A connection is only shared while it has senders: it is released when its
+ * last sender is closed, and registered again when a sender that still holds
+ * it reconnects.
+ */
+public class JmsConnection implements ExceptionListener {
+
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(JmsConnection.class);
+
+    /**
+     * Minimum time in milliseconds between two attempts to connect
+     */
+    public static final long RETRY_INTERVAL = 1000;
+
+    private static final Map<String, JmsConnection> CONNECTIONS = new HashMap<>();
+
+    private final String key;
+    private final Properties properties;
+    private final Map<String, Destination> destinations = new ConcurrentHashMap<>();
+    private final List<ExceptionListener> listeners = new ArrayList<>();
+    private ConnectionFactory factory;
+    private Connection connection;
+    private long lastFailure;
+    private NjamsSdkRuntimeException failure;
+    private int connectCount;
+
+    /**
+     * Creates an unshared connection, use {@link #getInstance(Properties)}
+     * to get the shared one.
+     *
+     * @param properties the properties of the sender
+     */
+    JmsConnection(Properties properties) {
+        this(getKey(properties), properties);
+    }
+
+    private JmsConnection(String key, Properties properties) {
+        this.key = key;
+        this.properties = properties;
+    }
+
+    private static String getKey(Properties properties) {
+        return new TreeMap<>(PropertyUtil.filterAndCut(properties, JmsConstants.PROPERTY_PREFIX)).toString();
+    }
+
+    /**
+     * Returns the connection shared by all senders with the same JMS
+     * properties.
+     *
+     * @param properties the properties of the sender
+     * @return the shared connection, not opened yet
+     */
+    public static JmsConnection getInstance(Properties properties) {
+        String key = getKey(properties);
+        synchronized (CONNECTIONS) {
+            return CONNECTIONS.computeIfAbsent(key, k -> new JmsConnection(k, properties));
+        }
+    }
+
+    /**
+     * Opens the connection if it is not open, and registers the given
+     * listener, which is notified once if the connection fails.
+     *
+     * @param listener the sender that uses the connection
+     * @return the open connection
+     * @throws NjamsSdkRuntimeException if the connection can not be opened,
+     * or the last attempt failed less than {@link #RETRY_INTERVAL} ago
+     */
+    public synchronized Connection open(ExceptionListener listener) throws NjamsSdkRuntimeException {
+        if (connection == null) {
+            if (failure != null && System.currentTimeMillis() - lastFailure < RETRY_INTERVAL) {
+                throw new NjamsSdkRuntimeException("Unable to connect", failure.getCause());
+            }
+            try {
+                connect();
+                failure = null;
+            } catch (NjamsSdkRuntimeException e) {
+                failure = e;
+                lastFailure = System.currentTimeMillis();
+                throw e;
+            }
+        }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+        // shared again, if it has been released by its last sender in the meantime
+        synchronized (CONNECTIONS) {
+            CONNECTIONS.putIfAbsent(key, this);
+        }
+        return connection;
+    }
+
+    private void connect() throws NjamsSdkRuntimeException {
+        InitialContext context = null;
+        try {
+            if (factory == null) {
+                context = createContext();
+                factory = (ConnectionFactory) context.lookup(properties.getProperty(JmsConstants.CONNECTION_FACTORY));
+            }
+            Connection newConnection;
+            if (properties.containsKey(JmsConstants.USERNAME) && properties.containsKey(JmsConstants.PASSWORD)) {
+                newConnection = factory.createConnection(properties.getProperty(JmsConstants.USERNAME),
+                        properties.getProperty(JmsConstants.PASSWORD));
+            } else {
+                newConnection = factory.createConnection();
+            }
+            newConnection.setExceptionListener(this);
+            connection = newConnection;
+            connectCount++;
+            LOG.debug("Opened shared JMS connection");
+        } catch (Exception e) {
+            throw new NjamsSdkRuntimeException("Unable to connect", e);
+        } finally {
+            closeContext(context);
+        }
+    }
+
+    private InitialContext createContext() throws NamingException {
+        return new InitialContext(PropertyUtil.filterAndCut(properties, JmsConstants.PROPERTY_PREFIX + "."));
+    }
+
+    private static void closeContext(InitialContext context) {
+        if (context != null) {
+            try {
+                context.close();
+            } catch (NamingException e) {
+                LOG.debug(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the destination with the given name. It is looked up in JNDI
+     * once; if it is not bound there, a queue with this name is created.
+     *
+     * @param name the name of the destination
+     * @param session a session of this connection, used to create the queue
+     * @return the destination
+     * @throws NjamsSdkRuntimeException if JNDI or the session fails
+     */
+    public Destination getDestination(String name, Session session) throws NjamsSdkRuntimeException {
+        Destination destination = destinations.get(name);
+        if (destination != null) {
+            return destination;
+        }
+        InitialContext context = null;
+        try {
+            context = createContext();
+            try {
+                destination = (Destination) context.lookup(name);
+            } catch (NameNotFoundException e) {
+                destination = session.createQueue(name);
+            }
+        } catch (NamingException | JMSException e) {
+            throw new NjamsSdkRuntimeException("Unable to get destination " + name, e);
+        } finally {
+            closeContext(context);
+        }
+        destinations.put(name, destination);
+        return destination;
+    }
+
+    /**
+     * Unregisters the given listener. The connection is closed and released
+     * when no listener is left.
+     *
+     * @param listener the sender that does not use the connection anymore
+     */
+    public synchronized void close(ExceptionListener listener) {
+        listeners.remove(listener);
+        if (!listeners.isEmpty()) {
+            return;
+        }
+        if (connection != null) {
+            closeConnection();
+            LOG.debug("Closed shared JMS connection");
+        }
+        synchronized (CONNECTIONS) {
+            CONNECTIONS.remove(key, this);
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            connection.close();
+        } catch (JMSException ex) {
+            LOG.warn("Unable to close connection", ex);
+        } finally {
+            connection = null;
+        }
+    }
+
+    /**
+     * Closes the failed connection and notifies every sender that uses it.
+     *
+     * @param exception the exception of the connection
+     */
+    @Override
+    public void onException(JMSException exception) {
+        List<ExceptionListener> lost;
+        synchronized (this) {
+            if (connection == null) {
+                return;
+            }
+            LOG.info("Shared JMS connection failed: {}", exception.toString());
+            closeConnection();
+            lost = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        // outside of the lock, the senders reconnect through open
+        lost.forEach(listener -> listener.onException(exception));
+    }
+
+    /**
+     * @return whether the connection is open
+     */
+    public synchronized boolean isOpen() {
+        return connection != null;
+    }
+
+    /**
+     * @return the number of senders that use the connection
+     */
+    public synchronized int getListenerCount() {
+        return listeners.size();
+    }
+
+    /**
+     * @return how often a connection has been opened, including reconnects
+     */
+    public synchronized int getConnectCount() {
+        return connectCount;
+    }
+}
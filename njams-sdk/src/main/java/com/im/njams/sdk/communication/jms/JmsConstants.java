@@ -62,6 +62,56 @@ public class JmsConstants {
      * destination.
      */
     public static final String COMMANDS_DESTINATION = PROPERTY_PREFIX + ".destination.commands";
+    /**
+     * Property key for the communication properties. Specifies the format of
+     * the sent messages, <code>text</code> (default) for TextMessages or
+     * <code>bytes</code> for BytesMessages with an UTF-8 encoded body.
+     */
+    public static final String MESSAGE_FORMAT = PROPERTY_PREFIX + ".messageformat";
+    /**
+     * Property key for the communication properties. Specifies the compression
+     * of the body of BytesMessages, <code>none</code> (default),
+     * <code>gzip</code> or <code>deflate</code>. A compression implies the
+     * <code>bytes</code> message format.
+     */
+    public static final String COMPRESSION = PROPERTY_PREFIX + ".compression";
+    /**
+     * Property key for the communication properties. Specifies how messages
+     * are sent, <code>sync</code> (default) waits for the broker to
+     * acknowledge every message, <code>async</code> uses the JMS 2.0
+     * asynchronous send, failed messages are sent again after the reconnect
+     * unless the discard policy is <code>onConnectionLoss</code>, and
+     * <code>transacted</code> commits a transaction
+     * after {@value #TRANSACTION_SIZE} messages or
+     * {@value #TRANSACTION_INTERVAL} milliseconds.
+     */
+    public static final String SEND_MODE = PROPERTY_PREFIX + ".sendmode";
+    /**
+     * Property key for the communication properties. Specifies the maximum
+     * number of messages in one transaction of the <code>transacted</code>
+     * send mode, default is 100.
+     */
+    public static final String TRANSACTION_SIZE = PROPERTY_PREFIX + ".transactionsize";
+    /**
+     * Property key for the communication properties. Specifies the time in
+     * milliseconds after which the <code>transacted</code> send mode commits
+     * the messages sent so far, default is 1000.
+     */
+    public static final String TRANSACTION_INTERVAL = PROPERTY_PREFIX + ".transactioninterval";
+    /**
+     * Property key for the communication properties. Specifies the delivery
+     * mode, <code>persistent</code> (default) or <code>non_persistent</code>.
+     * It can be set per message type by appending <code>.project</code>,
+     * <code>.trace</code> or <code>.event</code>, and for LogMessages per job
+     * status by appending e.g. <code>.event.success</code>.
+     */
+    public static final String DELIVERY_MODE = PROPERTY_PREFIX + ".deliverymode";
+    /**
+     * Property key for the communication properties. Specifies the priority
+     * from 0 to 9, default is 4. It can be set per message type like
+     * {@value #DELIVERY_MODE}.
+     */
+    public static final String PRIORITY = PROPERTY_PREFIX + ".priority";
 
     /**
      * Property key for the communication properties. Specifies the jndi initial
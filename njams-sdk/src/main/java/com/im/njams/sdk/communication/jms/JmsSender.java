@@ -16,21 +16,35 @@
  */
 package com.im.njams.sdk.communication.jms;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
+import javax.jms.BytesMessage;
+import javax.jms.CompletionListener;
 import javax.jms.Connection;
-import javax.jms.ConnectionFactory;
-import javax.jms.Destination;
 import javax.jms.ExceptionListener;
 import javax.jms.JMSContext;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Session;
-import javax.jms.TextMessage;
-import javax.naming.InitialContext;
-import javax.naming.NameNotFoundException;
-import javax.naming.NamingException;
 
 import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
 import com.faizsiegeln.njams.messageformat.v4.tracemessage.TraceMessage;
@@ -45,10 +59,24 @@ import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import com.im.njams.sdk.communication.AbstractSender;
 import com.im.njams.sdk.communication.ConnectionStatus;
 import com.im.njams.sdk.communication.Sender;
-import com.im.njams.sdk.settings.PropertyUtil;
+import com.im.njams.sdk.factories.ThreadFactoryBuilder;
+import com.im.njams.sdk.utils.ReusableByteArrayOutputStream;
 
 /**
  * JMS implementation for a Sender.
+ * <p>
+ * All JmsSenders with the same properties share one {@link JmsConnection};
+ * every sender creates its own Session and MessageProducer on it.
+ * <p>
+ * The {@value com.im.njams.sdk.communication.jms.JmsConstants#SEND_MODE}
+ * trades durability for throughput: <code>sync</code> waits for the broker
+ * to acknowledge every message, <code>async</code> does not wait and reports
+ * a failed message with the next send, which reconnects the sender and sends
+ * the failed messages, and those not completed when the connection was lost,
+ * again, unless the discard policy is
+ * <code>onConnectionLoss</code>, and <code>transacted</code> waits for
+ * one commit per transaction; messages of a transaction that is not committed
+ * when the connection fails are lost.
  *
  * @author hsiegeln
  * @version 4.0.6
@@ -57,12 +85,80 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
 
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(JmsSender.class);
 
+    private JmsConnection jmsConnection;
     private Connection connection;
     private Session session;
     private MessageProducer producer;
+    private Session batchSession;
+    private MessageProducer batchProducer;
     private final ObjectMapper mapper = JsonSerializerFactory.getDefaultMapper();
     private Thread reconnector;
 
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1048576;
+
+    private static final String SYNC = "sync";
+    private static final String ASYNC = "async";
+    private static final String TRANSACTED = "transacted";
+
+    /**
+     * Default maximum number of messages in one transaction
+     */
+    public static final int DEFAULT_TRANSACTION_SIZE = 100;
+
+    /**
+     * Default time in milliseconds after which a transaction is committed
+     */
+    public static final long DEFAULT_TRANSACTION_INTERVAL = 1000;
+
+    // commits the transactions of idle senders
+    private static final ScheduledExecutorService COMMIT_TIMER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNamePrefix("JMS-Sender-Commit-Thread").setDaemon(true).build());
+
+    private boolean bytesFormat;
+    private String compression;
+    private ReusableByteArrayOutputStream buffer;
+    private Deflater deflater;
+    private int payloadSize;
+
+    private String sendMode;
+    private DeliveryOptions deliveryOptions;
+    private int transactionSize;
+    private long transactionInterval;
+    // guards the session in the transacted send mode, which is also committed by the COMMIT_TIMER
+    private final Object transactionLock = new Object();
+    private int uncommitted;
+    private long firstUncommitted;
+    private ScheduledFuture<?> commitTask;
+    private final AtomicReference<Exception> asyncFailure = new AtomicReference<>();
+    // the messages of the asynchronous sends the broker has not completed yet
+    private final Map<Message, CommonMessage> asyncPending = Collections.synchronizedMap(new IdentityHashMap<>());
+    // the messages of failed asynchronous sends, they are sent again after the reconnect
+    private final Deque<CommonMessage> asyncFailed = new ConcurrentLinkedDeque<>();
+    private final CompletionListener completionListener = new CompletionListener() {
+        @Override
+        public void onCompletion(Message message) {
+            // the broker has the message
+            asyncPending.remove(message);
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            LOG.error("Asynchronous send of {} failed", getPath(message), exception);
+            CommonMessage failed = asyncPending.remove(message);
+            if (failed != null) {
+                if ("onconnectionloss".equalsIgnoreCase(discardPolicy)) {
+                    LOG.debug("Applying discard policy [{}]. Message discarded.", discardPolicy);
+                } else {
+                    asyncFailed.add(failed);
+                }
+            }
+            asyncFailure.compareAndSet(null, exception);
+        }
+    };
+
     /**
      * Initializes this Sender via the given Properties.
      * <p>
@@ -72,6 +168,13 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
      * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#USERNAME}
      * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#PASSWORD}
      * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#DESTINATION}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#MESSAGE_FORMAT}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#COMPRESSION}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#SEND_MODE}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#TRANSACTION_SIZE}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#TRANSACTION_INTERVAL}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#DELIVERY_MODE}
+     * <li>{@value com.im.njams.sdk.communication.jms.JmsConstants#PRIORITY}
      * </ul>
      *
      * @param properties the properties needed to initialize
@@ -79,6 +182,32 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
     @Override
     public void init(Properties properties) {
         super.init(properties);
+        compression = properties.getProperty(JmsConstants.COMPRESSION, "none").trim().toLowerCase();
+        if (!GZIP.equals(compression) && !DEFLATE.equals(compression)) {
+            if (!"none".equals(compression)) {
+                LOG.warn("Unknown compression {}, messages will not be compressed", compression);
+            }
+            compression = null;
+        }
+        bytesFormat = compression != null
+                || "bytes".equalsIgnoreCase(properties.getProperty(JmsConstants.MESSAGE_FORMAT, "text").trim());
+        if (bytesFormat) {
+            buffer = new ReusableByteArrayOutputStream(BUFFER_SIZE);
+        }
+        if (DEFLATE.equals(compression)) {
+            deflater = new Deflater();
+        }
+        sendMode = properties.getProperty(JmsConstants.SEND_MODE, SYNC).trim().toLowerCase();
+        if (!SYNC.equals(sendMode) && !ASYNC.equals(sendMode) && !TRANSACTED.equals(sendMode)) {
+            LOG.warn("Unknown send mode {}, messages will be sent synchronously", sendMode);
+            sendMode = SYNC;
+        }
+        transactionSize = Integer.parseInt(properties.getProperty(JmsConstants.TRANSACTION_SIZE,
+                String.valueOf(DEFAULT_TRANSACTION_SIZE)));
+        transactionInterval = Long.parseLong(properties.getProperty(JmsConstants.TRANSACTION_INTERVAL,
+                String.valueOf(DEFAULT_TRANSACTION_INTERVAL)));
+        deliveryOptions = new DeliveryOptions(properties);
+        jmsConnection = JmsConnection.getInstance(properties);
         try {
             connect();
             LOG.debug("Initialized sender {}", JmsConstants.COMMUNICATION_NAME);
@@ -92,29 +221,21 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
         if (isConnected()) {
             return;
         }
-        InitialContext context = null;
         try {
             connectionStatus = ConnectionStatus.CONNECTING;
-            context
-                    = new InitialContext(PropertyUtil.filterAndCut(properties, JmsConstants.PROPERTY_PREFIX + "."));
-            ConnectionFactory factory
-                    = (ConnectionFactory) context.lookup(properties.getProperty(JmsConstants.CONNECTION_FACTORY));
-            if (properties.containsKey(JmsConstants.USERNAME) && properties.containsKey(JmsConstants.PASSWORD)) {
-                connection = factory.createConnection(properties.getProperty(JmsConstants.USERNAME),
-                        properties.getProperty(JmsConstants.PASSWORD));
+            connection = jmsConnection.open(this);
+            if (TRANSACTED.equals(sendMode)) {
+                session = connection.createSession(true, Session.SESSION_TRANSACTED);
             } else {
-                connection = factory.createConnection();
+                session = connection.createSession(false, JMSContext.CLIENT_ACKNOWLEDGE);
             }
-            session = connection.createSession(false, JMSContext.CLIENT_ACKNOWLEDGE);
-            Destination destination = null;
-            String destinationName = properties.getProperty(JmsConstants.DESTINATION) + ".event";
-            try {
-                destination = (Destination) context.lookup(destinationName);
-            } catch (NameNotFoundException e) {
-                destination = session.createQueue(destinationName);
+            producer = session.createProducer(jmsConnection.getDestination(
+                    properties.getProperty(JmsConstants.DESTINATION) + ".event", session));
+            if (TRANSACTED.equals(sendMode) && transactionInterval > 0) {
+                long period = Math.max(transactionInterval / 2, 10);
+                commitTask = COMMIT_TIMER.scheduleWithFixedDelay(this::commitIfDue, period, period,
+                        TimeUnit.MILLISECONDS);
             }
-            producer = session.createProducer(destination);
-            connection.setExceptionListener(this);
             connectionStatus = ConnectionStatus.CONNECTED;
         } catch (Exception e) {
             connectionStatus = ConnectionStatus.DISCONNECTED;
@@ -127,26 +248,10 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
                     session = null;
                 }
             }
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (JMSException ex) {
-                    LOG.debug(ex.getMessage());
-                } finally {
-                    connection = null;
-                }
-            }
+            connection = null;
+            jmsConnection.close(this);
             throw new NjamsSdkRuntimeException("Unable to connect", e);
-        } finally {
-            if (context != null) {
-                try {
-                    context.close();
-                    context = null;
-                } catch (NamingException e) {
-                }
-            }
         }
-
     }
 
     /**
@@ -157,9 +262,8 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
     @Override
     protected void send(LogMessage msg) throws NjamsSdkRuntimeException {
         try {
-            String data = mapper.writeValueAsString(msg);
-            sendMessage(msg, Sender.NJAMS_MESSAGETYPE_EVENT, data);
-            LOG.debug("Send LogMessage {} to {}:\n{}", msg.getPath(), producer.getDestination(), data);
+            sendMessage(msg, Sender.NJAMS_MESSAGETYPE_EVENT);
+            LOG.debug("Send LogMessage {} to {}", msg.getPath(), producer.getDestination());
         } catch (Exception e) {
             throw new NjamsSdkRuntimeException("Unable to send LogMessage", e);
         }
@@ -173,9 +277,8 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
     @Override
     protected void send(ProjectMessage msg) throws NjamsSdkRuntimeException {
         try {
-            String data = mapper.writeValueAsString(msg);
-            sendMessage(msg, Sender.NJAMS_MESSAGETYPE_PROJECT, data);
-            LOG.debug("Send ProjectMessage {} to {}:\n{}", msg.getPath(), producer.getDestination(), data);
+            sendMessage(msg, Sender.NJAMS_MESSAGETYPE_PROJECT);
+            LOG.debug("Send ProjectMessage {} to {}", msg.getPath(), producer.getDestination());
         } catch (Exception e) {
             throw new NjamsSdkRuntimeException("Unable to send ProjectMessage", e);
         }
@@ -189,58 +292,346 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
     @Override
     protected void send(TraceMessage msg) throws NjamsSdkRuntimeException {
         try {
-            String data = mapper.writeValueAsString(msg);
-            sendMessage(msg, Sender.NJAMS_MESSAGETYPE_TRACE, data);
-            LOG.debug("Send TraceMessage {} to {}:\n{}", msg.getPath(), producer.getDestination(), data);
+            sendMessage(msg, Sender.NJAMS_MESSAGETYPE_TRACE);
+            LOG.debug("Send TraceMessage {} to {}", msg.getPath(), producer.getDestination());
         } catch (Exception e) {
             throw new NjamsSdkRuntimeException("Unable to send TraceMessage", e);
         }
     }
 
-    private void sendMessage(CommonMessage msg, String messageType, String data) throws JMSException {
-        TextMessage textMessage = session.createTextMessage(data);
+    /**
+     * Send the given LogMessages in a transacted session. Every message keeps
+     * its own properties, but the broker acknowledges the commit of the batch
+     * instead of every single message. If the next message would exceed the
+     * byte limit, the messages sent so far are committed first and removed
+     * from the list, so that a retry does not deliver them again.
+     *
+     * @param msgs the LogMessages to send, committed messages are removed
+     */
+    @Override
+    protected void sendLogMessages(List<LogMessage> msgs) throws NjamsSdkRuntimeException {
+        if (!SYNC.equals(sendMode)) {
+            // the messages are committed with the transaction, or not waited for
+            super.sendLogMessages(msgs);
+            return;
+        }
+        try {
+            if (batchSession == null) {
+                batchSession = connection.createSession(true, Session.SESSION_TRANSACTED);
+                batchProducer = batchSession.createProducer(producer.getDestination());
+            }
+            int maxBytes = getMaxBatchBytes();
+            int count = msgs.size();
+            int pending = 0;
+            int pendingBytes = 0;
+            while (pending < msgs.size()) {
+                LogMessage msg = msgs.get(pending);
+                Message message = createMessage(batchSession, msg, Sender.NJAMS_MESSAGETYPE_EVENT);
+                if (pending > 0 && pendingBytes + payloadSize > maxBytes) {
+                    batchSession.commit();
+                    msgs.subList(0, pending).clear();
+                    pending = 0;
+                    pendingBytes = 0;
+                }
+                batchProducer.send(message, deliveryOptions.getDeliveryMode(msg), deliveryOptions.getPriority(msg),
+                        Message.DEFAULT_TIME_TO_LIVE);
+                pending++;
+                pendingBytes += payloadSize;
+            }
+            if (pending > 0) {
+                batchSession.commit();
+                msgs.clear();
+            }
+            LOG.debug("Send {} LogMessages to {}", count, batchProducer.getDestination());
+        } catch (Exception e) {
+            if (batchSession != null) {
+                try {
+                    batchSession.rollback();
+                } catch (JMSException ex) {
+                    LOG.debug(ex.getMessage());
+                }
+            }
+            throw new NjamsSdkRuntimeException("Unable to send LogMessages", e);
+        }
+    }
+
+    private void sendMessage(CommonMessage msg, String messageType) throws IOException, JMSException {
+        int deliveryMode = deliveryOptions.getDeliveryMode(msg);
+        int priority = deliveryOptions.getPriority(msg);
+        if (ASYNC.equals(sendMode)) {
+            Exception failure = asyncFailure.getAndSet(null);
+            if (failure != null) {
+                JMSException exception = new JMSException("Asynchronous send failed: " + failure.getMessage());
+                exception.setLinkedException(failure);
+                throw exception;
+            }
+            CommonMessage failed;
+            while ((failed = asyncFailed.poll()) != null) {
+                try {
+                    sendAsync(failed, getMessageType(failed));
+                } catch (IOException | JMSException | RuntimeException e) {
+                    asyncFailed.addFirst(failed);
+                    throw e;
+                }
+            }
+            sendAsync(msg, messageType);
+        } else if (TRANSACTED.equals(sendMode)) {
+            synchronized (transactionLock) {
+                producer.send(createMessage(session, msg, messageType), deliveryMode, priority,
+                        Message.DEFAULT_TIME_TO_LIVE);
+                if (uncommitted++ == 0) {
+                    firstUncommitted = System.currentTimeMillis();
+                }
+                if (uncommitted >= transactionSize
+                        || System.currentTimeMillis() - firstUncommitted >= transactionInterval) {
+                    commit();
+                }
+            }
+        } else {
+            producer.send(createMessage(session, msg, messageType), deliveryMode, priority,
+                    Message.DEFAULT_TIME_TO_LIVE);
+        }
+    }
+
+    private void sendAsync(CommonMessage msg, String messageType) throws IOException, JMSException {
+        Message message = createMessage(session, msg, messageType);
+        // registered first, the completion may be reported before send returns
+        asyncPending.put(message, msg);
+        try {
+            producer.send(message, deliveryOptions.getDeliveryMode(msg), deliveryOptions.getPriority(msg),
+                    Message.DEFAULT_TIME_TO_LIVE, completionListener);
+        } catch (JMSException | RuntimeException e) {
+            asyncPending.remove(message);
+            throw e;
+        }
+    }
+
+    private static String getMessageType(CommonMessage msg) {
+        if (msg instanceof ProjectMessage) {
+            return Sender.NJAMS_MESSAGETYPE_PROJECT;
+        }
+        if (msg instanceof TraceMessage) {
+            return Sender.NJAMS_MESSAGETYPE_TRACE;
+        }
+        return Sender.NJAMS_MESSAGETYPE_EVENT;
+    }
+
+    private void commit() throws JMSException {
+        session.commit();
+        LOG.debug("Committed {} messages", uncommitted);
+        uncommitted = 0;
+    }
+
+    /**
+     * Commits the messages of an idle sender when the transaction interval
+     * has elapsed, the messages of busy senders are committed when they send.
+     * Nothing is committed once the sender is closed.
+     */
+    private void commitIfDue() {
+        synchronized (transactionLock) {
+            if (!isConnected() || session == null || uncommitted == 0
+                    || System.currentTimeMillis() - firstUncommitted < transactionInterval) {
+                return;
+            }
+            try {
+                commit();
+            } catch (JMSException e) {
+                // the next send fails too and reconnects the sender
+                LOG.warn("Unable to commit {} messages", uncommitted, e);
+            }
+        }
+    }
+
+    private static String getPath(Message message) {
+        try {
+            return message.getStringProperty(Sender.NJAMS_PATH);
+        } catch (JMSException e) {
+            return "message";
+        }
+    }
+
+    /**
+     * Creates the JMS message for the given message. In the bytes format, the
+     * message is serialized into a buffer that is reused for every message,
+     * instead of materializing it as String first.
+     *
+     * @param session the session that creates the message
+     * @param msg the message to send
+     * @param messageType the type of the message
+     * @return a TextMessage, or a BytesMessage in the bytes format
+     * @throws IOException if the message can not be serialized
+     * @throws JMSException if the JMS message can not be created
+     */
+    Message createMessage(Session session, CommonMessage msg, String messageType)
+            throws IOException, JMSException {
+        Message message;
+        if (bytesFormat) {
+            BytesMessage bytesMessage = session.createBytesMessage();
+            buffer.reset(MAX_RETAINED_BUFFER_SIZE);
+            writePayload(msg);
+            bytesMessage.writeBytes(buffer.getBuffer(), 0, buffer.size());
+            payloadSize = buffer.size();
+            if (compression != null) {
+                bytesMessage.setStringProperty(Sender.NJAMS_COMPRESSION, compression);
+            }
+            LOG.trace("Payload of {}: {} bytes", msg.getPath(), payloadSize);
+            message = bytesMessage;
+        } else {
+            String data = mapper.writeValueAsString(msg);
+            payloadSize = utf8Length(data);
+            LOG.trace("Payload of {}:\n{}", msg.getPath(), data);
+            message = session.createTextMessage(data);
+        }
         if (msg instanceof LogMessage) {
-            textMessage.setStringProperty(Sender.NJAMS_LOGID, ((LogMessage) msg).getLogId());
+            message.setStringProperty(Sender.NJAMS_LOGID, ((LogMessage) msg).getLogId());
         }
-        textMessage.setStringProperty(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
-        textMessage.setStringProperty(Sender.NJAMS_MESSAGETYPE, messageType);
-        textMessage.setStringProperty(Sender.NJAMS_PATH, msg.getPath());
-        producer.send(textMessage);
+        message.setStringProperty(Sender.NJAMS_MESSAGEVERSION, MessageVersion.V4.toString());
+        message.setStringProperty(Sender.NJAMS_MESSAGETYPE, messageType);
+        message.setStringProperty(Sender.NJAMS_PATH, msg.getPath());
+        return message;
     }
 
+    /**
+     * @return the number of bytes of the payload of the last created message
+     */
+    int getPayloadSize() {
+        return payloadSize;
+    }
 
     /**
-     * Close this Sender.
+     * Counts the bytes of the UTF-8 encoding of the given text, without
+     * encoding it.
+     */
+    private static int utf8Length(String text) {
+        int length = text.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // four bytes for the two chars of the pair
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private void writePayload(CommonMessage msg) throws IOException {
+        OutputStream out = buffer;
+        if (GZIP.equals(compression)) {
+            out = new GZIPOutputStream(buffer, BUFFER_SIZE);
+        } else if (DEFLATE.equals(compression)) {
+            deflater.reset();
+            out = new DeflaterOutputStream(buffer, deflater, BUFFER_SIZE);
+        }
+        mapper.writeValue(out, msg);
+        // finishes the compression, the buffer itself is not affected
+        out.close();
+    }
+
+
+    /**
+     * Close this Sender. The messages of failed or not completed asynchronous
+     * sends are lost, they are logged.
      */
     @Override
     public synchronized void close() {
+        disconnect();
+        // nothing sends them again once the sender is closed
+        int lost = asyncFailed.size();
+        if (lost > 0) {
+            asyncFailed.clear();
+            LOG.warn("Closed sender, {} messages of failed asynchronous sends are lost", lost);
+        }
+    }
+
+    private synchronized void disconnect() {
         if (!isConnected()) {
             return;
         }
         connectionStatus = ConnectionStatus.DISCONNECTED;
-        if (producer != null) {
+        if (batchProducer != null) {
             try {
-                producer.close();
-                producer = null;
+                batchProducer.close();
             } catch (JMSException ex) {
-                LOG.warn("Unable to close producer", ex);
+                LOG.warn("Unable to close batch producer", ex);
+            } finally {
+                batchProducer = null;
             }
         }
-        if (session != null) {
+        if (batchSession != null) {
             try {
-                session.close();
-                session = null;
+                batchSession.close();
             } catch (JMSException ex) {
-                LOG.warn("Unable to close session", ex);
+                LOG.warn("Unable to close batch session", ex);
+            } finally {
+                batchSession = null;
             }
         }
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
-            } catch (JMSException ex) {
-                LOG.warn("Unable to close connection", ex);
+        // a commit of the COMMIT_TIMER that is already running is finished first
+        synchronized (transactionLock) {
+            if (commitTask != null) {
+                commitTask.cancel(false);
+                commitTask = null;
+            }
+            if (uncommitted > 0) {
+                try {
+                    commit();
+                } catch (JMSException ex) {
+                    LOG.warn("Unable to commit, {} messages are lost", uncommitted, ex);
+                    uncommitted = 0;
+                }
             }
+            if (producer != null) {
+                try {
+                    producer.close();
+                    producer = null;
+                } catch (JMSException ex) {
+                    LOG.warn("Unable to close producer", ex);
+                }
+            }
+            if (session != null) {
+                try {
+                    session.close();
+                    session = null;
+                } catch (JMSException ex) {
+                    LOG.warn("Unable to close session", ex);
+                }
+            }
+        }
+        // the shared connection is closed with its last sender
+        connection = null;
+        jmsConnection.close(this);
+        keepPendingSends();
+    }
+
+    /**
+     * Keeps the messages of the asynchronous sends that are not completed
+     * when the session is closed, the broker may not have them. They are sent
+     * again like failed sends, unless the discard policy is
+     * <code>onConnectionLoss</code>.
+     */
+    private void keepPendingSends() {
+        List<CommonMessage> pending;
+        synchronized (asyncPending) {
+            pending = new ArrayList<>(asyncPending.values());
+            asyncPending.clear();
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        if ("onconnectionloss".equalsIgnoreCase(discardPolicy)) {
+            LOG.warn("Applying discard policy [{}]. {} messages of not completed asynchronous sends discarded.",
+                    discardPolicy, pending.size());
+        } else {
+            LOG.warn("{} asynchronous sends were not completed, they are sent again", pending.size());
+            asyncFailed.addAll(pending);
         }
     }
 
@@ -259,7 +650,7 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
         if (reconnector != null && reconnector.isAlive()) {
             return;
         }
-        close();
+        disconnect();
         // reconnect
         reconnector = new Thread(() -> reconnect(exception));
         reconnector.setDaemon(true);
@@ -275,12 +666,14 @@ public class JmsSender extends AbstractSender implements ExceptionListener {
     @Override
     public String[] librariesToCheck() {
         return new String[]{
+                "javax.jms.BytesMessage",
                 "javax.jms.Connection",
                 "javax.jms.ConnectionFactory",
                 "javax.jms.Destination",
                 "javax.jms.ExceptionListener",
                 "javax.jms.JMSContext",
                 "javax.jms.JMSException",
+                "javax.jms.Message",
                 "javax.jms.MessageProducer",
                 "javax.jms.Session",
                 "javax.jms.TextMessage",
@@ -29,6 +29,24 @@ public class ActivityConfiguration {
     private Extract extract;
     private TracepointExt tracepoint;
 
+    /**
+     * Creates an empty ActivityConfiguration
+     */
+    public ActivityConfiguration() {
+        // no extract and no tracepoint
+    }
+
+    /**
+     * Creates a copy of the given ActivityConfiguration. The extract and the
+     * tracepoint are shared with the original.
+     *
+     * @param other the ActivityConfiguration to copy
+     */
+    public ActivityConfiguration(ActivityConfiguration other) {
+        extract = other.extract;
+        tracepoint = other.tracepoint;
+    }
+
     /**
      * Returns if these ActivitySettings contains an Extract or a TracePoint.
      * @return true if empty
@@ -50,6 +68,7 @@ public class ActivityConfiguration {
      */
     public void setExtract(Extract extract) {
         this.extract = extract;
+        Configuration.changedInPlace();
     }
 
     /**
@@ -64,5 +83,6 @@ public class ActivityConfiguration {
      */
     public void setTracepoint(TracepointExt tracepoint) {
         this.tracepoint = tracepoint;
+        Configuration.changedInPlace();
     }
 }
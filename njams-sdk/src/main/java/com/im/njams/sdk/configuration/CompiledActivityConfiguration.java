@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.Extract;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.ExtractRule;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.RuleType;
+
+/**
+ * Immutable view of the configuration of one activity. It is compiled from the
+ * {@link Configuration} of the Njams instance and held by the ActivityModel,
+ * which rebuilds it when the configuration's version has changed.
+ * <p>
+ * The enabled extract rules are split by direction when the view is compiled,
+ * so they do not have to be filtered for every activity.
+ */
+public final class CompiledActivityConfiguration {
+
+    private static final String INPUT = "in";
+    private static final String OUTPUT = "out";
+
+    private final Configuration configuration;
+    private final long version;
+    private final ActivityConfiguration activityConfiguration;
+    private final Extract extract;
+    private final TracepointExt tracepoint;
+    private final List<ExtractRule> inputRules;
+    private final List<ExtractRule> outputRules;
+
+    private CompiledActivityConfiguration(Configuration configuration, long version,
+            ActivityConfiguration activityConfiguration) {
+        this.configuration = configuration;
+        this.version = version;
+        this.activityConfiguration = activityConfiguration;
+        if (activityConfiguration != null) {
+            extract = activityConfiguration.getExtract();
+            tracepoint = activityConfiguration.getTracepoint();
+        } else {
+            extract = null;
+            tracepoint = null;
+        }
+        inputRules = getEnabledRules(extract, INPUT);
+        outputRules = getEnabledRules(extract, OUTPUT);
+    }
+
+    private static List<ExtractRule> getEnabledRules(Extract extract, String direction) {
+        if (extract == null || extract.getExtractRules() == null) {
+            return Collections.emptyList();
+        }
+        List<ExtractRule> rules = new ArrayList<>();
+        for (ExtractRule rule : extract.getExtractRules()) {
+            if (rule.getRuleType() != RuleType.DISABLED && direction.equalsIgnoreCase(rule.getInout())) {
+                rules.add(rule);
+            }
+        }
+        return rules.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Compiles the configuration of the given activity.
+     *
+     * @param configuration the configuration of the Njams instance, may be
+     * <b>null</b>
+     * @param processPath the path of the process that contains the activity
+     * @param activityId the model id of the activity
+     * @return the compiled configuration, never <b>null</b>
+     */
+    public static CompiledActivityConfiguration compile(Configuration configuration, String processPath,
+            String activityId) {
+        if (configuration == null) {
+            return new CompiledActivityConfiguration(null, 0L, null);
+        }
+        // read the version first, a change made while compiling leaves a stale stamp
+        long version = configuration.getVersion();
+        ProcessConfiguration process = configuration.getProcess(processPath);
+        ActivityConfiguration activity = process == null ? null : process.getActivity(activityId);
+        return new CompiledActivityConfiguration(configuration, version, activity);
+    }
+
+    /**
+     * Returns whether this view reflects the current state of the given
+     * configuration.
+     *
+     * @param configuration the configuration to check
+     * @return <b>true</b> if this view has been compiled from the given
+     * configuration and it has not changed since
+     */
+    public boolean isCompiledFrom(Configuration configuration) {
+        return this.configuration == configuration
+                && (configuration == null || configuration.getVersion() == version);
+    }
+
+    /**
+     * @return the activity configuration this view has been compiled from, may
+     * be <b>null</b>
+     */
+    public ActivityConfiguration getActivityConfiguration() {
+        return activityConfiguration;
+    }
+
+    /**
+     * @return the extract, may be <b>null</b>
+     */
+    public Extract getExtract() {
+        return extract;
+    }
+
+    /**
+     * @return the tracepoint, may be <b>null</b>
+     */
+    public TracepointExt getTracepoint() {
+        return tracepoint;
+    }
+
+    /**
+     * Returns the enabled extract rules for the given direction.
+     *
+     * @param direction <code>in</code> or <code>out</code>
+     * @return the rules in configured order, never <b>null</b>
+     */
+    public List<ExtractRule> getExtractRules(String direction) {
+        if (INPUT.equalsIgnoreCase(direction)) {
+            return inputRules;
+        }
+        if (OUTPUT.equalsIgnoreCase(direction)) {
+            return outputRules;
+        }
+        return Collections.emptyList();
+    }
+}
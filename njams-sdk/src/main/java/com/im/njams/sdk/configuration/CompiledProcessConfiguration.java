@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.configuration;
+
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogLevel;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogMode;
+
+/**
+ * Immutable view of the configuration of one process. It is compiled from the
+ * {@link Configuration} of the Njams instance and held by the ProcessModel,
+ * which rebuilds it when the configuration's version has changed.
+ */
+public final class CompiledProcessConfiguration {
+
+    private final Configuration configuration;
+    private final long version;
+    private final LogMode logMode;
+    private final LogLevel logLevel;
+    private final boolean exclude;
+    private final boolean recording;
+
+    private CompiledProcessConfiguration(Configuration configuration, long version, LogMode logMode,
+            LogLevel logLevel, boolean exclude, boolean recording) {
+        this.configuration = configuration;
+        this.version = version;
+        this.logMode = logMode;
+        this.logLevel = logLevel;
+        this.exclude = exclude;
+        this.recording = recording;
+    }
+
+    /**
+     * Compiles the configuration of the given process.
+     *
+     * @param configuration the configuration of the Njams instance, may be
+     * <b>null</b>
+     * @param processPath the path of the process
+     * @return the compiled configuration, never <b>null</b>
+     */
+    public static CompiledProcessConfiguration compile(Configuration configuration, String processPath) {
+        if (configuration == null) {
+            return new CompiledProcessConfiguration(null, 0L, LogMode.COMPLETE, LogLevel.INFO, false, true);
+        }
+        // read the version first, a change made while compiling leaves a stale stamp
+        long version = configuration.getVersion();
+        LogLevel logLevel = LogLevel.INFO;
+        boolean exclude = false;
+        boolean recording = configuration.isRecording();
+        ProcessConfiguration process = configuration.getProcess(processPath);
+        if (process != null) {
+            logLevel = process.getLogLevel();
+            exclude = process.isExclude();
+            recording = process.isRecording();
+        }
+        return new CompiledProcessConfiguration(configuration, version, configuration.getLogMode(), logLevel,
+                exclude, recording);
+    }
+
+    /**
+     * Returns whether this view reflects the current state of the given
+     * configuration.
+     *
+     * @param configuration the configuration to check
+     * @return <b>true</b> if this view has been compiled from the given
+     * configuration and it has not changed since
+     */
+    public boolean isCompiledFrom(Configuration configuration) {
+        return this.configuration == configuration
+                && (configuration == null || configuration.getVersion() == version);
+    }
+
+    /**
+     * @return whether a configuration was present when this view was compiled
+     */
+    public boolean isConfigured() {
+        return configuration != null;
+    }
+
+    /**
+     * @return the logMode of the Njams instance
+     */
+    public LogMode getLogMode() {
+        return logMode;
+    }
+
+    /**
+     * @return the logLevel of the process
+     */
+    public LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * @return whether the process is excluded
+     */
+    public boolean isExclude() {
+        return exclude;
+    }
+
+    /**
+     * @return whether the process is recorded, based on the process and the
+     * client settings
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+}
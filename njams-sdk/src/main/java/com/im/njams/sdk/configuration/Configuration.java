@@ -18,28 +18,64 @@ package com.im.njams.sdk.configuration;
 
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogMode;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.im.njams.sdk.factories.ThreadFactoryBuilder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * The configuration contains all configuration of the client, which are not part of the
  * initial settings, and therefore could be changed by the client instance,
  * or via instructions.
+ * <p>
+ * The process configurations are held in an unmodifiable map. Changes are
+ * applied to copies of the affected process and activity configurations,
+ * which are then published by replacing the map as a whole. Readers get a
+ * consistent view without locking, while writers are serialized on this
+ * configuration. The map returned by {@link #getProcesses()} is a view that
+ * can still be modified, its changes are published the same way.
+ * <p>
+ * Saves requested via {@link #saveAsync()} are executed in the background. A
+ * request is saved right away if no save is running; requests made while a
+ * save is running are coalesced into a single save, which follows it.
  *
  * @author pnientiedt
  */
 public class Configuration {
 
+    private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNamePrefix("ConfigurationSaver").setDaemon(true).build());
+
     @JsonIgnore
     private ConfigurationProvider configurationProvider;
 
     private LogMode logMode = LogMode.COMPLETE;
-    private Map<String, ProcessConfiguration> processes = new HashMap<>();
+    private volatile Map<String, ProcessConfiguration> processes = Collections.emptyMap();
     private List<String> dataMasking = new ArrayList<>();
     private boolean recording = true;
 
+    @JsonIgnore
+    private final AtomicLong version = new AtomicLong();
+
+    // changes of process and activity configurations, which do not know the configuration they belong to
+    private static final AtomicLong IN_PLACE_CHANGES = new AtomicLong();
+
+    @JsonIgnore
+    private final Object saveLock = new Object();
+
+    @JsonIgnore
+    private CompletableFuture<Void> pendingSave;
+
+    @JsonIgnore
+    private final TracepointExpiryQueue tracepoints = new TracepointExpiryQueue();
+
     /**
      * @param configurationProvider to be set
      */
@@ -61,6 +97,38 @@ public class Configuration {
         configurationProvider.saveConfiguration(this);
     }
 
+    /**
+     * Requests saving the configuration in the background. The save starts
+     * as soon as the previous save is finished, all requests made until it
+     * starts are served by the same save.
+     *
+     * @return a future that is completed when the configuration, including
+     * all changes made before this call, has been saved
+     */
+    public CompletableFuture<Void> saveAsync() {
+        synchronized (saveLock) {
+            if (pendingSave == null) {
+                pendingSave = new CompletableFuture<>();
+                SAVE_EXECUTOR.execute(this::savePending);
+            }
+            return pendingSave;
+        }
+    }
+
+    private void savePending() {
+        CompletableFuture<Void> saved;
+        synchronized (saveLock) {
+            saved = pendingSave;
+            pendingSave = null;
+        }
+        try {
+            save();
+            saved.complete(null);
+        } catch (Exception e) {
+            saved.completeExceptionally(e);
+        }
+    }
+
     /**
      * @return the logMode
      */
@@ -73,20 +141,95 @@ public class Configuration {
      */
     public void setLogMode(LogMode logMode) {
         this.logMode = logMode;
+        changed();
     }
 
     /**
-     * @return the processes
+     * @return the processes, changes to this map are published like
+     * {@link #putProcess(String, ProcessConfiguration)}
      */
     public Map<String, ProcessConfiguration> getProcesses() {
-        return processes;
+        return new CopyOnWriteMapView<>(this, () -> processes, copy -> {
+            publish(copy);
+            copy.forEach(tracepoints::addAll);
+        });
+    }
+
+    /**
+     * @param processes the processes to set, the map is copied
+     */
+    public synchronized void setProcesses(Map<String, ProcessConfiguration> processes) {
+        publish(processes == null ? Collections.emptyMap() : new HashMap<>(processes));
+        this.processes.forEach(tracepoints::addAll);
     }
 
     /**
-     * @param processes the processes to set
+     * Sets the ProcessSettings for the given processPath.
+     *
+     * @param processPath ProcessPath of the process
+     * @param process the ProcessSettings to set
      */
-    public void setProcesses(Map<String, ProcessConfiguration> processes) {
-        this.processes = processes;
+    public synchronized void putProcess(String processPath, ProcessConfiguration process) {
+        Map<String, ProcessConfiguration> copy = new HashMap<>(processes);
+        copy.put(processPath, process);
+        publish(copy);
+        tracepoints.addAll(processPath, process);
+    }
+
+    /**
+     * Changes the ProcessSettings for the given processPath. The update is
+     * applied to a copy of the current settings, or to new settings if none
+     * are specified yet, which then replaces the current settings.
+     *
+     * @param processPath ProcessPath of the process
+     * @param update the change to apply
+     */
+    public synchronized void updateProcess(String processPath, Consumer<ProcessConfiguration> update) {
+        ProcessConfiguration process = processes.get(processPath);
+        process = process == null ? new ProcessConfiguration() : new ProcessConfiguration(process);
+        update.accept(process);
+        putProcess(processPath, process);
+    }
+
+    /**
+     * Changes all ProcessSettings specified yet. The update is applied to
+     * copies of the current settings, which then replace them at once.
+     *
+     * @param update the change to apply
+     */
+    public synchronized void updateProcesses(Consumer<ProcessConfiguration> update) {
+        Map<String, ProcessConfiguration> copy = new HashMap<>(processes);
+        copy.replaceAll((processPath, process) -> {
+            ProcessConfiguration changed = new ProcessConfiguration(process);
+            update.accept(changed);
+            return changed;
+        });
+        publish(copy);
+        copy.forEach(tracepoints::addAll);
+    }
+
+    /**
+     * Changes the ActivitySettings for the given activity. The update is
+     * applied to a copy of the current settings, or to new settings if none
+     * are specified yet, which then replaces the current settings.
+     *
+     * @param processPath ProcessPath of the process containing the activity
+     * @param activityId ActivityId of the activity
+     * @param update the change to apply
+     */
+    public synchronized void updateActivity(String processPath, String activityId,
+            Consumer<ActivityConfiguration> update) {
+        updateProcess(processPath, process -> {
+            ActivityConfiguration activity = process.getActivity(activityId);
+            activity = activity == null ? new ActivityConfiguration() : new ActivityConfiguration(activity);
+            update.accept(activity);
+            process.setActivity(activityId, activity);
+        });
+    }
+
+    private void publish(Map<String, ProcessConfiguration> processes) {
+        this.processes = processes.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(processes);
+        changed();
     }
 
     /**
@@ -127,5 +270,49 @@ public class Configuration {
      */
     public void setRecording(boolean recording) {
         this.recording = recording;
+        changed();
+    }
+
+    /**
+     * Returns the tracepoints of this configuration, ordered by their
+     * expiry. Tracepoints set through this configuration are added
+     * automatically.
+     *
+     * @return the tracepoint expiry queue
+     */
+    @JsonIgnore
+    public TracepointExpiryQueue getTracepointQueue() {
+        return tracepoints;
+    }
+
+    /**
+     * Returns the version of this configuration. It is increased on every
+     * change, so configuration views compiled from an older version can be
+     * detected and rebuilt. The setters of process and activity
+     * configurations increase the version of every configuration, since they
+     * do not know which one they belong to.
+     *
+     * @return the current version
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version.get() + IN_PLACE_CHANGES.get();
+    }
+
+    /**
+     * Marks this configuration as changed. Changes made through this
+     * configuration or through the setters of its process and activity
+     * configurations do this already, it only has to be called after an
+     * extract has been modified in place.
+     */
+    public void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Called by the setters of process and activity configurations.
+     */
+    static void changedInPlace() {
+        IN_PLACE_CHANGES.incrementAndGet();
     }
 }
@@ -19,6 +19,8 @@ package com.im.njams.sdk.configuration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -110,7 +112,7 @@ public class ConfigurationInstructionListener implements InstructionListener {
          * @param message
          * @param e
          */
-        private void error(final String message, final Exception e) {
+        private void error(final String message, final Throwable e) {
             LOG.error("Failed to execute command: [{}] on process: {}{}. Reason: {}", instruction.getCommand(),
                     getProcessPath(), getActivityId() != null ? "#" + getActivityId() : "", message, e);
             response.setResultCode(1);
@@ -176,6 +178,7 @@ public class ConfigurationInstructionListener implements InstructionListener {
     private static final String ACTIVITY_ID = "activityId";
     private static final String LOG_LEVEL = "logLevel";
     private static final String LOG_MODE = "logMode";
+    private static final long SAVE_TIMEOUT = 10;
 
     private final Configuration configuration;
 
@@ -292,17 +295,15 @@ public class ConfigurationInstructionListener implements InstructionListener {
         final LogLevel loglevel = instructionSupport.getEnumParameter(LOG_LEVEL, LogLevel.class);
 
         //execute action
-        ProcessConfiguration process = configuration.getProcess(processPath);
-        if (process == null) {
-            process = new ProcessConfiguration();
-            configuration.getProcesses().put(processPath, process);
-        }
         final LogMode logMode = instructionSupport.getEnumParameter(LOG_MODE, LogMode.class);
         if (logMode != null) {
             configuration.setLogMode(logMode);
         }
-        process.setLogLevel(loglevel);
-        process.setExclude(instructionSupport.getBoolParameter("exclude"));
+        final boolean exclude = instructionSupport.getBoolParameter("exclude");
+        configuration.updateProcess(processPath, process -> {
+            process.setLogLevel(loglevel);
+            process.setExclude(exclude);
+        });
         saveConfiguration(instructionSupport);
     }
 
@@ -370,22 +371,12 @@ public class ConfigurationInstructionListener implements InstructionListener {
         final String activityId = instructionSupport.getActivityId();
 
         //execute action
-        ProcessConfiguration process = configuration.getProcess(processPath);
-        if (process == null) {
-            process = new ProcessConfiguration();
-            configuration.getProcesses().put(processPath, process);
-        }
-        ActivityConfiguration activity = process.getActivity(activityId);
-        if (activity == null) {
-            activity = new ActivityConfiguration();
-            process.getActivities().put(activityId, activity);
-        }
         final TracepointExt tp = new TracepointExt();
         tp.setStarttime(startTime);
         tp.setEndtime(endTime);
         tp.setIterations(instructionSupport.getIntParameter("iterations"));
         tp.setDeeptrace(instructionSupport.getBoolParameter("deepTrace"));
-        activity.setTracepoint(tp);
+        configuration.updateActivity(processPath, activityId, activity -> activity.setTracepoint(tp));
         saveConfiguration(instructionSupport);
         LOG.debug("Tracepoint on {}#{} updated", processPath, activityId);
     }
@@ -405,7 +396,7 @@ public class ConfigurationInstructionListener implements InstructionListener {
             LOG.debug("Delete tracepoint: no activity configuration for: {}#{}", processPath, activityId);
             return;
         }
-        activity.setTracepoint(null);
+        configuration.updateActivity(processPath, activityId, a -> a.setTracepoint(null));
         saveConfiguration(instructionSupport);
         LOG.debug("Tracepoint on {}#{} deleted", processPath, activityId);
     }
@@ -418,20 +409,7 @@ public class ConfigurationInstructionListener implements InstructionListener {
         final String processPath = instructionSupport.getProcessPath();
         final String activityId = instructionSupport.getActivityId();
         final String extractString = instructionSupport.getParameter("extract");
-
-        //execute action
-        ProcessConfiguration process = configuration.getProcess(processPath);
-        if (process == null) {
-            process = new ProcessConfiguration();
-            configuration.getProcesses().put(processPath, process);
-        }
-        ActivityConfiguration activity = null;
-        activity = process.getActivity(activityId);
-        if (activity == null) {
-            activity = new ActivityConfiguration();
-            process.getActivities().put(activityId, activity);
-        }
-        Extract extract = null;
+        final Extract extract;
         try {
             final ObjectMapper mapper = JsonSerializerFactory.getDefaultMapper();
             extract = mapper.readValue(extractString, Extract.class);
@@ -439,7 +417,9 @@ public class ConfigurationInstructionListener implements InstructionListener {
             instructionSupport.error("Unable to deserialize extract", e);
             return;
         }
-        activity.setExtract(extract);
+
+        //execute action
+        configuration.updateActivity(processPath, activityId, activity -> activity.setExtract(extract));
         saveConfiguration(instructionSupport);
         LOG.debug("Configure extract for {}", processPath);
     }
@@ -465,7 +445,7 @@ public class ConfigurationInstructionListener implements InstructionListener {
             instructionSupport.error("Activity " + activityId + " not found");
             return;
         }
-        activity.setExtract(null);
+        configuration.updateActivity(processPath, activityId, a -> a.setExtract(null));
         saveConfiguration(instructionSupport);
     }
 
@@ -546,7 +526,7 @@ public class ConfigurationInstructionListener implements InstructionListener {
                 final boolean engineWideRecording = instructionSupport.getBoolParameter("EngineWideRecording");
                 configuration.setRecording(engineWideRecording);
                 //reset to default after logic change
-                configuration.getProcesses().values().forEach(p -> p.setRecording(engineWideRecording));
+                configuration.updateProcesses(p -> p.setRecording(engineWideRecording));
             } catch (final Exception e) {
                 instructionSupport.error("Unable to set client recording", e);
                 return;
@@ -556,15 +536,9 @@ public class ConfigurationInstructionListener implements InstructionListener {
         final String processPath = instructionSupport.getProcessPath();
         if (processPath != null) {
             try {
-                ProcessConfiguration process = null;
-                process = configuration.getProcess(processPath);
-                if (process == null) {
-                    process = new ProcessConfiguration();
-                    configuration.getProcesses().put(processPath, process);
-                }
                 final String doRecordParameter = instructionSupport.getParameter("Record");
                 final boolean doRecord = "all".equalsIgnoreCase(doRecordParameter);
-                process.setRecording(doRecord);
+                configuration.updateProcess(processPath, process -> process.setRecording(doRecord));
             } catch (final Exception e) {
                 instructionSupport.error("Unable to set process recording", e);
                 return;
@@ -576,8 +550,14 @@ public class ConfigurationInstructionListener implements InstructionListener {
     }
 
     private void saveConfiguration(InstructionSupport instructionSupport) {
+        // the change is answered when it is durable, saves of concurrent changes are coalesced
         try {
-            configuration.save();
+            configuration.saveAsync().get(SAVE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (final ExecutionException e) {
+            instructionSupport.error("Unable to save configuration", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            instructionSupport.error("Unable to save configuration", e);
         } catch (final Exception e) {
             instructionSupport.error("Unable to save configuration", e);
         }
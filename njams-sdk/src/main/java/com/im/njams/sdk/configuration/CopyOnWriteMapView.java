@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.configuration;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Modifiable view of a map that is published as unmodifiable snapshots. Reads
+ * and iterations use the current snapshot. Every change is applied to a copy
+ * of it while holding the owner's lock, and the copy is then published as the
+ * new snapshot. The view can therefore be used like the modifiable map that
+ * the owner returned before it switched to snapshots.
+ *
+ * @param <V> the type of the values
+ */
+class CopyOnWriteMapView<V> extends AbstractMap<String, V> {
+
+    private final Object lock;
+    private final Supplier<Map<String, V>> snapshot;
+    private final Consumer<Map<String, V>> publisher;
+
+    /**
+     * Creates a view of the given snapshots.
+     *
+     * @param lock the lock that serializes the changes of the owner
+     * @param snapshot returns the current snapshot
+     * @param publisher publishes a changed copy as the new snapshot
+     */
+    CopyOnWriteMapView(Object lock, Supplier<Map<String, V>> snapshot, Consumer<Map<String, V>> publisher) {
+        this.lock = lock;
+        this.snapshot = snapshot;
+        this.publisher = publisher;
+    }
+
+    private <R> R update(Function<Map<String, V>, R> change) {
+        synchronized (lock) {
+            Map<String, V> copy = new HashMap<>(snapshot.get());
+            R result = change.apply(copy);
+            publisher.accept(copy);
+            return result;
+        }
+    }
+
+    @Override
+    public int size() {
+        return snapshot.get().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return snapshot.get().containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return snapshot.get().get(key);
+    }
+
+    @Override
+    public V put(String key, V value) {
+        return update(copy -> copy.put(key, value));
+    }
+
+    @Override
+    public V remove(Object key) {
+        return update(copy -> copy.remove(key));
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> map) {
+        update(copy -> {
+            copy.putAll(map);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        update(copy -> {
+            copy.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                Iterator<Entry<String, V>> entries = snapshot.get().entrySet().iterator();
+                return new Iterator<Entry<String, V>>() {
+                    private Entry<String, V> last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        last = new SimpleEntry<String, V>(entries.next()) {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public V setValue(V value) {
+                                put(getKey(), value);
+                                return super.setValue(value);
+                            }
+                        };
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) {
+                            throw new IllegalStateException();
+                        }
+                        CopyOnWriteMapView.this.remove(last.getKey());
+                        last = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWriteMapView.this.size();
+            }
+        };
+    }
+}
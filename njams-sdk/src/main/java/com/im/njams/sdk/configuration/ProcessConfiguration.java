@@ -16,6 +16,7 @@
  */
 package com.im.njams.sdk.configuration;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,6 +24,14 @@ import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogLevel;
 
 /**
  * Settings container for processes.
+ * <p>
+ * The activities are held in an unmodifiable map, which is replaced as a whole
+ * when an activity is set or removed. Readers therefore always see a
+ * consistent map without locking. The map returned by
+ * {@link #getActivities()} is a view that can still be modified, its changes
+ * replace the map the same way. A ProcessConfiguration that is part of the
+ * {@link Configuration} should not be modified in place, but through
+ * {@link Configuration#updateProcess(String, java.util.function.Consumer)}.
  *
  * @author pnientiedt
  */
@@ -30,9 +39,29 @@ public class ProcessConfiguration {
 
     private LogLevel logLevel = LogLevel.INFO;
     private boolean exclude = false;
-    private Map<String, ActivityConfiguration> activities = new HashMap<>();
+    private volatile Map<String, ActivityConfiguration> activities = Collections.emptyMap();
     private boolean recording = true;
 
+    /**
+     * Creates an empty ProcessConfiguration
+     */
+    public ProcessConfiguration() {
+        // default settings
+    }
+
+    /**
+     * Creates a copy of the given ProcessConfiguration. The activity
+     * configurations are shared with the original.
+     *
+     * @param other the ProcessConfiguration to copy
+     */
+    public ProcessConfiguration(ProcessConfiguration other) {
+        logLevel = other.logLevel;
+        exclude = other.exclude;
+        activities = other.activities;
+        recording = other.recording;
+    }
+
     /**
      * @return the logLevel
      */
@@ -45,6 +74,7 @@ public class ProcessConfiguration {
      */
     public void setLogLevel(LogLevel logLevel) {
         this.logLevel = logLevel;
+        Configuration.changedInPlace();
     }
 
     /**
@@ -59,20 +89,53 @@ public class ProcessConfiguration {
      */
     public void setExclude(boolean exclude) {
         this.exclude = exclude;
+        Configuration.changedInPlace();
     }
 
     /**
-     * @return the activities
+     * @return the activities, changes to this map are applied like
+     * {@link #setActivity(String, ActivityConfiguration)}
      */
     public Map<String, ActivityConfiguration> getActivities() {
-        return activities;
+        return new CopyOnWriteMapView<>(this, () -> activities, this::publish);
     }
 
     /**
-     * @param activities the activities to set
+     * @param activities the activities to set, the map is copied
      */
     public void setActivities(Map<String, ActivityConfiguration> activities) {
-        this.activities = activities;
+        publish(activities == null ? Collections.emptyMap() : new HashMap<>(activities));
+    }
+
+    private void publish(Map<String, ActivityConfiguration> activities) {
+        this.activities = activities.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(activities);
+        Configuration.changedInPlace();
+    }
+
+    /**
+     * Sets the ActivitySettings for a given ActivityId
+     *
+     * @param activityId for the activity
+     * @param activity the ActivitySettings to set
+     */
+    public synchronized void setActivity(String activityId, ActivityConfiguration activity) {
+        Map<String, ActivityConfiguration> copy = new HashMap<>(activities);
+        copy.put(activityId, activity);
+        publish(copy);
+    }
+
+    /**
+     * Removes the ActivitySettings for a given ActivityId
+     *
+     * @param activityId for the activity
+     */
+    public synchronized void removeActivity(String activityId) {
+        if (!activities.containsKey(activityId)) {
+            return;
+        }
+        Map<String, ActivityConfiguration> copy = new HashMap<>(activities);
+        copy.remove(activityId);
+        setActivities(copy);
     }
 
     /**
@@ -97,5 +160,6 @@ public class ProcessConfiguration {
      */
     public void setRecording(boolean recording) {
         this.recording = recording;
+        Configuration.changedInPlace();
     }
 }
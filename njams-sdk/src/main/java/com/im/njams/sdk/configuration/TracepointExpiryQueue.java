@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.configuration;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Index of the tracepoints of a {@link Configuration}, ordered by their end
+ * time. Tracepoints whose iterations are exhausted are reported by the
+ * tracepoint itself and returned with the next poll, regardless of their end
+ * time.
+ * <p>
+ * Entries are not removed when a tracepoint is replaced or deleted. The caller
+ * has to check that a polled tracepoint is still configured.
+ */
+public class TracepointExpiryQueue {
+
+    private final PriorityQueue<Entry> byEndtime = new PriorityQueue<>(Comparator.comparing(e -> e.endtime));
+    private final Set<TracepointExt> indexed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Queue<Entry> exhausted = new ConcurrentLinkedQueue<>();
+
+    /**
+     * An indexed tracepoint and the activity it belongs to.
+     */
+    public static final class Entry {
+
+        private final String processPath;
+        private final String activityId;
+        private final TracepointExt tracepoint;
+        private final LocalDateTime endtime;
+
+        private Entry(String processPath, String activityId, TracepointExt tracepoint) {
+            this.processPath = processPath;
+            this.activityId = activityId;
+            this.tracepoint = tracepoint;
+            endtime = tracepoint.getEndtime();
+        }
+
+        /**
+         * @return the path of the process
+         */
+        public String getProcessPath() {
+            return processPath;
+        }
+
+        /**
+         * @return the id of the activity
+         */
+        public String getActivityId() {
+            return activityId;
+        }
+
+        /**
+         * @return the tracepoint
+         */
+        public TracepointExt getTracepoint() {
+            return tracepoint;
+        }
+    }
+
+    /**
+     * Adds the tracepoints of the given process, that are not indexed yet.
+     *
+     * @param processPath the path of the process
+     * @param process the process configuration, may be <b>null</b>
+     */
+    public synchronized void addAll(String processPath, ProcessConfiguration process) {
+        if (process == null) {
+            return;
+        }
+        process.getActivities().forEach((activityId, activity) -> {
+            TracepointExt tracepoint = activity.getTracepoint();
+            if (tracepoint != null && indexed.add(tracepoint)) {
+                Entry entry = new Entry(processPath, activityId, tracepoint);
+                tracepoint.setExhaustionListener(() -> {
+                    tracepoint.setExhaustionListener(null);
+                    exhausted.add(entry);
+                });
+                if (entry.endtime != null) {
+                    byEndtime.add(entry);
+                }
+                if (tracepoint.iterationsExceeded()) {
+                    exhausted.add(entry);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes and returns the tracepoints that ended before the given time,
+     * or whose iterations have been exhausted since the last poll.
+     *
+     * @param now the current time
+     * @return the expired tracepoints, never <b>null</b>
+     */
+    public synchronized List<Entry> pollExpired(LocalDateTime now) {
+        List<Entry> expired = null;
+        Entry entry;
+        while ((entry = exhausted.poll()) != null) {
+            if (entry.endtime == null) {
+                indexed.remove(entry.getTracepoint());
+            }
+            expired = add(expired, entry);
+        }
+        while ((entry = byEndtime.peek()) != null && entry.endtime.isBefore(now)) {
+            byEndtime.poll();
+            indexed.remove(entry.getTracepoint());
+            expired = add(expired, entry);
+        }
+        return expired == null ? Collections.emptyList() : expired;
+    }
+
+    private static List<Entry> add(List<Entry> entries, Entry entry) {
+        List<Entry> list = entries == null ? new ArrayList<>() : entries;
+        list.add(entry);
+        return list;
+    }
+
+    /**
+     * @return the number of tracepoints waiting for their end time
+     */
+    public synchronized int size() {
+        return byEndtime.size();
+    }
+}
@@ -17,38 +17,146 @@
 package com.im.njams.sdk.configuration;
 
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.Tracepoint;
+import com.im.njams.sdk.common.DateTimeUtility;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Extended version of the Tracepoint for storing the current iterations of a
- * tracepoint
+ * tracepoint.
+ * <p>
+ * The start and end time are kept as epoch milliseconds as well, so checking
+ * whether the tracepoint is active does not allocate. The current iterations
+ * are counted atomically, so the configured iterations are never exceeded by
+ * concurrent jobs.
  *
  * @author pnientiedt
  */
 public class TracepointExt extends Tracepoint {
 
-    private int currentIterations;
+    private final AtomicInteger currentIterations = new AtomicInteger();
+
+    private volatile long startMillis = Long.MIN_VALUE;
+    private volatile long endMillis = Long.MAX_VALUE;
+
+    private volatile Runnable exhaustionListener;
+
+    /**
+     * @param starttime the starttime to set
+     */
+    @Override
+    public void setStarttime(LocalDateTime starttime) {
+        super.setStarttime(starttime);
+        startMillis = toMillis(starttime, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param endtime the endtime to set
+     */
+    @Override
+    public void setEndtime(LocalDateTime endtime) {
+        super.setEndtime(endtime);
+        endMillis = toMillis(endtime, Long.MAX_VALUE);
+    }
+
+    private static long toMillis(LocalDateTime time, long unbounded) {
+        if (time == null) {
+            return unbounded;
+        }
+        // LocalDateTime.MIN and MAX exceed the range of epoch milliseconds
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        if (seconds >= Long.MAX_VALUE / 1000) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= Long.MIN_VALUE / 1000) {
+            return Long.MIN_VALUE;
+        }
+        return DateTimeUtility.toMilli(time);
+    }
 
     /**
      * @return the currentIterations
      */
     @XmlTransient
     public int getCurrentIterations() {
-        return currentIterations;
+        return currentIterations.get();
     }
 
     /**
      * @param currentIterations the currentIterations to set
      */
     public void setCurrentIterations(int currentIterations) {
-        this.currentIterations = currentIterations;
+        this.currentIterations.set(currentIterations);
     }
 
     /**
      * Increase current iterations for this tracepoint
      */
     public void increaseCurrentIterations() {
-        currentIterations++;
+        currentIterations.incrementAndGet();
+        notifyIfExhausted();
+    }
+
+    /**
+     * Returns whether this tracepoint is active at the given time, i.e. the
+     * time is within its start and end time and its iterations are not
+     * exceeded.
+     *
+     * @param now the time in epoch milliseconds
+     * @return if the tracepoint is active
+     */
+    public boolean isActive(long now) {
+        return now > startMillis && now < endMillis && !iterationsExceeded();
+    }
+
+    /**
+     * Claims one iteration of this tracepoint, if it is active at the given
+     * time. Each iteration can be claimed only once, even by concurrent
+     * callers.
+     *
+     * @param now the time in epoch milliseconds
+     * @return <b>true</b> if an iteration has been claimed, and the caller
+     * should trace
+     */
+    public boolean claimIteration(long now) {
+        if (now <= startMillis || now >= endMillis) {
+            return false;
+        }
+        final int iterations = getIterations();
+        if (iterations <= 0) {
+            currentIterations.incrementAndGet();
+            return true;
+        }
+        int current;
+        do {
+            current = currentIterations.get();
+            if (current >= iterations) {
+                return false;
+            }
+        } while (!currentIterations.compareAndSet(current, current + 1));
+        if (current + 1 == iterations) {
+            notifyIfExhausted();
+        }
+        return true;
+    }
+
+    private void notifyIfExhausted() {
+        Runnable listener = exhaustionListener;
+        if (listener != null && iterationsExceeded()) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Sets the listener that is notified when increasing the current
+     * iterations has exhausted the configured iterations.
+     *
+     * @param exhaustionListener the listener, or <b>null</b>
+     */
+    void setExhaustionListener(Runnable exhaustionListener) {
+        this.exhaustionListener = exhaustionListener;
     }
 
     /**
@@ -57,6 +165,6 @@ public class TracepointExt extends Tracepoint {
      * @return if iterations exceeded
      */
     public boolean iterationsExceeded() {
-        return getIterations() > 0 && currentIterations >= getIterations();
+        return getIterations() > 0 && currentIterations.get() >= getIterations();
     }
 }
@@ -18,7 +18,18 @@ package com.im.njams.sdk.configuration.provider;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
 import java.util.Properties;
+import java.util.UUID;
+
+import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -35,6 +46,8 @@ import com.im.njams.sdk.configuration.ConfigurationProvider;
  */
 public class FileConfigurationProvider implements ConfigurationProvider {
 
+    private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(FileConfigurationProvider.class);
+
     private static final String PROPERTY_PREFIX = "njams.sdk.configuration.file";
 
     /**
@@ -100,9 +113,8 @@ public class FileConfigurationProvider implements ConfigurationProvider {
         if (!file.exists()) {
             configuration = new Configuration();
         } else {
-            try {
-                configuration = objectMapper.readValue(new FileInputStream(file), Configuration.class);
-
+            try (InputStream in = new FileInputStream(file)) {
+                configuration = objectMapper.readValue(in, Configuration.class);
             } catch (Exception e) {
                 throw new NjamsSdkRuntimeException("Unable to load file", e);
             }
@@ -112,16 +124,66 @@ public class FileConfigurationProvider implements ConfigurationProvider {
     }
 
     /**
-     * Save the given Configuration to the configured File
+     * Save the given Configuration to the configured File. The configuration
+     * is written to a temporary file first, which then replaces the configured
+     * file, so the file never contains a partially written configuration.
+     * <p>
+     * If the configured file is a symbolic link, the file it points to is
+     * replaced. The permissions and the group of the replaced file are kept.
      *
      * @param configuration Configuration
      */
     @Override
     public void saveConfiguration(Configuration configuration) {
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = null;
         try {
-            objectWriter.writeValue(file, configuration);
+            if (Files.exists(target)) {
+                target = target.toRealPath();
+            }
+            // created like the file itself would be, not with the restricted permissions of a temp file
+            temp = Files.createFile(target.resolveSibling(
+                    target.getFileName() + "." + UUID.randomUUID() + ".tmp"));
+            objectWriter.writeValue(temp.toFile(), configuration);
+            copyAttributes(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (Exception e) {
             throw new NjamsSdkRuntimeException("Unable to save file", e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void copyAttributes(Path source, Path target) throws IOException {
+        if (!Files.exists(source)) {
+            return;
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        PosixFileAttributes attributes = Files.readAttributes(source, PosixFileAttributes.class);
+        view.setPermissions(attributes.permissions());
+        try {
+            view.setGroup(attributes.group());
+        } catch (IOException e) {
+            // only the owner of the file and members of the group may set it
+            LOG.debug("Unable to keep group {} of {}: {}", attributes.group(), source, e.toString());
+        }
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temp);
+        } catch (Exception e) {
+            // the temporary file has been moved already or cannot be removed
         }
     }
 
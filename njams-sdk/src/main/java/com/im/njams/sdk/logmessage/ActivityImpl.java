@@ -29,10 +29,9 @@ import org.slf4j.LoggerFactory;
 
 import com.faizsiegeln.njams.messageformat.v4.logmessage.ActivityStatus;
 import com.faizsiegeln.njams.messageformat.v4.logmessage.Predecessor;
-import com.faizsiegeln.njams.messageformat.v4.projectmessage.Extract;
 import com.im.njams.sdk.common.DateTimeUtility;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
-import com.im.njams.sdk.configuration.ActivityConfiguration;
+import com.im.njams.sdk.configuration.CompiledActivityConfiguration;
 import com.im.njams.sdk.configuration.TracepointExt;
 import com.im.njams.sdk.logmessage.ExtractHandler.ExtractSource;
 import com.im.njams.sdk.model.ActivityModel;
@@ -58,7 +57,8 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
     // Job will be hold because it will be needed when creating the next activity via stepTo logic
     private final JobImpl job;
     private final ActivityModel activityModel;
-    private final Extract extract;
+    // the configuration when this activity was created, its extract is applied
+    private final CompiledActivityConfiguration configuration;
     private boolean starter = false;
     private GroupImpl parent = null;
     private boolean trace = false;
@@ -79,19 +79,14 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
         this.job = job;
         setModelId(modelId);
         activityModel = null;
-        extract = null;
+        configuration = null;
     }
 
     public ActivityImpl(JobImpl job, ActivityModel model) {
         this.job = job;
         activityModel = Objects.requireNonNull(model);
         setModelId(model.getId());
-        ActivityConfiguration activityConfig = job.getActivityConfiguration(activityModel);
-        if (activityConfig != null) {
-            extract = activityConfig.getExtract();
-        } else {
-            extract = null;
-        }
+        configuration = activityModel.getCompiledConfiguration();
     }
 
     /**
@@ -245,6 +240,20 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
         return new Event(this);
     }
 
+    /**
+     * Sets the status of this activity and updates the job's index of its
+     * activities.
+     *
+     * @param activityStatus the new status
+     */
+    @Override
+    public void setActivityStatus(ActivityStatus activityStatus) {
+        super.setActivityStatus(activityStatus);
+        if (job != null) {
+            job.activityStatusChanged(this);
+        }
+    }
+
     /**
      * Start this activity
      */
@@ -281,8 +290,8 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
             }
         }
 
-        if (extract != null) {
-            ExtractHandler.handleExtract(job, extract, this, ExtractSource.INPUT, input, getInput());
+        if (configuration != null && configuration.getExtract() != null) {
+            ExtractHandler.handleExtract(job, configuration, this, ExtractSource.INPUT, input, getInput());
         } else if (activityModel == null) {
             // deprecated SDK-140
             ExtractHandler.handleExtract(job, this, ExtractSource.INPUT, input, getInput());
@@ -332,8 +341,8 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
                 job.addToEstimatedSize(getOutput().length());
             }
         }
-        if (extract != null) {
-            ExtractHandler.handleExtract(job, extract, this, ExtractSource.OUTPUT, output, getOutput());
+        if (configuration != null && configuration.getExtract() != null) {
+            ExtractHandler.handleExtract(job, configuration, this, ExtractSource.OUTPUT, output, getOutput());
         } else if (activityModel == null) {
             // deprecated SDK-140
             ExtractHandler.handleExtract(job, this, ExtractSource.OUTPUT, output, getOutput());
@@ -371,14 +380,13 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
     }
 
     private void checkTracepoint() {
-        ActivityConfiguration activityConfig = job.getActivityConfiguration(activityModel);
-        if (activityConfig == null) {
+        if (activityModel == null) {
             return;
         }
-        TracepointExt tracepoint = activityConfig.getTracepoint();
-        if (job.isActiveTracepoint(tracepoint)) {
+        TracepointExt tracepoint = activityModel.getCompiledConfiguration().getTracepoint();
+        //claiming the iteration checks the timings as well
+        if (tracepoint != null && tracepoint.claimIteration(System.currentTimeMillis())) {
             trace = true;
-            tracepoint.increaseCurrentIterations();
             //activate deeptrace if needed
             if (tracepoint.isDeeptrace()) {
                 job.setDeepTrace(true);
@@ -491,7 +499,7 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
      */
     @Override
     public void setInput(String input) {
-        super.setInput(DataMasking.maskString(input));
+        super.setInput(mask(input));
     }
 
     /**
@@ -501,7 +509,7 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
      */
     @Override
     public void setOutput(String output) {
-        super.setOutput(DataMasking.maskString(output));
+        super.setOutput(mask(output));
     }
 
     /**
@@ -562,6 +570,17 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
         }
     }
 
+    /**
+     * Masks the given data with the datamasking rules of the Njams instance of
+     * this activity's job.
+     *
+     * @param data the data to mask
+     * @return the masked data
+     */
+    String mask(String data) {
+        return DataMasking.maskString(job.getNjams(), data);
+    }
+
     /**
      * This method masks the startData and calls its super method. After that,
      * it adds the size of the masked startData to the estimatedSize of this and
@@ -571,7 +590,7 @@ public class ActivityImpl extends com.faizsiegeln.njams.messageformat.v4.logmess
      */
     @Override
     public void setStartData(String startData) {
-        String maskedStartData = DataMasking.maskString(startData);
+        String maskedStartData = mask(startData);
         super.setStartData(maskedStartData);
         if (maskedStartData != null) {
             int startDataSize = maskedStartData.length();
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.faizsiegeln.njams.messageformat.v4.logmessage.ActivityStatus;
+
+/**
+ * Index of the activities of a job by their model id. For every model id it
+ * holds the instances in the order they have been added to the job, and
+ * separately the running and the completed ones, so that the most recent
+ * instance of each kind can be found without scanning all activities of the
+ * job.
+ * <p>
+ * This class is not thread safe, the job accesses it only while holding its
+ * activities lock.
+ */
+class ActivityIndex {
+
+    private final Map<String, ModelIdEntry> entries = new HashMap<>();
+
+    // activity -> position in which it has been added to the job
+    private final Map<Activity, Long> positions = new IdentityHashMap<>();
+
+    private long position = 0;
+
+    /**
+     * Adds an activity that has been added to the job.
+     *
+     * @param activity the activity to add
+     */
+    void add(Activity activity) {
+        long pos = position++;
+        positions.put(activity, pos);
+        ModelIdEntry entry = entries.computeIfAbsent(activity.getModelId(), k -> new ModelIdEntry());
+        entry.all.put(pos, activity);
+        entry.updateStatus(pos, activity);
+    }
+
+    /**
+     * Removes an activity that has been removed from the job.
+     *
+     * @param activity the activity to remove
+     */
+    void remove(Activity activity) {
+        Long pos = positions.remove(activity);
+        if (pos == null) {
+            return;
+        }
+        ModelIdEntry entry = entries.get(activity.getModelId());
+        entry.all.remove(pos);
+        entry.running.remove(pos);
+        entry.completed.remove(pos);
+        if (entry.all.isEmpty()) {
+            entries.remove(activity.getModelId());
+        }
+    }
+
+    /**
+     * Updates the index after the status of the given activity has changed.
+     *
+     * @param activity the activity whose status has changed
+     */
+    void statusChanged(Activity activity) {
+        Long pos = positions.get(activity);
+        if (pos != null) {
+            entries.get(activity.getModelId()).updateStatus(pos, activity);
+        }
+    }
+
+    /**
+     * @param modelId the model id
+     * @return the most recent activity with the given model id, or null
+     */
+    Activity getLatest(String modelId) {
+        ModelIdEntry entry = entries.get(modelId);
+        return entry == null ? null : lastValue(entry.all);
+    }
+
+    /**
+     * @param modelId the model id
+     * @return the most recent running activity with the given model id, or null
+     */
+    Activity getLatestRunning(String modelId) {
+        ModelIdEntry entry = entries.get(modelId);
+        return entry == null ? null : lastValue(entry.running);
+    }
+
+    /**
+     * @param modelId the model id
+     * @return the most recent completed activity with the given model id, or
+     * null
+     */
+    Activity getLatestCompleted(String modelId) {
+        ModelIdEntry entry = entries.get(modelId);
+        return entry == null ? null : lastValue(entry.completed);
+    }
+
+    private static Activity lastValue(TreeMap<Long, Activity> map) {
+        Map.Entry<Long, Activity> last = map.lastEntry();
+        return last == null ? null : last.getValue();
+    }
+
+    private static final class ModelIdEntry {
+
+        private final TreeMap<Long, Activity> all = new TreeMap<>();
+        private final TreeMap<Long, Activity> running = new TreeMap<>();
+        private final TreeMap<Long, Activity> completed = new TreeMap<>();
+
+        private void updateStatus(long pos, Activity activity) {
+            ActivityStatus status = activity.getActivityStatus();
+            if (status == ActivityStatus.RUNNING) {
+                running.put(pos, activity);
+            } else {
+                running.remove(pos);
+            }
+            if (status != null && status.ordinal() > ActivityStatus.RUNNING.ordinal()) {
+                completed.put(pos, activity);
+            } else {
+                completed.remove(pos);
+            }
+        }
+    }
+}
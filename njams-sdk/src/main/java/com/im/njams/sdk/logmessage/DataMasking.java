@@ -16,16 +16,20 @@
  */
 package com.im.njams.sdk.logmessage;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.im.njams.sdk.Njams;
+
 /**
  * DataMasking implementation
+ * <p>
+ * The patterns added to this class apply to all Njams instances. The patterns
+ * of the configuration of a Njams instance only apply to this instance, see
+ * {@link Njams#getDataMaskingRules()}.
  *
  * @author pnientiedt
  */
@@ -33,8 +37,7 @@ public class DataMasking {
 
     private static final Logger LOG = LoggerFactory.getLogger(DataMasking.class);
 
-    private final static String MASK_CHAR = "*";
-    private final static List<Pattern> PATTERNS = new ArrayList<>();
+    private static volatile DataMaskingRules rules = DataMaskingRules.EMPTY;
 
     /**
      * Mask a string by patterns given to this class
@@ -43,37 +46,22 @@ public class DataMasking {
      * @return String with applied datamasking
      */
     public static String maskString(String inString) {
-        if (inString == null || inString.isEmpty() || PATTERNS.isEmpty()) {
-            return inString;
-        }
-        int inVisibleCharacters = 0;
-        if (inVisibleCharacters < 0) {
-            inVisibleCharacters = 0;
-        }
-
-        String stringToMask = inString;
-        String maskedString = inString;
-
-        for (Pattern p : PATTERNS) {
-            Matcher m = p.matcher(stringToMask);
-            while (m.find()) {
-                int startIdx = m.start();
-                int endIdx = m.end();
-
-                String patternMatch = stringToMask.substring(startIdx, endIdx);
-
-                String partToBeMasked = patternMatch.substring(0, patternMatch.length() - inVisibleCharacters);
-                String mask = "";
-                for (int i = 0; i < partToBeMasked.length(); i++) {
-                    mask = mask + MASK_CHAR;
-                }
-
-                String maskedNumber = mask + patternMatch.substring(patternMatch.length() - inVisibleCharacters);
+        return rules.mask(inString);
+    }
 
-                maskedString = maskedString.replace(patternMatch, maskedNumber);
-            }
-        }
-        return maskedString;
+    /**
+     * Mask a string by patterns given to this class, and by the patterns of
+     * the given Njams instance
+     *
+     * @param njams the Njams instance whose patterns are applied, may be
+     * <b>null</b>
+     * @param inString String to apply datamasking to
+     * @return String with applied datamasking
+     */
+    public static String maskString(Njams njams, String inString) {
+        String maskedString = rules.mask(inString);
+        DataMaskingRules instanceRules = njams == null ? null : njams.getDataMaskingRules();
+        return instanceRules == null ? maskedString : instanceRules.mask(maskedString);
     }
 
     /**
@@ -93,7 +81,9 @@ public class DataMasking {
     public static void addPattern(String pattern) {
         try {
             Pattern p = Pattern.compile(pattern);
-            PATTERNS.add(p);
+            synchronized (DataMasking.class) {
+                rules = rules.with(p);
+            }
             LOG.info("added masking pattern " + pattern);
         } catch (Exception e) {
             LOG.error("could not add pattern " + pattern, e);
@@ -104,7 +94,9 @@ public class DataMasking {
      * Removes all patterns
      */
     public static void removePatterns() {
-        PATTERNS.clear();
+        synchronized (DataMasking.class) {
+            rules = DataMaskingRules.EMPTY;
+        }
     }
 
 }
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An immutable set of data masking patterns that masks a string in one pass.
+ * <p>
+ * Most masking patterns start with a literal, like <code>IBAN: </code> or
+ * <code>&lt;password&gt;</code>. For these patterns the input is scanned once,
+ * and a pattern is only tried at the positions where its literal starts. Every
+ * pattern finds the same matches as {@link Matcher#find()} on the whole input,
+ * also where the matches of different patterns overlap, and the union of all
+ * matches is written as mask characters into one {@link StringBuilder}. If the
+ * input contains none of the literals, it is returned without running any
+ * regular expression.
+ * <p>
+ * Patterns that don't start with a literal, or that use flags, are scanned on
+ * their own, and their matches are merged with the others.
+ */
+public final class DataMaskingRules {
+
+    /**
+     * Rules without any pattern, they return every string unchanged.
+     */
+    public static final DataMaskingRules EMPTY = new DataMaskingRules(Collections.emptyList());
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataMaskingRules.class);
+
+    private static final char MASK_CHAR = '*';
+
+    private final List<Pattern> patterns;
+    private final List<Pattern> prefixedPatterns = new ArrayList<>();
+    private final List<String> literals = new ArrayList<>();
+    private final List<Pattern> otherPatterns = new ArrayList<>();
+    private final int[][] asciiCandidates = new int[128][];
+    private final Map<Character, int[]> otherCandidates = new HashMap<>();
+
+    private DataMaskingRules(List<Pattern> patterns) {
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(patterns));
+        for (Pattern pattern : patterns) {
+            String literal = pattern.flags() == 0 ? getLiteralPrefix(pattern.pattern()) : "";
+            if (literal.isEmpty()) {
+                otherPatterns.add(pattern);
+            } else {
+                addCandidate(literal.charAt(0), prefixedPatterns.size());
+                prefixedPatterns.add(pattern);
+                literals.add(literal);
+            }
+        }
+    }
+
+    /**
+     * Creates rules for the given patterns.
+     *
+     * @param patterns the patterns to mask
+     * @return the rules
+     */
+    public static DataMaskingRules of(List<Pattern> patterns) {
+        return patterns.isEmpty() ? EMPTY : new DataMaskingRules(patterns);
+    }
+
+    /**
+     * Compiles the given regular expressions into rules. Expressions that
+     * can't be compiled are logged and left out.
+     *
+     * @param regexes the regular expressions to mask, may be <b>null</b>
+     * @return the rules
+     */
+    public static DataMaskingRules compile(List<String> regexes) {
+        if (regexes == null || regexes.isEmpty()) {
+            return EMPTY;
+        }
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : regexes) {
+            try {
+                patterns.add(Pattern.compile(regex));
+                LOG.info("added masking pattern " + regex);
+            } catch (Exception e) {
+                LOG.error("could not add pattern " + regex, e);
+            }
+        }
+        return of(patterns);
+    }
+
+    /**
+     * Returns new rules with the patterns of these rules and the given pattern.
+     *
+     * @param pattern the pattern to add
+     * @return the new rules
+     */
+    public DataMaskingRules with(Pattern pattern) {
+        List<Pattern> newPatterns = new ArrayList<>(patterns);
+        newPatterns.add(pattern);
+        return new DataMaskingRules(newPatterns);
+    }
+
+    /**
+     * Returns the patterns of these rules in the order they have been added.
+     *
+     * @return unmodifiable list of patterns
+     */
+    public List<Pattern> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Returns whether these rules contain any pattern.
+     *
+     * @return <b>true</b> if there is no pattern
+     */
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * Masks every match of these rules in the given string.
+     *
+     * @param inString String to apply datamasking to
+     * @return String with applied datamasking
+     */
+    public String mask(String inString) {
+        if (inString == null || inString.isEmpty() || patterns.isEmpty()) {
+            return inString;
+        }
+        boolean literalFound = !prefixedPatterns.isEmpty() && containsAnyLiteral(inString);
+        if (!literalFound && otherPatterns.isEmpty()) {
+            return inString;
+        }
+        BitSet masked = new BitSet(inString.length());
+        if (literalFound) {
+            markByLiterals(inString, masked);
+        }
+        for (Pattern pattern : otherPatterns) {
+            Matcher matcher = pattern.matcher(inString);
+            while (matcher.find()) {
+                masked.set(matcher.start(), matcher.end());
+            }
+        }
+        if (masked.isEmpty()) {
+            return inString;
+        }
+        StringBuilder sb = new StringBuilder(inString.length());
+        int position = 0;
+        int start;
+        while ((start = masked.nextSetBit(position)) >= 0) {
+            int end = masked.nextClearBit(start);
+            sb.append(inString, position, start);
+            appendMask(sb, end - start);
+            position = end;
+        }
+        return sb.append(inString, position, inString.length()).toString();
+    }
+
+    private boolean containsAnyLiteral(String inString) {
+        for (String literal : literals) {
+            if (inString.contains(literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans the input once and only tries the patterns whose literal starts at
+     * the current position. A pattern is not tried again before the end of its
+     * last match, like {@link Matcher#find()}, but the other patterns are.
+     */
+    private void markByLiterals(String inString, BitSet masked) {
+        Matcher[] matchers = new Matcher[prefixedPatterns.size()];
+        int[] nextStart = new int[prefixedPatterns.size()];
+        for (int i = 0; i < inString.length(); i++) {
+            char c = inString.charAt(i);
+            int[] candidates = c < asciiCandidates.length ? asciiCandidates[c] : otherCandidates.get(c);
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (i < nextStart[candidate]) {
+                    continue;
+                }
+                int end = matchAt(inString, i, candidate, matchers);
+                if (end > i) {
+                    masked.set(i, end);
+                    nextStart[candidate] = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the end of the match of the given prefixed pattern at the given
+     * index, or -1 if it doesn't match there.
+     */
+    private int matchAt(String inString, int index, int candidate, Matcher[] matchers) {
+        String literal = literals.get(candidate);
+        if (!inString.startsWith(literal, index)) {
+            return -1;
+        }
+        Pattern pattern = prefixedPatterns.get(candidate);
+        if (literal.length() == pattern.pattern().length()) {
+            // the whole pattern is a literal
+            return index + literal.length();
+        }
+        Matcher matcher = matchers[candidate];
+        if (matcher == null) {
+            matcher = pattern.matcher(inString).useTransparentBounds(true).useAnchoringBounds(false);
+            matchers[candidate] = matcher;
+        }
+        matcher.region(index, inString.length());
+        return matcher.lookingAt() ? matcher.end() : -1;
+    }
+
+    private void addCandidate(char c, int index) {
+        int[] candidates = c < asciiCandidates.length ? asciiCandidates[c] : otherCandidates.get(c);
+        candidates = candidates == null ? new int[1] : Arrays.copyOf(candidates, candidates.length + 1);
+        candidates[candidates.length - 1] = index;
+        if (c < asciiCandidates.length) {
+            asciiCandidates[c] = candidates;
+        } else {
+            otherCandidates.put(c, candidates);
+        }
+    }
+
+    private static void appendMask(StringBuilder sb, int length) {
+        for (int i = 0; i < length; i++) {
+            sb.append(MASK_CHAR);
+        }
+    }
+
+    /**
+     * Returns the literal that every match of the given regular expression
+     * starts with, or an empty string if there is none.
+     */
+    static String getLiteralPrefix(String regex) {
+        if (hasTopLevelAlternation(regex)) {
+            return "";
+        }
+        int end = 0;
+        while (end < regex.length() && "\\[](){}.*+?^$|".indexOf(regex.charAt(end)) < 0) {
+            end++;
+        }
+        if (end < regex.length() && "*?{".indexOf(regex.charAt(end)) >= 0) {
+            // the last character is optional or repeated
+            end--;
+        }
+        return end > 0 ? regex.substring(0, end) : "";
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -16,32 +16,25 @@
  */
 package com.im.njams.sdk.logmessage;
 
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.transform.sax.SAXSource;
 import javax.xml.xpath.XPathConstants;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.AttributeType;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.Extract;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.ExtractRule;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.RuleType;
-import com.im.njams.sdk.configuration.ActivityConfiguration;
-import com.im.njams.sdk.configuration.ProcessConfiguration;
+import com.im.njams.sdk.configuration.CompiledActivityConfiguration;
 import com.im.njams.sdk.model.ActivityModel;
-
-import net.sf.saxon.xpath.XPathEvaluator;
+import com.im.njams.sdk.utils.BoundedCache;
 
 /**
  *
@@ -50,7 +43,14 @@ import net.sf.saxon.xpath.XPathEvaluator;
 public class ExtractHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(ExtractHandler.class);
-    private static final Map<String, Matcher> MATCHER = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of compiled regular expressions that are cached.
+     */
+    static final int MAX_CACHED_PATTERNS = 1000;
+
+    // rule -> compiled pattern, patterns are thread safe, their matchers are not
+    private static final BoundedCache<String, Pattern> PATTERNS = new BoundedCache<>(MAX_CACHED_PATTERNS);
 
     /**
      * Enumeration for specifying on what data an extract is to be applied.
@@ -111,23 +111,39 @@ public class ExtractHandler {
      */
     public static void handleExtract(JobImpl job, ActivityImpl activity, ExtractSource sourceDirection,
             Object sourceData, String data) {
-        ActivityConfiguration config = null;
         ActivityModel model = activity.getActivityModel();
         if (model == null) {
-            // deprecated
-            ProcessConfiguration processConfig = job.getNjams().getConfiguration()
-                    .getProcess(job.getProcessModel().getPath().toString());
-            if (processConfig == null) {
-                return;
-            }
-            processConfig.getActivity(activity.getModelId());
-        } else {
-            config = job.getActivityConfiguration(model);
+            // deprecated, no extract is applied to an activity without a model
+            return;
         }
-        if (config == null) {
+        handleExtract(job, model.getCompiledConfiguration(), activity, sourceDirection, sourceData, data);
+    }
+
+    /**
+     * Handle extract with the rules of a compiled activity configuration,
+     * which are already filtered by direction.
+     *
+     * @param job The job in which the extract is to be handled
+     * @param configuration The compiled configuration whose extract is to be applied.
+     * @param activity The activity instance on that the extract is to be applied.
+     * @param sourceDirection Whether the extract applies to the activity's input or output data.
+     * @param sourceData The data object on that the extract is being evaluated.
+     * @param data The serialized data object on that the extract is being evaluated.
+     */
+    public static void handleExtract(JobImpl job, CompiledActivityConfiguration configuration,
+            ActivityImpl activity, ExtractSource sourceDirection, Object sourceData, String data) {
+        List<ExtractRule> rules = configuration.getExtractRules(sourceDirection.direction);
+        if (rules.isEmpty()) {
             return;
         }
-        handleExtract(job, config.getExtract(), activity, sourceDirection, sourceData, data);
+        XpathContext xpathContext = new XpathContext();
+        try {
+            for (ExtractRule er : rules) {
+                handleRule(job, er, activity, sourceData, data, xpathContext);
+            }
+        } finally {
+            release(xpathContext);
+        }
     }
 
     /**
@@ -151,32 +167,54 @@ public class ExtractHandler {
 
         XpathContext xpathContext = new XpathContext();
 
-        while (erl.hasNext()) {
-            ExtractRule er = erl.next();
+        try {
+            while (erl.hasNext()) {
+                ExtractRule er = erl.next();
 
-            if (er.getRuleType() == RuleType.DISABLED || !er.getInout().equalsIgnoreCase(sourceDirection.direction)) {
-                continue;
-            }
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("nJAMS: after execution - rule: " + er.getRule());
+                if (er.getRuleType() == RuleType.DISABLED
+                        || !er.getInout().equalsIgnoreCase(sourceDirection.direction)) {
+                    continue;
+                }
+                handleRule(job, er, activity, sourceData, data, xpathContext);
             }
+        } finally {
+            release(xpathContext);
+        }
+    }
 
-            switch (er.getRuleType()) {
-            case REGEXP:
-                doRegexp(job, activity, er, sourceData, data);
-                break;
-            case EVENT:
-                doEvent(job, activity, er);
-                break;
-            case VALUE:
-                doValue(job, activity, er);
-                break;
-            case XPATH:
-                doXpath(job, activity, er, sourceData, data, xpathContext);
-                break;
-            default:
-                break;
-            }
+    /**
+     * Returns the XPath support used by the given context to the pool. The
+     * document of the context has been built by it, so the context keeps it
+     * for all its rules.
+     */
+    private static void release(XpathContext xpathContext) {
+        if (xpathContext.getSupport() != null) {
+            XPathSupport.release(xpathContext.getSupport());
+            xpathContext.setSupport(null);
+        }
+    }
+
+    private static void handleRule(JobImpl job, ExtractRule er, ActivityImpl activity, Object sourceData,
+            String data, XpathContext xpathContext) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("nJAMS: after execution - rule: " + er.getRule());
+        }
+
+        switch (er.getRuleType()) {
+        case REGEXP:
+            doRegexp(job, activity, er, sourceData, data);
+            break;
+        case EVENT:
+            doEvent(job, activity, er);
+            break;
+        case VALUE:
+            doValue(job, activity, er);
+            break;
+        case XPATH:
+            doXpath(job, activity, er, sourceData, data, xpathContext);
+            break;
+        default:
+            break;
         }
     }
 
@@ -193,12 +231,13 @@ public class ExtractHandler {
 
         LOG.debug("nJAMS: regex extract for setting: {}", setting);
 
-        Matcher localMatcher = getExtractMatcher(er.getRule());
-        if (localMatcher == null) {
+        Pattern pattern = getExtractPattern(er.getRule());
+        if (pattern == null) {
             return;
         }
 
-        if (localMatcher.reset(data).find()) {
+        Matcher localMatcher = pattern.matcher(data);
+        if (localMatcher.find()) {
             int group = localMatcher.groupCount() > 0 ? 1 : 0;
             String value = localMatcher.group(group);
 
@@ -240,14 +279,15 @@ public class ExtractHandler {
             }
         }
         try {
-            if (xpathContext.getXpf() == null) {
-                xpathContext.setXpf(new net.sf.saxon.xpath.XPathFactoryImpl());
-                xpathContext.setXpath(xpathContext.getXpf().newXPath());
-                xpathContext.getXpath().setNamespaceContext(new NamespaceResolver(data, false));
-                xpathContext.setSs(new SAXSource(new InputSource(new StringReader(data))));
-                xpathContext.setDoc(((XPathEvaluator) xpathContext.getXpath()).setSource(xpathContext.getSs()));
+            XPathSupport xpathSupport = xpathContext.getSupport();
+            if (xpathSupport == null) {
+                xpathSupport = XPathSupport.acquire();
+                xpathContext.setSupport(xpathSupport);
             }
-            xpathContext.setExpr(xpathContext.getXpath().compile(er.getRule()));
+            if (xpathContext.getDoc() == null) {
+                xpathSupport.parse(data, xpathContext);
+            }
+            xpathContext.setExpr(xpathSupport.compile(er.getRule(), xpathContext.getNamespaces()));
             Object result = xpathContext.getExpr().evaluate(xpathContext.getDoc(), XPathConstants.NODESET);
             List nodes = null;
             if (result instanceof List) {
@@ -262,19 +302,20 @@ public class ExtractHandler {
             } else {
                 LOG.error("Unknown class " + result.getClass() + " returned from XPath evaluator");
             }
-            String strResult = "";
+            StringBuilder resultBuilder = new StringBuilder();
             if (nodes != null) {
                 for (int i = 0; i < nodes.size(); i++) {
                     Object o = nodes.get(i);
                     if (o instanceof net.sf.saxon.tinytree.TinyNodeImpl) {
                         if (!(o instanceof net.sf.saxon.tinytree.WhitespaceTextImpl)) {
-                            strResult += ((net.sf.saxon.tinytree.TinyNodeImpl) o).getStringValue();
+                            resultBuilder.append(((net.sf.saxon.tinytree.TinyNodeImpl) o).getStringValue());
                         }
                     } else {
-                        strResult += nodes.get(i);
+                        resultBuilder.append(nodes.get(i));
                     }
                 }
             }
+            String strResult = resultBuilder.toString();
             if (er.getAttributeType() == AttributeType.EVENT) {
                 LOG.debug("nJAMS: xpath extract for setting: {}", er.getAttribute());
                 LOG.debug("nJAMS: xpath result: {}", strResult);
@@ -292,26 +333,39 @@ public class ExtractHandler {
         }
     }
 
-    private static Matcher getExtractMatcher(String rule) {
-        Matcher m = MATCHER.get(rule);
-        if (m == null) {
+    private static Pattern getExtractPattern(String rule) {
+        return PATTERNS.computeIfAbsent(rule, regex -> {
             try {
-                Pattern pattern = Pattern.compile(rule);
-                m = pattern.matcher("");
-                MATCHER.put(rule, m);
+                return Pattern.compile(regex);
             } catch (Exception e) {
-                LOG.warn("Could not compile pattern: {}: {}", rule);
-                LOG.debug("Error in getExtractMatcher", e);
+                LOG.warn("Could not compile pattern: {}: {}", regex, e.getMessage());
+                LOG.debug("Error in getExtractPattern", e);
+                return null;
             }
-        }
-        return m;
+        });
+    }
+
+    /**
+     * Returns the number of cached regular expressions, for testing purpose.
+     *
+     * @return number of cached patterns
+     */
+    static int getCachedPatternCount() {
+        return PATTERNS.size();
+    }
+
+    /**
+     * Drops the pooled XPath factories and their compiled rules, which are
+     * created again by the next XPath extract.
+     */
+    public static void clearXPathSupport() {
+        XPathSupport.clear();
     }
 
     private static void setAttributes(Job job, ActivityImpl activity, String uncheckedsetting, String uncheckedvalue) {
         String setting = checkLength("Extract Property/Attribute Name", uncheckedsetting, 500);
-        String value =
-                DataMasking.maskString(checkLength("Extract Property/Attribute '" + setting + "': ", uncheckedvalue,
-                        2000));
+        String value = activity.mask(checkLength("Extract Property/Attribute '" + setting + "': ", uncheckedvalue,
+                2000));
         LOG.debug("nJAMS: setAttributes: {}/{}", uncheckedsetting, uncheckedvalue);
 
         String settingLowerCase = setting.toLowerCase();
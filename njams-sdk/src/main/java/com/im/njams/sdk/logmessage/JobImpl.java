@@ -19,15 +19,17 @@ package com.im.njams.sdk.logmessage;
 import static java.util.Collections.unmodifiableCollection;
 
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.LoggerFactory;
@@ -38,12 +40,13 @@ import com.faizsiegeln.njams.messageformat.v4.logmessage.PluginDataItem;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogLevel;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogMode;
 import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.client.LogMessageFlushTask;
 import com.im.njams.sdk.common.DateTimeUtility;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import com.im.njams.sdk.common.Path;
 import com.im.njams.sdk.configuration.ActivityConfiguration;
-import com.im.njams.sdk.configuration.Configuration;
-import com.im.njams.sdk.configuration.ProcessConfiguration;
+import com.im.njams.sdk.configuration.CompiledActivityConfiguration;
+import com.im.njams.sdk.configuration.CompiledProcessConfiguration;
 import com.im.njams.sdk.configuration.TracepointExt;
 import com.im.njams.sdk.model.ActivityModel;
 import com.im.njams.sdk.model.GroupModel;
@@ -78,6 +81,28 @@ public class JobImpl implements Job {
     // instanceId -> activity
     private final Map<String, Activity> activities = Collections.synchronizedMap(new LinkedHashMap<>());
 
+    // modelId -> most recent, running and completed activities, guarded by the activities lock
+    private final ActivityIndex activityIndex = new ActivityIndex();
+
+    /*
+     * Keeps the flushes of this job in order. It is only held while a
+     * LogMessage is created and queued, not while it is handed over to the
+     * sender.
+     */
+    private final Object flushLock = new Object();
+
+    /*
+     * LogMessages that have been created but not handed over to the sender
+     * yet, in the order of their creation. Guarded by the flushLock.
+     */
+    private final Queue<LogMessage> unsentMessages = new ArrayDeque<>();
+
+    /*
+     * Whether a thread is handing the queued LogMessages over to the sender.
+     * Guarded by the flushLock.
+     */
+    private boolean sending;
+
     /*
      * activity sequence counter
      */
@@ -102,7 +127,7 @@ public class JobImpl implements Job {
 
     private boolean deepTrace;
 
-    private boolean finished = false;
+    private volatile boolean finished = false;
 
     private LogMode logMode = LogMode.COMPLETE;
     private LogLevel logLevel = LogLevel.INFO;
@@ -117,6 +142,11 @@ public class JobImpl implements Job {
     //1000 for headers and co
     private long estimatedSize = 1000L;
 
+    // the flush size of the LogMessageFlushTask, an early flush is requested when it is exceeded
+    private long flushSize = Long.MAX_VALUE;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
     private boolean recording = true;
 
     private String correlationLogId;
@@ -172,27 +202,19 @@ public class JobImpl implements Job {
      * activityConfigurations.
      */
     private void initFromConfiguration(ProcessModel processModel) {
-        Configuration configuration = processModel.getNjams().getConfiguration();
-        if (configuration == null) {
+        CompiledProcessConfiguration configuration = processModel.getCompiledConfiguration();
+        if (!configuration.isConfigured()) {
             LOG.error("Unable to set LogMode, LogLevel and Exclude for {}, configuration is null",
                     processModel.getPath());
             return;
         }
         logMode = configuration.getLogMode();
-        LOG.debug("Set LogMode for {} to {}", processModel.getPath(), logMode);
-
+        logLevel = configuration.getLogLevel();
+        exclude = configuration.isExclude();
         recording = configuration.isRecording();
-        LOG.debug("Set recording for {} to {} based on client settings", processModel.getPath(), recording);
-
-        ProcessConfiguration process = configuration.getProcess(processModel.getPath().toString());
-        if (process != null) {
-            logLevel = process.getLogLevel();
-            LOG.debug("Set LogLevel for {} to {}", processModel.getPath(), logLevel);
-            exclude = process.isExclude();
-            LOG.debug("Set Exclude for {} to {}", processModel.getPath(), exclude);
-            recording = process.isRecording();
-            LOG.debug("Set recording for {} to {} based on process settings {} and client setting {}",
-                    processModel.getPath(), recording, configuration.isRecording());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Set LogMode: {}, LogLevel: {}, Exclude: {}, recording: {} for {}", logMode, logLevel, exclude,
+                    recording, processModel.getPath());
         }
         if (recording) {
             addAttribute("$njams_recorded", "true");
@@ -273,7 +295,11 @@ public class JobImpl implements Job {
     public void addActivity(final Activity activity) {
         synchronized (activities) {
             if (hasStarted()) {
-                activities.put(activity.getInstanceId(), activity);
+                Activity replaced = activities.put(activity.getInstanceId(), activity);
+                if (replaced != null) {
+                    activityIndex.remove(replaced);
+                }
+                activityIndex.add(activity);
                 if (activity.isStarter()) {
                     if (startActivity != null) {
                         throw new NjamsSdkRuntimeException("A job must not have more than one start activity "
@@ -308,15 +334,7 @@ public class JobImpl implements Job {
     @Override
     public Activity getActivityByModelId(String activityModelId) {
         synchronized (activities) {
-            List<String> reverseOrderedKeys = new ArrayList<>(activities.keySet());
-            ListIterator<String> iterator = reverseOrderedKeys.listIterator(reverseOrderedKeys.size());
-            while (iterator.hasPrevious()) {
-                Activity _activity = activities.get(iterator.previous());
-                if (_activity != null && _activity.getModelId().equals(activityModelId)) {
-                    return _activity;
-                }
-            }
-            return null;
+            return activityIndex.getLatest(activityModelId);
         }
     }
 
@@ -329,16 +347,7 @@ public class JobImpl implements Job {
     @Override
     public Activity getRunningActivityByModelId(String activityModelId) {
         synchronized (activities) {
-            List<String> reverseOrderedKeys = new ArrayList<>(activities.keySet());
-            ListIterator<String> iterator = reverseOrderedKeys.listIterator(reverseOrderedKeys.size());
-            while (iterator.hasPrevious()) {
-                Activity _activity = activities.get(iterator.previous());
-                if (_activity.getActivityStatus() == ActivityStatus.RUNNING
-                        && _activity.getModelId().equals(activityModelId)) {
-                    return _activity;
-                }
-            }
-            return null;
+            return activityIndex.getLatestRunning(activityModelId);
         }
     }
 
@@ -351,16 +360,19 @@ public class JobImpl implements Job {
     @Override
     public Activity getCompletedActivityByModelId(String activityModelId) {
         synchronized (activities) {
-            List<String> reverseOrderedKeys = new ArrayList<>(activities.keySet());
-            ListIterator<String> iterator = reverseOrderedKeys.listIterator(reverseOrderedKeys.size());
-            while (iterator.hasPrevious()) {
-                Activity _activity = activities.get(iterator.previous());
-                if (_activity.getActivityStatus().ordinal() > ActivityStatus.RUNNING.ordinal()
-                        && _activity.getModelId().equals(activityModelId)) {
-                    return _activity;
-                }
-            }
-            return null;
+            return activityIndex.getLatestCompleted(activityModelId);
+        }
+    }
+
+    /**
+     * Updates the model id index of this job after the status of the given
+     * activity has changed. Called by the activity itself.
+     *
+     * @param activity the activity whose status has changed
+     */
+    void activityStatusChanged(Activity activity) {
+        synchronized (activities) {
+            activityIndex.statusChanged(activity);
         }
     }
 
@@ -396,26 +408,96 @@ public class JobImpl implements Job {
     /**
      * This method is called by the LogMessageFlushTask in irregular intervals
      * and when the method end() is called. It flushes a logMessage to the
-     * server if all the preconditions are fulfilled.
+     * server if all the preconditions are fulfilled. The activities lock is
+     * only held while the logMessage is created, so threads working on this
+     * job are not blocked while the sender is busy.
      */
     public void flush() {
+        boolean mustSend;
+        synchronized (flushLock) {
+            mustSend = queue(createFlushMessage());
+        }
+        if (mustSend) {
+            sendQueued();
+        }
+    }
+
+    /**
+     * Creates the LogMessage for the next flush and cleans up the job. This is
+     * the only part of a flush that holds the activities lock, the created
+     * LogMessage is sent afterwards.
+     *
+     * @return the LogMessage to send, or <b>null</b> if the flush is suppressed
+     */
+    private LogMessage createFlushMessage() {
         synchronized (activities) {
             boolean suppressed = mustBeSuppressed();
             boolean started = hasStarted();
-            if (!suppressed) {
-                if (!started) {
-                    LOG.warn("The job with logId: {} will be flushed, but hasn't started yet.", logId);
-                }
-                flushCounter.incrementAndGet();
-                lastFlush = DateTimeUtility.now();
-                LogMessage logMessage = createLogMessage(this);
-                addToLogMessageAndCleanup(logMessage);
-                logMessage.setSentAt(lastFlush);
+            if (suppressed) {
+                return null;
+            }
+            if (!started) {
+                LOG.warn("The job with logId: {} will be flushed, but hasn't started yet.", logId);
+            }
+            flushCounter.incrementAndGet();
+            lastFlush = DateTimeUtility.now();
+            LogMessage logMessage = createLogMessage(this);
+            addToLogMessageAndCleanup(logMessage);
+            logMessage.setSentAt(lastFlush);
+            // clean up jobImpl
+            pluginDataItems.clear();
+            calculateEstimatedSize();
+            return logMessage;
+        }
+    }
+
+    /**
+     * Queues the LogMessage for the sender. Must be called while holding the
+     * flushLock, so the LogMessages are queued in the order of their creation.
+     *
+     * @param logMessage the LogMessage to send, nothing is queued if it is null
+     * @return whether the caller has to send the queued LogMessages, which is
+     * not the case if another thread is already sending them
+     */
+    private boolean queue(LogMessage logMessage) {
+        if (logMessage == null) {
+            return false;
+        }
+        unsentMessages.add(logMessage);
+        if (sending) {
+            return false;
+        }
+        sending = true;
+        return true;
+    }
+
+    /**
+     * Hands the queued LogMessages over to the sender, until the queue is
+     * empty. This must not be called while holding the activities lock or the
+     * flushLock, because the sender may block if its queue is full.
+     */
+    private void sendQueued() {
+        LogMessage logMessage;
+        while ((logMessage = pollQueued()) != null) {
+            try {
                 processModel.getNjams().getSender().send(logMessage);
-                // clean up jobImpl
-                pluginDataItems.clear();
-                calculateEstimatedSize();
+            } catch (RuntimeException e) {
+                // the remaining messages are sent with the next flush
+                synchronized (flushLock) {
+                    sending = false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private LogMessage pollQueued() {
+        synchronized (flushLock) {
+            LogMessage logMessage = unsentMessages.poll();
+            if (logMessage == null) {
+                sending = false;
             }
+            return logMessage;
         }
     }
 
@@ -527,6 +609,7 @@ public class JobImpl implements Job {
         synchronized (activities) {
             estimatedSize =
                     1000 + activities.values().stream().mapToLong(a -> ((ActivityImpl) a).getEstimatedSize()).sum();
+            flushRequested.set(false);
         }
     }
 
@@ -554,6 +637,17 @@ public class JobImpl implements Job {
         if (finished) {
             throw new NjamsSdkRuntimeException("Job already finished");
         }
+        boolean mustSend;
+        synchronized (flushLock) {
+            mustSend = queue(finish());
+        }
+        if (mustSend) {
+            sendQueued();
+        }
+        processModel.getNjams().removeJob(getJobId());
+    }
+
+    private LogMessage finish() {
         synchronized (activities) {
             //end all not ended activities
             activities.values().stream()
@@ -569,9 +663,9 @@ public class JobImpl implements Job {
             if (getEndTime() == null) {
                 setEndTime(DateTimeUtility.now());
             }
-            flush();
+            LogMessage logMessage = createFlushMessage();
             finished = true;
-            processModel.getNjams().removeJob(getJobId());
+            return logMessage;
         }
     }
 
@@ -974,6 +1068,7 @@ public class JobImpl implements Job {
                 if (a.getActivityStatus() != ActivityStatus.RUNNING) {
                     loggingSum++;
                     iterator.remove();
+                    activityIndex.remove(a);
                     GroupImpl parent = (GroupImpl) a.getParent();
                     if (parent != null) {
                         parent.removeChildActivity(a.getInstanceId());
@@ -1000,6 +1095,19 @@ public class JobImpl implements Job {
      */
     public void addToEstimatedSize(long estimatedSize) {
         this.estimatedSize += estimatedSize;
+        if (this.estimatedSize > flushSize && flushRequested.compareAndSet(false, true)) {
+            LogMessageFlushTask.requestFlush(this);
+        }
+    }
+
+    /**
+     * Sets the size after which this job requests to be flushed, regardless of
+     * the flush interval. This is set by the LogMessageFlushTask.
+     *
+     * @param flushSize the flush size in bytes
+     */
+    public void setFlushSize(long flushSize) {
+        this.flushSize = flushSize;
     }
 
     @Override
@@ -1021,11 +1129,11 @@ public class JobImpl implements Job {
         if (deepTrace) {
             return true;
         }
-        ActivityConfiguration activityConfig = getActivityConfiguration(activityModel);
-        if (activityConfig != null) {
-            return activityConfig.getExtract() != null || isActiveTracepoint(activityConfig.getTracepoint());
+        if (activityModel == null) {
+            return false;
         }
-        return false;
+        CompiledActivityConfiguration activityConfig = activityModel.getCompiledConfiguration();
+        return activityConfig.getExtract() != null || isActiveTracepoint(activityConfig.getTracepoint());
     }
 
     /**
@@ -1034,16 +1142,8 @@ public class JobImpl implements Job {
      * @return <code>true</code> if the given tracepoint configuration is currently active.
      */
     public boolean isActiveTracepoint(TracepointExt tracepoint) {
-        if (tracepoint != null) {
-            //if tracepoint exists, check timings
-            LocalDateTime now = DateTimeUtility.now();
-            if (now.isAfter(tracepoint.getStarttime()) && now.isBefore(tracepoint.getEndtime())
-                    && !tracepoint.iterationsExceeded()) {
-                //timing is right, and iterations are less than configured
-                return true;
-            }
-        }
-        return false;
+        //timing is right, and iterations are less than configured
+        return tracepoint != null && tracepoint.isActive(System.currentTimeMillis());
     }
 
     /**
@@ -1055,20 +1155,7 @@ public class JobImpl implements Job {
         if (activityModel == null) {
             return null;
         }
-        ProcessModel processModel = activityModel.getProcessModel();
-        if (processModel == null) {
-            return null;
-        }
-        Configuration configuration = processModel.getNjams().getConfiguration();
-        if (configuration == null) {
-            return null;
-        }
-        ProcessConfiguration processConfig = configuration.getProcess(processModel.getPath().toString());
-        if (processConfig == null) {
-            return null;
-        }
-        return processConfig.getActivity(activityModel.getId());
-
+        return activityModel.getCompiledConfiguration().getActivityConfiguration();
     }
 
     /**
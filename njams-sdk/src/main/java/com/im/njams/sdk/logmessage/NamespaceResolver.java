@@ -62,6 +62,23 @@ public class NamespaceResolver implements NamespaceContext {
     public NamespaceResolver(String strXML, boolean toplevelOnly) {
         this.strXML = strXML;
         this.toplevelOnly = toplevelOnly;
+        putDefaultNamespaces();
+    }
+
+    /**
+     * This constructor uses the given namespaces, which have already been
+     * collected while parsing the document, so the document is not parsed
+     * again. It also adds namespaces to grant access to Base64Decoder,
+     * java.lang.String and java.util.UUID
+     *
+     * @param namespaces prefix to uri of the namespaces of the document
+     */
+    public NamespaceResolver(Map<String, String> namespaces) {
+        namespaces.forEach(this::putInCache);
+        putDefaultNamespaces();
+    }
+
+    private void putDefaultNamespaces() {
         putInCache("base64", "java:java.util.Base64");
         putInCache("base64Decoder", "java:java.util.Base64$Decoder");
         putInCache("saxon", "http://saxon.sf.net/");
@@ -71,6 +88,9 @@ public class NamespaceResolver implements NamespaceContext {
     }
 
     private void loadNamespaces() {
+        if (strXML == null) {
+            return;
+        }
         try {
             DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
             DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
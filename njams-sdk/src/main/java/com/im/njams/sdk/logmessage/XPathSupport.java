@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+import com.im.njams.sdk.utils.BoundedCache;
+
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.xpath.XPathEvaluator;
+
+/**
+ * Holds an XPath factory, a parser and the compiled XPath extract rules. None
+ * of them is thread safe, so an instance is used by one extract at a time.
+ * The instances are pooled and reused by the following extracts; the pool is
+ * bounded and held by this class, not by the threads, so that the threads of
+ * a container do not keep the SDK after it has been undeployed.
+ * <p>
+ * The namespaces of a document are collected while Saxon builds the document,
+ * so the document is parsed only once.
+ */
+final class XPathSupport {
+
+    /**
+     * Maximum number of compiled extract rules that are cached per instance.
+     */
+    static final int MAX_COMPILED_RULES = 200;
+
+    /**
+     * Maximum number of pooled instances, more are created for concurrent
+     * extracts but not kept.
+     */
+    static final int MAX_POOLED = Runtime.getRuntime().availableProcessors();
+
+    private static final BlockingQueue<XPathSupport> POOL = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private final XPathFactory xpf = new net.sf.saxon.xpath.XPathFactoryImpl();
+    private final XPath xpath = xpf.newXPath();
+    private final NamespaceCollector namespaceCollector = new NamespaceCollector();
+    private final BoundedCache<CompiledRuleKey, XPathExpression> compiledRules =
+            new BoundedCache<>(MAX_COMPILED_RULES);
+
+    private XPathSupport() {
+        try {
+            SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+            parserFactory.setNamespaceAware(true);
+            namespaceCollector.setParent(parserFactory.newSAXParser().getXMLReader());
+        } catch (Exception e) {
+            throw new NjamsSdkRuntimeException("Could not create the XML parser for XPath extracts", e);
+        }
+    }
+
+    /**
+     * Takes an instance from the pool, or creates one if the pool is empty.
+     *
+     * @return an instance for the exclusive use of the caller
+     */
+    static XPathSupport acquire() {
+        XPathSupport support = POOL.poll();
+        return support != null ? support : new XPathSupport();
+    }
+
+    /**
+     * Returns an instance to the pool. It is dropped if the pool is full.
+     *
+     * @param support the instance that is not used anymore
+     */
+    static void release(XPathSupport support) {
+        POOL.offer(support);
+    }
+
+    /**
+     * Drops all pooled instances with their compiled rules.
+     */
+    static void clear() {
+        POOL.clear();
+    }
+
+    /**
+     * @return the number of pooled instances
+     */
+    static int getPoolSize() {
+        return POOL.size();
+    }
+
+    /**
+     * Parses the given data and stores the document and its namespaces in the
+     * given context.
+     *
+     * @param data the xml to parse
+     * @param xpathContext the context of the current extract
+     * @throws XPathException if the data could not be parsed
+     */
+    void parse(String data, XpathContext xpathContext) throws XPathException {
+        Map<String, String> namespaces = new HashMap<>();
+        namespaceCollector.namespaces = namespaces;
+        SAXSource ss = new SAXSource(namespaceCollector, new InputSource(new StringReader(data)));
+        xpathContext.setXpf(xpf);
+        xpathContext.setXpath(xpath);
+        xpathContext.setSs(ss);
+        xpathContext.setDoc(((XPathEvaluator) xpath).setSource(ss));
+        xpathContext.setNamespaces(namespaces);
+    }
+
+    /**
+     * Returns the compiled XPath expression for the given rule and namespaces.
+     *
+     * @param rule the XPath of the extract rule
+     * @param namespaces the namespaces of the document the rule is evaluated on
+     * @return the compiled expression
+     * @throws XPathExpressionException if the rule could not be compiled
+     */
+    XPathExpression compile(String rule, Map<String, String> namespaces) throws XPathExpressionException {
+        CompiledRuleKey key = new CompiledRuleKey(rule, namespaces);
+        XPathExpression expr = compiledRules.get(key);
+        if (expr == null) {
+            xpath.setNamespaceContext(new NamespaceResolver(namespaces));
+            expr = xpath.compile(rule);
+            compiledRules.put(key, expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Passes all events to Saxon and records the prefixed namespace
+     * declarations of the document.
+     */
+    private static final class NamespaceCollector extends XMLFilterImpl {
+
+        private Map<String, String> namespaces;
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException {
+            if (prefix != null && !prefix.isEmpty()) {
+                namespaces.put(prefix, uri);
+            }
+            super.startPrefixMapping(prefix, uri);
+        }
+    }
+
+    private static final class CompiledRuleKey {
+
+        private final String rule;
+        private final Map<String, String> namespaces;
+
+        private CompiledRuleKey(String rule, Map<String, String> namespaces) {
+            this.rule = rule;
+            this.namespaces = namespaces;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CompiledRuleKey)) {
+                return false;
+            }
+            CompiledRuleKey other = (CompiledRuleKey) obj;
+            return rule.equals(other.rule) && namespaces.equals(other.namespaces);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * rule.hashCode() + namespaces.hashCode();
+        }
+    }
+}
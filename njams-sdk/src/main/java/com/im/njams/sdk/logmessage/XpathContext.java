@@ -16,6 +16,8 @@
  */
 package com.im.njams.sdk.logmessage;
 
+import java.util.Map;
+
 import javax.xml.transform.sax.SAXSource;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpression;
@@ -33,6 +35,8 @@ public class XpathContext {
     private XPathExpression expr = null;
     private SAXSource ss = null;
     private NodeInfo doc = null;
+    private Map<String, String> namespaces = null;
+    private XPathSupport support = null;
 
     /**
      * @return the xpf
@@ -103,4 +107,26 @@ public class XpathContext {
     public void setDoc(NodeInfo doc) {
         this.doc = doc;
     }
+
+    /**
+     * @return the namespaces of the doc
+     */
+    public Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    /**
+     * @param namespaces the namespaces of the doc to set
+     */
+    public void setNamespaces(Map<String, String> namespaces) {
+        this.namespaces = namespaces;
+    }
+
+    XPathSupport getSupport() {
+        return support;
+    }
+
+    void setSupport(XPathSupport support) {
+        this.support = support;
+    }
 }
@@ -28,6 +28,8 @@ import javax.xml.bind.annotation.XmlTransient;
 import com.faizsiegeln.njams.messageformat.v4.common.SubProcess;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.Activity;
 import com.im.njams.sdk.configuration.ActivityConfiguration;
+import com.im.njams.sdk.configuration.CompiledActivityConfiguration;
+import com.im.njams.sdk.configuration.Configuration;
 import com.im.njams.sdk.configuration.ProcessConfiguration;
 import com.im.njams.sdk.common.IdUtil;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
@@ -63,6 +65,9 @@ public class ActivityModel {
     // internal properties, shall no go to project message
     private final Map<String, Object> properties = new LinkedHashMap<>();
 
+    // the configuration of this activity, rebuilt when the configuration has changed
+    private volatile CompiledActivityConfiguration compiledConfiguration;
+
     /**
      * Create new ActivityModel
      *
@@ -415,6 +420,24 @@ public class ActivityModel {
         }
     }
 
+    /**
+     * Returns the current configuration of this activity. The view is compiled
+     * once and only rebuilt when the configuration of the Njams instance has
+     * changed.
+     *
+     * @return the compiled configuration, never <b>null</b>
+     */
+    public final CompiledActivityConfiguration getCompiledConfiguration() {
+        Configuration configuration = processModel == null ? null : processModel.getNjams().getConfiguration();
+        CompiledActivityConfiguration compiled = compiledConfiguration;
+        if (compiled == null || !compiled.isCompiledFrom(configuration)) {
+            compiled = CompiledActivityConfiguration.compile(configuration,
+                    processModel == null ? null : processModel.getPath().toString(), id);
+            compiledConfiguration = compiled;
+        }
+        return compiled;
+    }
+
     /**
      *
      * @return the ProcessModel
@@ -31,6 +31,8 @@ import com.im.njams.sdk.Njams;
 import com.im.njams.sdk.common.IdUtil;
 import com.im.njams.sdk.common.NjamsSdkRuntimeException;
 import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.configuration.CompiledProcessConfiguration;
+import com.im.njams.sdk.configuration.Configuration;
 import com.im.njams.sdk.configuration.ProcessConfiguration;
 import com.im.njams.sdk.logmessage.Job;
 import com.im.njams.sdk.logmessage.JobImpl;
@@ -64,6 +66,9 @@ public class ProcessModel {
     // internal properties, shall no go to project message
     private final Map<String, Object> properties = new LinkedHashMap<>();
 
+    // the configuration of this process, rebuilt when the configuration has changed
+    private volatile CompiledProcessConfiguration compiledConfiguration;
+
     /**
      * Create a new ProcessModel to Path and connect it to the given Njams
      *
@@ -133,6 +138,23 @@ public class ProcessModel {
         return njams;
     }
 
+    /**
+     * Returns the current configuration of this process. The view is compiled
+     * once and only rebuilt when the configuration of the Njams instance has
+     * changed.
+     *
+     * @return the compiled configuration, never <b>null</b>
+     */
+    public CompiledProcessConfiguration getCompiledConfiguration() {
+        Configuration configuration = njams.getConfiguration();
+        CompiledProcessConfiguration compiled = compiledConfiguration;
+        if (compiled == null || !compiled.isCompiledFrom(configuration)) {
+            compiled = CompiledProcessConfiguration.compile(configuration, path.toString());
+            compiledConfiguration = compiled;
+        }
+        return compiled;
+    }
+
     /**
      *
      * @return Path of this ProcessModel
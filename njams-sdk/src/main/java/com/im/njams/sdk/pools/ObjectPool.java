@@ -18,11 +18,26 @@ package com.im.njams.sdk.pools;
 
 import org.slf4j.LoggerFactory;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * a generic class for pooling objects of any kind
+ * <p>
+ * The pool holds at most maxCapacity objects; if all of them are in use,
+ * {@link #get(long)} waits until one is returned. Idle objects are kept on a
+ * lock-free stack, so the most recently returned object is handed out first,
+ * and an idle object is validated before it is handed out. Objects that are
+ * not needed sink to the bottom of the stack, where {@link #evictIdle()}
+ * expires them after maxIdleTime, keeping at least minIdle objects.
+ * {@link #prewarm()} creates minIdle objects in advance.
+ *
  * @author hsiegeln
  *
  * @param <T> class to store in this pool
@@ -30,11 +45,53 @@ import java.util.Hashtable;
 public abstract class ObjectPool<T extends AutoCloseable> {
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(ObjectPool.class);
 
-    private final Hashtable<T, Long> unlocked, locked;
+    private static final class Idle<T> {
+        private final T object;
+        private final long since;
+
+        private Idle(T object, long since) {
+            this.object = object;
+            this.since = since;
+        }
+    }
+
+    private final int maxCapacity;
+    private final int minIdle;
+    private final long maxIdleTime;
+    // permits for handing out objects, null if the pool is unbounded
+    private final Semaphore available;
+    private final Deque<Idle<T>> unlocked = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger unlockedCount = new AtomicInteger();
+    private final Map<T, Long> locked = new ConcurrentHashMap<>();
+    // locked objects that have been closed by expireAll
+    private final Set<T> expired = ConcurrentHashMap.newKeySet();
+    private final PoolMetrics metrics = new PoolMetrics();
 
+    /**
+     * Creates a pool without minimum idle objects and idle eviction.
+     *
+     * @param maxCapacity the maximum number of objects, 0 or less for an
+     * unbounded pool
+     */
     public ObjectPool(int maxCapacity) {
-        unlocked = new Hashtable<>();
-        locked = new Hashtable<>();
+        this(maxCapacity, 0, 0);
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxCapacity the maximum number of objects, 0 or less for an
+     * unbounded pool
+     * @param minIdle the number of idle objects that are created by
+     * {@link #prewarm()} and kept by {@link #evictIdle()}
+     * @param maxIdleTime the time in milliseconds after which an idle object
+     * is evicted, 0 or less to keep idle objects
+     */
+    public ObjectPool(int maxCapacity, int minIdle, long maxIdleTime) {
+        this.maxCapacity = maxCapacity;
+        this.minIdle = maxCapacity > 0 ? Math.min(minIdle, maxCapacity) : minIdle;
+        this.maxIdleTime = maxIdleTime;
+        available = maxCapacity > 0 ? new Semaphore(maxCapacity) : null;
     }
 
     protected abstract T create();
@@ -43,7 +100,7 @@ public abstract class ObjectPool<T extends AutoCloseable> {
 
     public abstract void expire(T o);
 
-    public synchronized T get() {
+    public T get() {
         return get(-1);
     }
 
@@ -55,62 +112,194 @@ public abstract class ObjectPool<T extends AutoCloseable> {
      * @param timeout timeout in milliseconds
      * @return T T
      */
-    public synchronized T get(long timeout) {
-        LOG.trace("Get locked={}, unlocked={}", locked.size(), unlocked.size());
+    public T get(long timeout) {
+        LOG.trace("Get locked={}, unlocked={}", locked.size(), unlockedCount.get());
+        if (!acquire(timeout)) {
+            return null;
+        }
         T t = null;
-        long now = System.currentTimeMillis();
-        // try to get an object, until timeout expires
-        do {
-            if (unlocked.size() > 0) {
-                Enumeration<T> e = unlocked.keys();
-                while (e.hasMoreElements()) {
-                    t = e.nextElement();
-                    if (validate(t)) {
-                        unlocked.remove(t);
-                        locked.put(t, now);
-                        LOG.trace("Got Sender: " + t);
-                        return t;
-                    } else {
-                        // object failed validation
-                        LOG.debug("Object failed validation!");
-                        unlocked.remove(t);
-                        expire(t);
-                        t = null;
-                    }
-
+        try {
+            t = takeUnlocked();
+            if (t == null) {
+                // no objects available, create a new one
+                t = create();
+                if (t != null) {
+                    metrics.recordCreate();
+                    LOG.trace("Created Sender: " + t);
                 }
             }
-            // no objects available, create a new one
-            t = create();
-            locked.put(t, now);
-        } while (t == null && (timeout < 0 || System.currentTimeMillis() - now < timeout));
-        LOG.trace("Created Sender: " + t);
-        return t;
+            if (t != null) {
+                locked.put(t, System.currentTimeMillis());
+            }
+            return t;
+        } finally {
+            if (t == null) {
+                release();
+            }
+        }
     }
 
-    public synchronized void close(T t) {
-        locked.remove(t);
-        unlocked.put(t, System.currentTimeMillis());
-        LOG.trace("Close locked={}, unlocked={}", locked.size(), unlocked.size());
+    private boolean acquire(long timeout) {
+        if (available == null || available.tryAcquire()) {
+            return true;
+        }
+        if (timeout == 0) {
+            return false;
+        }
+        final long start = System.nanoTime();
+        try {
+            if (timeout < 0) {
+                available.acquire();
+                return true;
+            }
+            return available.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            metrics.recordWait(System.nanoTime() - start);
+        }
     }
 
-    public synchronized void expireAll(){
-        for(T t : locked.keySet()){
-            try {
-                t.close();
-            } catch (Exception e) {
-                LOG.error("Couldn't close {}", t.getClass().getSimpleName());
+    private void release() {
+        if (available != null) {
+            available.release();
+        }
+    }
+
+    private T takeUnlocked() {
+        Idle<T> idle;
+        while ((idle = unlocked.pollFirst()) != null) {
+            unlockedCount.decrementAndGet();
+            if (validate(idle.object)) {
+                LOG.trace("Got Sender: " + idle.object);
+                return idle.object;
             }
+            // object failed validation
+            LOG.debug("Object failed validation!");
+            metrics.recordInvalid();
+            expire(idle.object);
         }
-        locked.clear();
-        for(T t : unlocked.keySet()){
+        return null;
+    }
+
+    public void close(T t) {
+        if (locked.remove(t) == null) {
+            LOG.debug("{} has not been taken from this pool", t);
+            return;
+        }
+        try {
+            if (!expired.remove(t)) {
+                unlocked.offerFirst(new Idle<>(t, System.currentTimeMillis()));
+                unlockedCount.incrementAndGet();
+            }
+        } finally {
+            release();
+        }
+        LOG.trace("Close locked={}, unlocked={}", locked.size(), unlockedCount.get());
+    }
+
+    /**
+     * Creates idle objects until there are minIdle of them.
+     *
+     * @return the number of created objects
+     */
+    public int prewarm() {
+        int created = 0;
+        while (unlockedCount.get() < minIdle && acquire(0)) {
             try {
-                t.close();
-            } catch (Exception e) {
-                LOG.error("Couldn't close {}", t.getClass().getSimpleName());
+                final T t = create();
+                if (t == null) {
+                    break;
+                }
+                metrics.recordCreate();
+                unlocked.offerLast(new Idle<>(t, System.currentTimeMillis()));
+                unlockedCount.incrementAndGet();
+                created++;
+            } finally {
+                release();
+            }
+        }
+        LOG.debug("Prewarmed {} objects", created);
+        return created;
+    }
+
+    /**
+     * Expires the objects that have been idle for longer than maxIdleTime,
+     * keeping at least minIdle idle objects.
+     *
+     * @return the number of expired objects
+     */
+    public int evictIdle() {
+        if (maxIdleTime <= 0) {
+            return 0;
+        }
+        final long idleSince = System.currentTimeMillis() - maxIdleTime;
+        int evicted = 0;
+        Idle<T> oldest;
+        while (unlockedCount.get() > minIdle && (oldest = unlocked.peekLast()) != null && oldest.since <= idleSince) {
+            if (unlocked.removeLastOccurrence(oldest)) {
+                unlockedCount.decrementAndGet();
+                metrics.recordIdleEviction();
+                expire(oldest.object);
+                evicted++;
             }
         }
-        unlocked.clear();
+        if (evicted > 0) {
+            LOG.debug("Evicted {} idle objects", evicted);
+        }
+        return evicted;
+    }
+
+    public void expireAll() {
+        Idle<T> idle;
+        while ((idle = unlocked.pollFirst()) != null) {
+            unlockedCount.decrementAndGet();
+            closeObject(idle.object);
+        }
+        for (T t : locked.keySet()) {
+            // the object is closed now, and dropped when it is returned
+            if (expired.add(t)) {
+                closeObject(t);
+            }
+        }
+    }
+
+    private void closeObject(T t) {
+        try {
+            t.close();
+        } catch (Exception e) {
+            LOG.error("Couldn't close {}", t.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * @return the maximum number of objects, 0 or less if the pool is
+     * unbounded
+     */
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * @return the number of idle objects
+     */
+    public int getIdleCount() {
+        return unlockedCount.get();
+    }
+
+    /**
+     * @return the number of objects in use
+     */
+    public int getActiveCount() {
+        return locked.size();
+    }
+
+    /**
+     * @return the metrics of this pool
+     */
+    public PoolMetrics getMetrics() {
+        return metrics;
     }
 
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.pools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects what happens in an {@link ObjectPool}: how many objects it has
+ * created, how often and how long callers had to wait for an object because
+ * the pool was exhausted, and how many objects it has evicted because they
+ * were idle or failed validation.
+ */
+public class PoolMetrics {
+
+    private final LongAdder createCount = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder totalWait = new LongAdder();
+
+    private final AtomicLong maxWait = new AtomicLong();
+
+    private final LongAdder idleEvictionCount = new LongAdder();
+
+    private final LongAdder invalidCount = new LongAdder();
+
+    void recordCreate() {
+        createCount.increment();
+    }
+
+    void recordWait(long nanos) {
+        long wait = Math.max(0, nanos);
+        waitCount.increment();
+        totalWait.add(wait);
+        maxWait.accumulateAndGet(wait, Math::max);
+    }
+
+    void recordIdleEviction() {
+        idleEvictionCount.increment();
+    }
+
+    void recordInvalid() {
+        invalidCount.increment();
+    }
+
+    /**
+     * @return the number of created objects
+     */
+    public long getCreateCount() {
+        return createCount.sum();
+    }
+
+    /**
+     * @return the number of gets that had to wait for an object
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    /**
+     * @return the average wait of the gets that had to wait, in milliseconds
+     */
+    public long getAverageWaitMillis() {
+        long count = waitCount.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWait.sum() / count);
+    }
+
+    /**
+     * @return the maximum wait of a get in milliseconds
+     */
+    public long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWait.get());
+    }
+
+    /**
+     * @return the number of objects evicted because they have been idle too
+     * long
+     */
+    public long getIdleEvictionCount() {
+        return idleEvictionCount.sum();
+    }
+
+    /**
+     * @return the number of objects evicted because they failed validation
+     */
+    public long getInvalidCount() {
+        return invalidCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics[creates=" + getCreateCount() + ", waits=" + getWaitCount() + ", averageWait="
+                + getAverageWaitMillis() + "ms, maxWait=" + getMaxWaitMillis() + "ms, idleEvictions="
+                + getIdleEvictionCount() + ", invalid=" + getInvalidCount() + "]";
+    }
+}
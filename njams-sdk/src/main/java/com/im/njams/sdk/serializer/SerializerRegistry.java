@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.serializer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable set of registered serializers, together with a cache of the
+ * serializers that have been resolved for concrete classes. Registering or
+ * removing a serializer creates a new registry with an empty cache, so that
+ * lookups never need a lock and never see an outdated resolution.
+ */
+public final class SerializerRegistry {
+
+    /**
+     * The registry without any serializers
+     */
+    public static final SerializerRegistry EMPTY = new SerializerRegistry(Collections.emptyMap());
+
+    // marks classes for which no serializer is registered
+    private static final Serializer<Object> NO_SERIALIZER = o -> null;
+
+    private final Map<Class<?>, Serializer<?>> serializers;
+
+    private final Map<Class<?>, Serializer<?>> resolved = new ConcurrentHashMap<>();
+
+    private SerializerRegistry(Map<Class<?>, Serializer<?>> serializers) {
+        this.serializers = serializers;
+    }
+
+    /**
+     * Returns a new registry that additionally contains the given serializer.
+     *
+     * @param key the class for which the serializer is registered
+     * @param serializer the serializer
+     * @return the new registry
+     */
+    public SerializerRegistry with(Class<?> key, Serializer<?> serializer) {
+        Map<Class<?>, Serializer<?>> copy = new HashMap<>(serializers);
+        copy.put(key, serializer);
+        return new SerializerRegistry(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Returns a new registry without the serializer of the given class.
+     *
+     * @param key the class whose serializer is removed
+     * @return the new registry
+     */
+    public SerializerRegistry without(Class<?> key) {
+        Map<Class<?>, Serializer<?>> copy = new HashMap<>(serializers);
+        copy.remove(key);
+        return new SerializerRegistry(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Returns the serializer that has been registered for exactly the given
+     * class.
+     *
+     * @param <T> type of the class
+     * @param key the class
+     * @return the registered serializer or <b>null</b>
+     */
+    public <T> Serializer<T> get(Class<T> key) {
+        return cast(serializers.get(key));
+    }
+
+    /**
+     * Returns the serializer for the given class. If no serializer is
+     * registered for the class itself, the superclass hierarchy and after
+     * that the interface hierarchy is searched. The result is cached.
+     *
+     * @param <T> type of the class
+     * @param clazz the class for which a serializer is searched
+     * @return the serializer or <b>null</b>
+     */
+    public <T> Serializer<? super T> find(Class<T> clazz) {
+        Serializer<?> cached = resolved.get(clazz);
+        if (cached == null) {
+            cached = resolve(clazz);
+            resolved.put(clazz, cached == null ? NO_SERIALIZER : cached);
+        }
+        return cached == NO_SERIALIZER ? null : cast(cached);
+    }
+
+    // a serializer is registered and resolved for the class it serializes
+    @SuppressWarnings("unchecked")
+    private static <T> Serializer<T> cast(Serializer<?> serializer) {
+        return (Serializer<T>) serializer;
+    }
+
+    private Serializer<?> resolve(Class<?> clazz) {
+        Serializer<?> serializer = serializers.get(clazz);
+        if (serializer == null) {
+            final Class<?> superclass = clazz.getSuperclass();
+            if (superclass != null) {
+                serializer = find(superclass);
+            }
+        }
+        if (serializer == null) {
+            final Class<?>[] interfaces = clazz.getInterfaces();
+            for (int i = 0; i < interfaces.length && serializer == null; i++) {
+                serializer = find(interfaces[i]);
+            }
+        }
+        return serializer;
+    }
+}
@@ -53,6 +53,10 @@ public class Settings {
      * Property njams.client.sdk.flush_interval
      */
     public static final String PROPERTY_FLUSH_INTERVAL = "njams.client.sdk.flush_interval";
+    /**
+     * Property njams.client.sdk.flushworkers
+     */
+    public static final String PROPERTY_FLUSH_WORKERS = "njams.client.sdk.flushworkers";
     /**
      * Property njams.client.sdk.minqueuelength
      */
@@ -65,10 +69,56 @@ public class Settings {
      * Property njams.client.sdk.senderidletime
      */
     public static final String PROPERTY_SENDER_THREAD_IDLE_TIME = "njams.client.sdk.senderthreadidletime";
+    /**
+     * Property njams.client.sdk.senderpoolminidle, the number of connected
+     * senders created when Njams starts and kept when idle senders are
+     * evicted. Default is 1.
+     */
+    public static final String PROPERTY_SENDER_POOL_MIN_IDLE = "njams.client.sdk.senderpoolminidle";
+    /**
+     * Property njams.client.sdk.senderpoolidletime, the time in milliseconds
+     * after which an idle sender is closed. Default is 300000, 0 keeps idle
+     * senders.
+     */
+    public static final String PROPERTY_SENDER_POOL_IDLE_TIME = "njams.client.sdk.senderpoolidletime";
     /**
      * Property njams.client.sdk.discardpolicy
      */
     public static final String PROPERTY_DISCARD_POLICY = "njams.client.sdk.discardpolicy";
+    /**
+     * Property njams.client.sdk.dispatcher, <code>executor</code> (default) or
+     * <code>ringbuffer</code>
+     */
+    public static final String PROPERTY_DISPATCHER = "njams.client.sdk.dispatcher";
+    /**
+     * Property njams.client.sdk.ringbuffersize
+     */
+    public static final String PROPERTY_RING_BUFFER_SIZE = "njams.client.sdk.ringbuffersize";
+    /**
+     * Property njams.client.sdk.ringbufferconsumers
+     */
+    public static final String PROPERTY_RING_BUFFER_CONSUMERS = "njams.client.sdk.ringbufferconsumers";
+    /**
+     * Property njams.client.sdk.waitstrategy, one of <code>blocking</code>
+     * (default), <code>sleeping</code>, <code>yielding</code> or
+     * <code>busy_spin</code>
+     */
+    public static final String PROPERTY_WAIT_STRATEGY = "njams.client.sdk.waitstrategy";
+    /**
+     * Property njams.client.sdk.batchsize, the maximum number of LogMessages
+     * sent in one transmission. 1 (default) disables batching.
+     */
+    public static final String PROPERTY_BATCH_SIZE = "njams.client.sdk.batchsize";
+    /**
+     * Property njams.client.sdk.batchbytes, the maximum number of serialized
+     * bytes sent in one transmission
+     */
+    public static final String PROPERTY_BATCH_BYTES = "njams.client.sdk.batchbytes";
+    /**
+     * Property njams.client.sdk.batchlinger, the maximum time in milliseconds
+     * a LogMessage waits for its batch to be closed
+     */
+    public static final String PROPERTY_BATCH_LINGER = "njams.client.sdk.batchlinger";
     /**
      * Property njams.client.sdk.instantpush
      */
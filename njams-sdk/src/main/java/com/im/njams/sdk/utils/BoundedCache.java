@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache that holds at most a given number of entries. Reads do
+ * not lock. If the cache is full when a new entry is added, an arbitrary entry
+ * is evicted, so entries that are not used anymore (e.g. rules that have been
+ * reconfigured) do not stay in memory forever.
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ */
+public class BoundedCache<K, V> {
+
+    private final Map<K, V> cache = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    /**
+     * Creates a cache with the given maximum size.
+     *
+     * @param maxSize the maximum number of entries, must be greater than 0
+     */
+    public BoundedCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached value of the given key, or <b>null</b> if there is
+     * none.
+     *
+     * @param key the key
+     * @return the cached value or <b>null</b>
+     */
+    public V get(K key) {
+        return cache.get(key);
+    }
+
+    /**
+     * Returns the cached value of the given key. If there is none, it is
+     * created with the given loader and cached, unless the loader returns
+     * <b>null</b>. The loader may be called concurrently for the same key, only
+     * one of the values is kept.
+     *
+     * @param key the key
+     * @param loader creates the value for the key
+     * @return the cached value, or <b>null</b> if the loader returned null
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = cache.get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                if (cache.size() >= maxSize) {
+                    evict();
+                }
+                V existing = cache.putIfAbsent(key, value);
+                if (existing != null) {
+                    value = existing;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Caches the given value for the given key.
+     *
+     * @param key the key
+     * @param value the value, must not be null
+     */
+    public void put(K key, V value) {
+        if (cache.size() >= maxSize && !cache.containsKey(key)) {
+            evict();
+        }
+        cache.put(key, value);
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    private void evict() {
+        Iterator<K> keys = cache.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
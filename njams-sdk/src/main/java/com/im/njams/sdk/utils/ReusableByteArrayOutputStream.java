@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.utils;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * ByteArrayOutputStream whose buffer can be used without copying it, so it
+ * can be reused for every message a sender serializes. After a large message
+ * the buffer can be released, so that a single outlier does not stay
+ * allocated.
+ */
+public class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private final int initialSize;
+
+    /**
+     * Creates the stream with the given initial buffer size.
+     *
+     * @param initialSize the initial size of the buffer
+     */
+    public ReusableByteArrayOutputStream(int initialSize) {
+        super(initialSize);
+        this.initialSize = initialSize;
+    }
+
+    /**
+     * Returns the internal buffer. Only the first {@link #size()} bytes are
+     * valid, and the content is overwritten when the stream is reset.
+     *
+     * @return the internal buffer
+     */
+    public synchronized byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Resets the stream, and replaces the buffer by a buffer of the initial
+     * size if it has grown beyond the given size.
+     *
+     * @param maxRetainedSize the maximum size of the buffer that is kept
+     */
+    public synchronized void reset(int maxRetainedSize) {
+        if (buf.length > maxRetainedSize) {
+            buf = new byte[initialSize];
+        }
+        count = 0;
+    }
+}
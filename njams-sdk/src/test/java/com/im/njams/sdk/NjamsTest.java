@@ -25,14 +25,20 @@ import com.im.njams.sdk.common.Path;
 import com.im.njams.sdk.communication.ReplayHandler;
 import com.im.njams.sdk.communication.ReplayRequest;
 import com.im.njams.sdk.communication.ReplayResponse;
+import com.im.njams.sdk.logmessage.DataMasking;
+import com.im.njams.sdk.logmessage.DataMaskingRules;
 import com.im.njams.sdk.logmessage.Job;
 import com.im.njams.sdk.model.ProcessModel;
 import com.im.njams.sdk.settings.Settings;
 import com.im.njams.sdk.serializer.Serializer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.Before;
@@ -76,6 +82,38 @@ public class NjamsTest {
         assertEquals("list", serialized);
     }
 
+    @Test
+    public void testSerializerCacheIsInvalidated() {
+        assertEquals("[]", instance.serialize(new ArrayList<>()));
+        assertNull(instance.findSerializer(ArrayList.class));
+
+        instance.addSerializer(List.class, l -> "list");
+        assertEquals("list", instance.serialize(new ArrayList<>()));
+
+        instance.removeSerializer(List.class);
+        assertEquals("[]", instance.serialize(new ArrayList<>()));
+    }
+
+    @Test
+    public void testSlowSerializerDoesNotBlockOtherSerializations() throws InterruptedException {
+        CountDownLatch serializing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        instance.addSerializer(LinkedList.class, l -> {
+            serializing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "slow";
+        });
+        Thread slow = new Thread(() -> instance.serialize(new LinkedList<>()));
+        slow.start();
+        assertTrue(serializing.await(5, TimeUnit.SECONDS));
+
+        //the slow serializer is still running
+        assertEquals("[]", instance.serialize(new ArrayList<>()));
+        assertTrue(slow.isAlive());
+        release.countDown();
+        slow.join(5000);
+    }
+
     @Test(expected = NjamsSdkRuntimeException.class)
     public void testAddJobWithoutStart() {
         ProcessModel model = new ProcessModel(new Path("PROCESSES"), instance);
@@ -162,4 +200,29 @@ public class NjamsTest {
         assertEquals("Error while executing replay: TestException", resp.getResultMessage());
         assertEquals("java.lang.RuntimeException: TestException", inst.getResponseParameterByName("Exception"));
     }
+
+    @Test
+    public void testDataMaskingIsPerInstance() {
+        Njams other = new Njams(new Path("OTHER"), "", "", new Settings());
+        instance.setDataMasking(Arrays.asList("secret", "IBAN: \\w+"));
+        other.setDataMasking(Collections.singletonList("password"));
+
+        String data = "secret password IBAN: DE1542346541531";
+        assertEquals("****** password *********************", DataMasking.maskString(instance, data));
+        assertEquals("secret ******** IBAN: DE1542346541531", DataMasking.maskString(other, data));
+        assertEquals(Arrays.asList("secret", "IBAN: \\w+"), instance.getConfiguration().getDataMasking());
+    }
+
+    @Test
+    public void testDataMaskingIsReplacedAsAWhole() {
+        instance.setDataMasking(Collections.singletonList("secret"));
+        DataMaskingRules rules = instance.getDataMaskingRules();
+        instance.setDataMasking(Collections.singletonList("password"));
+
+        // rules already in use are not changed
+        assertEquals("******", rules.mask("secret"));
+        assertEquals("secret ********", DataMasking.maskString(instance, "secret password"));
+        instance.setDataMasking(null);
+        assertSame(DataMaskingRules.EMPTY, instance.getDataMaskingRules());
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.client;
+
+import com.im.njams.sdk.AbstractTest;
+import com.im.njams.sdk.logmessage.JobImpl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the FlushDeadlineQueue
+ */
+public class FlushDeadlineQueueTest extends AbstractTest {
+
+    private FlushDeadlineQueue queue;
+
+    @Before
+    public void createQueue() {
+        queue = new FlushDeadlineQueue();
+    }
+
+    @Test
+    public void testPollDueReturnsJobsInDeadlineOrder() {
+        JobImpl late = createDefaultJob();
+        JobImpl early = createDefaultJob();
+        queue.schedule(late, 200);
+        queue.schedule(early, 100);
+
+        assertNull(queue.pollDue(99));
+        FlushDeadlineQueue.Deadline due = queue.pollDue(200);
+        assertEquals(early, due.getJob());
+        assertEquals(100, due.getDeadline());
+        assertEquals(late, queue.pollDue(200).getJob());
+        assertNull(queue.pollDue(200));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testRescheduleInvalidatesOldDeadline() {
+        JobImpl job = createDefaultJob();
+        queue.schedule(job, 100);
+        queue.schedule(job, 300);
+        assertEquals(1, queue.size());
+
+        assertNull(queue.pollDue(200));
+        assertEquals(job, queue.pollDue(300).getJob());
+        assertNull(queue.pollDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRescheduleToEarlierDeadline() {
+        JobImpl job = createDefaultJob();
+        queue.schedule(job, 300);
+        queue.schedule(job, 100);
+
+        assertEquals(job, queue.pollDue(100).getJob());
+        assertNull(queue.pollDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testRemove() {
+        JobImpl job = createDefaultJob();
+        queue.schedule(job, 100);
+        queue.remove(job);
+
+        assertEquals(0, queue.size());
+        assertNull(queue.pollDue(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.client;
+
+import com.im.njams.sdk.AbstractTest;
+import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.communication.TestSender;
+import com.im.njams.sdk.logmessage.JobImpl;
+import com.im.njams.sdk.settings.Settings;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the LMFTEntry
+ */
+public class LMFTEntryTest extends AbstractTest {
+
+    @Test
+    public void testDefaultFlushWorkers() {
+        LMFTEntry entry = new LMFTEntry(njams);
+        assertEquals(1, entry.getFlushWorkerCount());
+        entry.shutdownFlushWorkers();
+    }
+
+    @Test
+    public void testJobsArePartitionedOverFlushWorkers() {
+        Settings settings = TestSender.getSettings();
+        settings.getProperties().setProperty(Settings.PROPERTY_FLUSH_WORKERS, "4");
+        Njams workerNjams = new Njams(new Path("SDK4", "WORKERS"), CLIENTVERSION, CATEGORY, settings);
+        LMFTEntry entry = new LMFTEntry(workerNjams);
+        assertEquals(4, entry.getFlushWorkerCount());
+
+        Set<ExecutorService> usedWorkers = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            JobImpl job = createDefaultJob();
+            //a job is always handled by the same worker
+            assertSame(entry.getFlushWorker(job), entry.getFlushWorker(job));
+            usedWorkers.add(entry.getFlushWorker(job));
+        }
+        assertEquals(4, usedWorkers.size());
+        entry.shutdownFlushWorkers();
+    }
+
+    @Test
+    public void testFlushWorkerQueueIsBounded() throws InterruptedException {
+        LMFTEntry entry = new LMFTEntry(njams);
+        ExecutorService flushWorker = entry.getFlushWorker(createDefaultJob());
+        CountDownLatch release = new CountDownLatch(1);
+        flushWorker.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            for (int i = 0; i < LMFTEntry.FLUSH_QUEUE_CAPACITY; i++) {
+                flushWorker.execute(() -> {
+                });
+            }
+            flushWorker.execute(() -> {
+            });
+            fail("the full queue should reject the flush");
+        } catch (RejectedExecutionException expected) {
+            assertFalse(flushWorker.isShutdown());
+        } finally {
+            release.countDown();
+            entry.shutdownFlushWorkers();
+        }
+    }
+
+    @Test
+    public void testFlushMetrics() {
+        FlushMetrics metrics = new FlushMetrics();
+        assertEquals(0, metrics.getAverageLagMillis());
+        metrics.record(10);
+        metrics.record(30);
+        metrics.record(-5);
+        assertEquals(3, metrics.getFlushCount());
+        assertEquals(13, metrics.getAverageLagMillis());
+        assertEquals(30, metrics.getMaxLagMillis());
+    }
+}
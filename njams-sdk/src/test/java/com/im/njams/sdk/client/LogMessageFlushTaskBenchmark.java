@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.client;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.common.DateTimeUtility;
+import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.communication.TestSender;
+import com.im.njams.sdk.logmessage.Job;
+import com.im.njams.sdk.logmessage.JobImpl;
+import com.im.njams.sdk.model.ProcessModel;
+
+/**
+ * Compares the cost of one LogMessageFlushTask run with the former full scan
+ * over all jobs, depending on the number of running jobs. None of the jobs is
+ * due, which is the common case for long running jobs.
+ * <p>
+ * Run it with the main method of this class from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogMessageFlushTaskBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    private int jobCount;
+
+    private Njams njams;
+
+    private LogMessageFlushTask task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        njams = new Njams(new Path("SDK4", "BENCHMARK"), "TEST", "SDK4", TestSender.getSettings());
+        ProcessModel process = njams.createProcess(new Path("PROCESSES"));
+        njams.start();
+        for (int i = 0; i < jobCount; i++) {
+            process.createJob().start();
+        }
+        task = new LogMessageFlushTask();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        njams.stop();
+    }
+
+    /**
+     * One run of the LogMessageFlushTask.
+     */
+    @Benchmark
+    public void deadlineQueueTick() {
+        task.run();
+    }
+
+    /**
+     * The check that has been done for every job on every run before.
+     *
+     * @param blackhole consumes the result
+     */
+    @Benchmark
+    public void fullScanTick(Blackhole blackhole) {
+        LocalDateTime boundary = DateTimeUtility.now().minusSeconds(30);
+        for (Job jobParam : njams.getJobs()) {
+            JobImpl job = (JobImpl) jobParam;
+            blackhole.consume((job.getLastFlush().isBefore(boundary) || job.getEstimatedSize() > 5242880L)
+                    && (!job.getActivities().isEmpty() || !job.getAttributes().isEmpty()
+                    || job.getEndTime() != null));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogMessageFlushTaskBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -19,9 +19,15 @@ package com.im.njams.sdk.client;
 import com.faizsiegeln.njams.messageformat.v4.logmessage.ActivityStatus;
 
 import com.im.njams.sdk.AbstractTest;
+import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.communication.TestSender;
 import com.im.njams.sdk.logmessage.Activity;
 import com.im.njams.sdk.logmessage.JobImpl;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -63,8 +69,97 @@ public class LogMessageFlushTaskTest extends AbstractTest{
         assertTrue(job.getActivities().isEmpty());
         assertFalse(njams.getJobs().isEmpty());
     }   
-    
-    
+
+    /**
+     * A job that exceeds the flush size is flushed by the flush worker without
+     * waiting for the flush interval.
+     */
+    @Test
+    public void testFlushWhenFlushSizeIsExceeded() throws InterruptedException {
+        LogMessageFlushTask.start(njams);
+        JobImpl job = createDefaultStartedJob();
+        Activity activity = createDefaultActivity(job);
+        activity.setActivityStatus(ActivityStatus.SUCCESS);
+        assertFalse(job.getActivities().isEmpty());
+
+        job.addToEstimatedSize(Long.parseLong(LMFTEntry.DEFAULT_FLUSH_SIZE));
+        for (int i = 0; i < 50 && !job.getActivities().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        //The finished activity has been flushed
+        assertTrue(job.getActivities().isEmpty());
+        assertTrue(job.getEstimatedSize() < Long.parseLong(LMFTEntry.DEFAULT_FLUSH_SIZE));
+        assertEquals(1, LogMessageFlushTask.getFlushMetrics(njams).getFlushCount());
+    }
+
+    /**
+     * A job that exceeds the flush size while its flush worker is busy is
+     * flushed by the next run instead of after the flush interval.
+     */
+    @Test
+    public void testFlushWhenFlushSizeIsExceededAndWorkerIsBusy() throws InterruptedException {
+        LogMessageFlushTask.start(njams);
+        JobImpl job = createDefaultStartedJob();
+        Activity activity = createDefaultActivity(job);
+        activity.setActivityStatus(ActivityStatus.SUCCESS);
+        ExecutorService flushWorker = LogMessageFlushTask.getEntry(njams).getFlushWorker(job);
+        CountDownLatch release = new CountDownLatch(1);
+        flushWorker.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < LMFTEntry.FLUSH_QUEUE_CAPACITY; i++) {
+            flushWorker.execute(() -> {
+            });
+        }
+
+        //the flush request is rejected
+        job.addToEstimatedSize(Long.parseLong(LMFTEntry.DEFAULT_FLUSH_SIZE));
+        release.countDown();
+        for (int i = 0; i < 50 && !job.getActivities().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(job.getActivities().isEmpty());
+        LogMessageFlushTask.stop(njams);
+    }
+
+    /**
+     * Stopping an instance waits for its flush workers without blocking the
+     * start of another instance.
+     */
+    @Test
+    public void testStopDoesNotBlockOtherInstances() throws InterruptedException {
+        LogMessageFlushTask.start(njams);
+        JobImpl job = createDefaultStartedJob();
+        CountDownLatch release = new CountDownLatch(1);
+        LogMessageFlushTask.getEntry(njams).getFlushWorker(job).execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread stopping = new Thread(() -> LogMessageFlushTask.stop(njams));
+        stopping.start();
+        for (int i = 0; i < 50 && LogMessageFlushTask.getEntry(njams) != null; i++) {
+            Thread.sleep(100);
+        }
+        Njams other = new Njams(new Path("SDK4", "OTHER"), CLIENTVERSION, CATEGORY, TestSender.getSettings());
+        try {
+            long started = System.currentTimeMillis();
+            LogMessageFlushTask.start(other);
+            assertTrue(System.currentTimeMillis() - started < 5000);
+            assertTrue(stopping.isAlive());
+        } finally {
+            release.countDown();
+            stopping.join();
+            LogMessageFlushTask.stop(other);
+        }
+    }
+
     /**
      * This test isn't useful anymore, because njams needs to be started before
      * it can add jobs.
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the BatchBody
+ */
+public class BatchBodyTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private Properties createProperties(String logId) {
+        Properties properties = new Properties();
+        properties.put(Sender.NJAMS_LOGID, logId);
+        properties.put(Sender.NJAMS_MESSAGETYPE, Sender.NJAMS_MESSAGETYPE_EVENT);
+        return properties;
+    }
+
+    @Test
+    public void testEmptyBody() throws Exception {
+        BatchBody body = new BatchBody(100);
+        assertTrue(body.isEmpty());
+        assertEquals(0, mapper.readTree(body.toByteArray()).size());
+    }
+
+    @Test
+    public void testPropertiesArePreservedPerMessage() throws Exception {
+        BatchBody body = new BatchBody(1000);
+        assertTrue(body.add(createProperties("a"), "{\"logId\":\"a\"}"));
+        assertTrue(body.add(createProperties("bä"), "{\"logId\":\"bä\"}"));
+        assertEquals(2, body.getCount());
+        JsonNode array = mapper.readTree(body.toByteArray());
+        assertEquals(2, array.size());
+        assertEquals("a", array.get(0).get("properties").get(Sender.NJAMS_LOGID).asText());
+        assertEquals("a", array.get(0).get("message").get("logId").asText());
+        assertEquals("bä", array.get(1).get("properties").get(Sender.NJAMS_LOGID).asText());
+        assertEquals(Sender.NJAMS_MESSAGETYPE_EVENT,
+                array.get(1).get("properties").get(Sender.NJAMS_MESSAGETYPE).asText());
+        assertEquals("bä", array.get(1).get("message").get("logId").asText());
+    }
+
+    @Test
+    public void testEncodedMessage() throws Exception {
+        byte[] data = "{\"logId\":\"bä\"}trailing".getBytes(StandardCharsets.UTF_8);
+        BatchBody body = new BatchBody(1000);
+        assertTrue(body.add(createProperties("bä"), data, data.length - "trailing".length()));
+        JsonNode array = mapper.readTree(body.toByteArray());
+        assertEquals(1, array.size());
+        assertEquals("bä", array.get(0).get("message").get("logId").asText());
+    }
+
+    @Test
+    public void testByteLimit() throws Exception {
+        String message = "{\"data\":\"0123456789\"}";
+        BatchBody body = new BatchBody(150);
+        int count = 0;
+        while (body.add(createProperties("id"), message)) {
+            count++;
+        }
+        assertEquals(count, body.getCount());
+        assertTrue(count > 0);
+        assertTrue(body.toByteArray().length <= 150);
+        assertEquals(count, mapper.readTree(body.toByteArray()).size());
+    }
+
+    @Test
+    public void testEmptyBodyAcceptsOversizedMessage() throws Exception {
+        BatchBody body = new BatchBody(10);
+        assertTrue(body.add(createProperties("id"), "{\"data\":\"0123456789\"}"));
+        assertFalse(body.add(createProperties("id"), "{}"));
+        assertEquals(1, mapper.readTree(body.toByteArray()).size());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.im.njams.sdk.settings.Settings;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the LogMessageBatcher
+ */
+public class LogMessageBatcherTest {
+
+    private final BlockingQueue<List<LogMessage>> batches = new LinkedBlockingQueue<>();
+
+    private LogMessageBatcher createBatcher(int batchSize, long linger) {
+        Properties properties = new Properties();
+        properties.setProperty(Settings.PROPERTY_BATCH_SIZE, String.valueOf(batchSize));
+        properties.setProperty(Settings.PROPERTY_BATCH_LINGER, String.valueOf(linger));
+        return new LogMessageBatcher(properties, Executors.defaultThreadFactory(), batches::add);
+    }
+
+    @Test
+    public void testBatchSizeIsDisabledByDefault() {
+        assertEquals(1, LogMessageBatcher.getBatchSize(new Properties()));
+    }
+
+    @Test
+    public void testFullBatchIsShippedImmediately() {
+        LogMessageBatcher batcher = createBatcher(3, 60000);
+        LogMessage first = new LogMessage();
+        batcher.add(first);
+        batcher.add(new LogMessage());
+        assertTrue(batches.isEmpty());
+        batcher.add(new LogMessage());
+        assertEquals(1, batches.size());
+        List<LogMessage> batch = batches.poll();
+        assertEquals(3, batch.size());
+        assertSame(first, batch.get(0));
+        batcher.close();
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testLingeringBatchIsShipped() throws InterruptedException {
+        LogMessageBatcher batcher = createBatcher(100, 20);
+        batcher.add(new LogMessage());
+        batcher.add(new LogMessage());
+        List<LogMessage> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(2, batch.size());
+        batcher.add(new LogMessage());
+        batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(1, batch.size());
+        batcher.close();
+    }
+
+    @Test
+    public void testCloseShipsRemainingMessages() {
+        LogMessageBatcher batcher = createBatcher(100, 60000);
+        batcher.add(new LogMessage());
+        batcher.close();
+        assertEquals(1, batches.poll().size());
+        batcher.add(new LogMessage());
+        assertEquals(1, batches.poll().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLingerMustBePositive() {
+        createBatcher(10, 0);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.settings.Settings;
+
+/**
+ * Compares the throughput of the NjamsSender with the ThreadPoolExecutor and
+ * with the RingBufferDispatcher, with and without batching of LogMessages.
+ * Every invocation sends a burst of messages from several threads and waits
+ * until all of them have been handed to the sender. The sender mock can
+ * simulate the fixed cost of a transmission, like a broker round-trip.
+ * <p>
+ * Run it with the main method of this class from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class NjamsSenderBenchmark {
+
+    private static final int BURST = 1000;
+
+    private static final AtomicLong DELIVERED = new AtomicLong();
+
+    @Param({"executor", "ringbuffer"})
+    private String dispatcher;
+
+    @Param({"blocking", "yielding"})
+    private String waitStrategy;
+
+    @Param({"1", "64"})
+    private String batchSize;
+
+    @Param({"0", "50"})
+    private long transmissionMicros;
+
+    private Njams njams;
+
+    private NjamsSender sender;
+
+    private final LogMessage message = new LogMessage();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TestSender.setSenderMock(new Sender() {
+            @Override
+            public void init(Properties properties) {
+            }
+
+            @Override
+            public void send(CommonMessage msg) {
+                transmit();
+                DELIVERED.incrementAndGet();
+            }
+
+            @Override
+            public void sendBatch(List<LogMessage> msgs) {
+                transmit();
+                DELIVERED.addAndGet(msgs.size());
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public String getName() {
+                return TestSender.NAME;
+            }
+        });
+        Settings settings = TestSender.getSettings();
+        settings.getProperties().setProperty(Settings.PROPERTY_DISPATCHER, dispatcher);
+        settings.getProperties().setProperty(Settings.PROPERTY_WAIT_STRATEGY, waitStrategy);
+        settings.getProperties().setProperty(Settings.PROPERTY_BATCH_SIZE, batchSize);
+        njams = new Njams(new Path("SDK4", "BENCHMARK"), "TEST", "SDK4", settings);
+        sender = new NjamsSender(njams, settings);
+    }
+
+    private void transmit() {
+        if (transmissionMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(transmissionMicros));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sender.close();
+        TestSender.setSenderMock(null);
+    }
+
+    /**
+     * Sends a burst of messages and waits until they have been sent.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void sendBurst() {
+        long target = DELIVERED.get() + BURST;
+        for (int i = 0; i < BURST; i++) {
+            sender.send(message);
+        }
+        while (DELIVERED.get() < target) {
+            Thread.yield();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NjamsSenderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
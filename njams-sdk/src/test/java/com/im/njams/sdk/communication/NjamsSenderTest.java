@@ -154,6 +154,129 @@ public class NjamsSenderTest extends AbstractTest {
         executor.getLargestPoolSize();
     }
 
+    @Test
+    public void testRingBufferNjamsSender() {
+        AtomicInteger delivered = new AtomicInteger();
+        TestSender.setSenderMock(new Sender() {
+            @Override
+            public void init(Properties properties) {
+            }
+
+            @Override
+            public void send(CommonMessage msg) {
+                if (msg instanceof LogMessage) {
+                    delivered.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public String getName() {
+                return TestSender.NAME;
+            }
+        });
+        try {
+            Settings settings = new Settings();
+            Properties props = new Properties();
+            props.put(CommunicationFactory.COMMUNICATION, TestSender.NAME);
+            props.put(Settings.PROPERTY_DISPATCHER, "ringbuffer");
+            props.put(Settings.PROPERTY_RING_BUFFER_SIZE, "16");
+            props.put(Settings.PROPERTY_RING_BUFFER_CONSUMERS, "3");
+            settings.setProperties(props);
+            NjamsSender sender = new NjamsSender(njams, settings);
+            assertNull(sender.getExecutor());
+            RingBufferDispatcher dispatcher = sender.getDispatcher();
+            assertEquals(16, dispatcher.getCapacity());
+            for (int i = 0; i < 1000; i++) {
+                sender.send(new LogMessage());
+            }
+            sender.close();
+            assertEquals(0, dispatcher.getQueueSize());
+            assertEquals(1000, delivered.get());
+        } finally {
+            TestSender.setSenderMock(null);
+        }
+    }
+
+    @Test
+    public void testRingBufferDiscardsAfterClose() throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        Properties props = new Properties();
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(props, Thread::new,
+                (batch, count) -> sent.addAndGet(count));
+        dispatcher.dispatch(new LogMessage());
+        assertTrue(dispatcher.close(5, TimeUnit.SECONDS));
+        assertEquals(1, sent.get());
+
+        // the consumers have exited, nothing would send the message
+        dispatcher.dispatch(new LogMessage());
+        assertEquals(0, dispatcher.getQueueSize());
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    public void testBatchingNjamsSender() {
+        assertBatches("executor");
+    }
+
+    @Test
+    public void testBatchingRingBufferNjamsSender() {
+        assertBatches("ringbuffer");
+    }
+
+    private void assertBatches(String dispatcher) {
+        AtomicInteger delivered = new AtomicInteger();
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        TestSender.setSenderMock(new Sender() {
+            @Override
+            public void init(Properties properties) {
+            }
+
+            @Override
+            public void send(CommonMessage msg) {
+                if (msg instanceof LogMessage) {
+                    fail("LogMessage has not been batched");
+                }
+            }
+
+            @Override
+            public void sendBatch(List<LogMessage> msgs) {
+                batchSizes.add(msgs.size());
+                delivered.addAndGet(msgs.size());
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public String getName() {
+                return TestSender.NAME;
+            }
+        });
+        try {
+            Settings settings = new Settings();
+            Properties props = new Properties();
+            props.put(CommunicationFactory.COMMUNICATION, TestSender.NAME);
+            props.put(Settings.PROPERTY_DISPATCHER, dispatcher);
+            props.put(Settings.PROPERTY_BATCH_SIZE, "10");
+            props.put(Settings.PROPERTY_BATCH_LINGER, "50");
+            settings.setProperties(props);
+            NjamsSender sender = new NjamsSender(njams, settings);
+            for (int i = 0; i < 995; i++) {
+                sender.send(new LogMessage());
+            }
+            sender.close();
+            assertEquals(995, delivered.get());
+            assertTrue(batchSizes.stream().allMatch(size -> size > 0 && size <= 10));
+            assertTrue(batchSizes.size() < 995);
+        } finally {
+            TestSender.setSenderMock(null);
+        }
+    }
 
     /**
      * The TRIES in ExceptionSender +1 senders should be reconnected at the end
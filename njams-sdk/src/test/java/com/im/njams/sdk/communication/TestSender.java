@@ -16,6 +16,7 @@
  */
 package com.im.njams.sdk.communication;
 
+import java.util.List;
 import java.util.Properties;
 
 import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
@@ -85,6 +86,13 @@ public class TestSender extends AbstractSender {
         }
     }
 
+    @Override
+    public void sendBatch(List<LogMessage> msgs) {
+        if (sender != null) {
+            sender.sendBatch(msgs);
+        }
+    }
+
     @Override
     public void close() {
         if (sender != null) {
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the throughput of the HttpSender against a local HTTP server that
+ * stands in for the nJAMS server, with small and large LogMessages, with and
+ * without gzip compression. Every benchmark thread uses its own sender, like
+ * the threads of the NjamsSender do.
+ * <p>
+ * Run it with the main method of this class from the test classpath. The
+ * local server is started with TCP_NODELAY, otherwise the delayed ACKs of the
+ * loopback interface dominate the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@Threads(4)
+public class HttpSenderBenchmark {
+
+    @Param({"none", "gzip"})
+    private String compression;
+
+    @Param({"200", "50000"})
+    private int payloadSize;
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private Properties properties;
+
+    private LogMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/event", exchange -> {
+            byte[] bytes = new byte[8192];
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read(bytes) > 0) {
+                    // discard
+                }
+            }
+            exchange.sendResponseHeaders(200, 0);
+            exchange.close();
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        properties = new Properties();
+        properties.setProperty(HttpSender.SENDER_URL,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/event");
+        properties.setProperty(HttpSender.SENDER_COMPRESSION, compression);
+
+        StringBuilder payload = new StringBuilder(payloadSize);
+        for (int i = 0; i < payloadSize; i++) {
+            payload.append((char) ('a' + i % 26));
+        }
+        message = new LogMessage();
+        message.setLogId("4711");
+        message.setPath(">SDK4>BENCHMARK>");
+        message.addAtribute("payload", payload.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * The sender of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class SenderState {
+
+        private HttpSender sender;
+
+        @Setup(Level.Trial)
+        public void setUp(HttpSenderBenchmark benchmark) {
+            sender = new HttpSender();
+            sender.init(benchmark.properties);
+        }
+    }
+
+    /**
+     * Sends one LogMessage.
+     *
+     * @param state the sender of this thread
+     */
+    @Benchmark
+    public void send(SenderState state) {
+        state.sender.send(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(HttpSenderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
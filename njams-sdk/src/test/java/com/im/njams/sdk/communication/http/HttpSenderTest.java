@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+import com.im.njams.sdk.settings.Settings;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the HttpSender against a local HTTP server.
+ */
+public class HttpSenderTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failFrom = Integer.MAX_VALUE;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/event", exchange -> {
+            byte[] bytes = new byte[8192];
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read(bytes) > 0) {
+                    // discard
+                }
+            }
+            exchange.sendResponseHeaders(requests.incrementAndGet() >= failFrom ? 500 : 200, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private HttpSender createSender() {
+        Properties properties = new Properties();
+        properties.setProperty(HttpSender.SENDER_URL, "http://127.0.0.1:" + server.getAddress().getPort() + "/event");
+        // every message is sent on its own
+        properties.setProperty(Settings.PROPERTY_BATCH_BYTES, "1");
+        HttpSender sender = new HttpSender();
+        sender.init(properties);
+        return sender;
+    }
+
+    private static LogMessage createLogMessage(String logId) {
+        LogMessage message = new LogMessage();
+        message.setLogId(logId);
+        message.setPath(">SDK4>TEST>");
+        return message;
+    }
+
+    @Test
+    public void testFailedBatchKeepsOnlyUnsentMessages() {
+        HttpSender sender = createSender();
+        failFrom = 2;
+        LogMessage first = createLogMessage("1");
+        LogMessage second = createLogMessage("2");
+        LogMessage third = createLogMessage("3");
+        List<LogMessage> msgs = new ArrayList<>(Arrays.asList(first, second, third));
+
+        try {
+            sender.sendLogMessages(msgs);
+            fail();
+        } catch (NjamsSdkRuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // the first message has been sent, a retry must not send it again
+        assertEquals(2, msgs.size());
+        assertSame(second, msgs.get(0));
+        assertSame(third, msgs.get(1));
+        sender.close();
+    }
+
+    @Test
+    public void testSentBatchIsCleared() {
+        HttpSender sender = createSender();
+        List<LogMessage> msgs = new ArrayList<>(Arrays.asList(createLogMessage("1"), createLogMessage("2")));
+
+        sender.sendLogMessages(msgs);
+
+        assertTrue(msgs.isEmpty());
+        assertEquals(2, requests.get());
+        sender.close();
+    }
+}
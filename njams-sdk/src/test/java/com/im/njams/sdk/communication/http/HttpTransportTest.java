@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the HttpTransport against a local HTTP server.
+ */
+public class HttpTransportTest {
+
+    private HttpServer server;
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final List<String> encodings = new CopyOnWriteArrayList<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile int responseCode = 200;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/event", exchange -> {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(encoding)) {
+                in = new GZIPInputStream(in);
+            }
+            bodies.add(new String(readFully(in), StandardCharsets.UTF_8));
+            encodings.add(String.valueOf(encoding));
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(responseCode, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private HttpTransport createTransport(boolean gzip) throws IOException {
+        return new HttpTransport(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/event"),
+                HttpTransport.DEFAULT_MAX_CONNECTIONS, gzip);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = new byte[1024];
+        int read;
+        while ((read = in.read(bytes)) > 0) {
+            out.write(bytes, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testBodyIsUtf8() throws IOException {
+        String body = "{\"path\":\">Prozeß>€uro>\"}";
+        String response = createTransport(false).post(out -> out.write(body.getBytes(StandardCharsets.UTF_8)),
+                new Properties());
+        assertTrue(response.startsWith("rc = 200"));
+        assertEquals(body, bodies.get(0));
+        assertEquals("null", encodings.get(0));
+    }
+
+    @Test
+    public void testGzipBody() throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            body.append((char) ('a' + i % 26));
+        }
+        HttpTransport transport = createTransport(true);
+        transport.post(out -> out.write(body.toString().getBytes(StandardCharsets.UTF_8)), new Properties());
+        assertEquals(body.toString(), bodies.get(0));
+        assertEquals("gzip", encodings.get(0));
+    }
+
+    @Test
+    public void testMaxConnectionsAreReleasedWithLastTransport() throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/limit");
+        HttpTransport first = new HttpTransport(url, 2, false);
+        HttpTransport second = new HttpTransport(url, 3, false);
+        assertEquals(2, second.getMaxConnections());
+
+        // closing twice does not release the bound of the open transport
+        first.close();
+        first.close();
+        HttpTransport third = new HttpTransport(url, 4, false);
+        assertEquals(2, third.getMaxConnections());
+
+        second.close();
+        third.close();
+        HttpTransport fourth = new HttpTransport(url, 4, false);
+        assertEquals(4, fourth.getMaxConnections());
+        fourth.close();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws IOException {
+        HttpTransport transport = createTransport(false);
+        for (int i = 0; i < 10; i++) {
+            String body = "{\"i\":" + i + "}";
+            transport.post(out -> out.write(body.getBytes(StandardCharsets.UTF_8)), new Properties());
+        }
+        assertEquals(10, bodies.size());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void testConnectionIsReusedAfterErrorResponse() throws IOException {
+        HttpTransport transport = createTransport(false);
+        responseCode = 500;
+        try {
+            transport.post(out -> out.write('1'), new Properties());
+            fail("error response expected");
+        } catch (IOException expected) {
+            // the error response has been read
+        }
+        responseCode = 200;
+        transport.post(out -> out.write('2'), new Properties());
+        assertEquals(2, bodies.size());
+        assertEquals(1, clientPorts.size());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.communication.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * This class tests the SharedSslContext against a local HTTPS server with a
+ * self-signed certificate.
+ */
+public class SharedSslContextTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private HttpsServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile boolean keepAlive = true;
+
+    @Before
+    public void startServer() throws Exception {
+        KeyStore keyStore = loadKeyStore();
+        KeyManagerFactory keyFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyFactory.init(keyStore, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyFactory.getKeyManagers(), null, null);
+
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        server.createContext("/event", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() != -1) {
+                    // discard the body
+                }
+            }
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            if (!keepAlive) {
+                exchange.getResponseHeaders().set("Connection", "close");
+            }
+            byte[] response = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private static KeyStore loadKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = SharedSslContextTest.class.getResourceAsStream("/localhost.jks")) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    private static SharedSslContext createClientContext() throws Exception {
+        TrustManagerFactory trustFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustFactory.init(loadKeyStore());
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustFactory.getTrustManagers(), null);
+        return new SharedSslContext(clientContext);
+    }
+
+    private HttpTransport createTransport(SharedSslContext sslContext) throws IOException {
+        HttpTransport transport = new HttpTransport(
+                new URL("https://127.0.0.1:" + server.getAddress().getPort() + "/event"),
+                HttpTransport.DEFAULT_MAX_CONNECTIONS, false);
+        transport.setSslContext(sslContext);
+        return transport;
+    }
+
+    private static void awaitHandshakes(SharedSslContext sslContext, long expected) throws InterruptedException {
+        // the handshake listeners are notified asynchronously
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sslContext.getMetrics().getHandshakeCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testSendersShareConnection() throws Exception {
+        SharedSslContext sslContext = createClientContext();
+        HttpTransport first = createTransport(sslContext);
+        HttpTransport second = createTransport(sslContext);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(first.post(out -> out.write("{}".getBytes(StandardCharsets.UTF_8)), new Properties())
+                    .startsWith("rc = 200"));
+            assertTrue(second.post(out -> out.write("{}".getBytes(StandardCharsets.UTF_8)), new Properties())
+                    .startsWith("rc = 200"));
+        }
+        awaitHandshakes(sslContext, 1);
+        Thread.sleep(100);
+        assertEquals(1, clientPorts.size());
+        assertEquals(1, sslContext.getMetrics().getHandshakeCount());
+    }
+
+    @Test
+    public void testHandshakeMetrics() throws Exception {
+        keepAlive = false;
+        SharedSslContext sslContext = createClientContext();
+        HttpTransport transport = createTransport(sslContext);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(transport.post(out -> out.write("{}".getBytes(StandardCharsets.UTF_8)), new Properties())
+                    .startsWith("rc = 200"));
+        }
+        awaitHandshakes(sslContext, 3);
+        assertEquals(3, clientPorts.size());
+        HandshakeMetrics metrics = sslContext.getMetrics();
+        assertEquals(3, metrics.getHandshakeCount());
+        assertTrue(metrics.getMaxHandshakeMicros() > 0);
+        assertTrue(metrics.getAverageHandshakeMicros() <= metrics.getMaxHandshakeMicros());
+    }
+
+    @Test
+    public void testSystemDefaultFollowsDefaultContext() throws Exception {
+        SSLContext previous = SSLContext.getDefault();
+        try {
+            SharedSslContext shared = SharedSslContext.getSystemDefault();
+            assertSame(shared, SharedSslContext.getSystemDefault());
+            SSLContext.setDefault(createClientContext().getContext());
+            assertNotSame(shared, SharedSslContext.getSystemDefault());
+        } finally {
+            SSLContext.setDefault(previous);
+        }
+    }
+
+    private static HttpsSender createSender(ClassLoader classLoader) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            return new HttpsSender();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private static URLClassLoader createKeystoreLoader() throws Exception {
+        Path dir = Files.createTempDirectory("keystore");
+        try (InputStream in = SharedSslContextTest.class.getResourceAsStream("/localhost.jks")) {
+            Files.copy(in, dir.resolve("client.ks"));
+        }
+        Files.copy(dir.resolve("client.ks"), dir.resolve("client.ts"));
+        return new URLClassLoader(new URL[]{dir.toUri().toURL()}, null);
+    }
+
+    @Test
+    public void testHttpsSendersShareContextPerKeystore() throws Exception {
+        assumeTrue(System.getProperty("javax.net.ssl.trustStore") == null);
+        SSLContext previous = SSLContext.getDefault();
+        try (URLClassLoader first = createKeystoreLoader(); URLClassLoader second = createKeystoreLoader()) {
+            SharedSslContext sslContext = createSender(first).getSslContext();
+            assertSame(sslContext, createSender(first).getSslContext());
+            // another application with its own keystore
+            assertNotSame(sslContext, createSender(second).getSslContext());
+        } finally {
+            SSLContext.setDefault(previous);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.im.njams.sdk.communication.jms;
+
+import java.util.Properties;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+
+import org.junit.Test;
+
+import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.ProjectMessage;
+import com.faizsiegeln.njams.messageformat.v4.tracemessage.TraceMessage;
+
+import static org.junit.Assert.*;
+
+public class DeliveryOptionsTest {
+
+    @Test
+    public void testDefaults() {
+        DeliveryOptions options = new DeliveryOptions(new Properties());
+        assertEquals(DeliveryMode.PERSISTENT, options.getDeliveryMode(new LogMessage()));
+        assertEquals(DeliveryMode.PERSISTENT, options.getDeliveryMode(new ProjectMessage()));
+        assertEquals(Message.DEFAULT_PRIORITY, options.getPriority(new TraceMessage()));
+    }
+
+    @Test
+    public void testStatusOverridesTypeOverridesDefault() {
+        Properties properties = new Properties();
+        properties.setProperty(JmsConstants.DELIVERY_MODE, "non_persistent");
+        properties.setProperty(JmsConstants.DELIVERY_MODE + ".project", "persistent");
+        properties.setProperty(JmsConstants.DELIVERY_MODE + ".event", "persistent");
+        properties.setProperty(JmsConstants.DELIVERY_MODE + ".event.success", "non_persistent");
+        properties.setProperty(JmsConstants.PRIORITY + ".event.error", "9");
+        DeliveryOptions options = new DeliveryOptions(properties);
+
+        LogMessage success = new LogMessage();
+        success.setStatus(1);
+        LogMessage error = new LogMessage();
+        error.setStatus(3);
+        assertEquals(DeliveryMode.NON_PERSISTENT, options.getDeliveryMode(success));
+        assertEquals(DeliveryMode.PERSISTENT, options.getDeliveryMode(error));
+        assertEquals(DeliveryMode.PERSISTENT, options.getDeliveryMode(new LogMessage()));
+        assertEquals(DeliveryMode.PERSISTENT, options.getDeliveryMode(new ProjectMessage()));
+        assertEquals(DeliveryMode.NON_PERSISTENT, options.getDeliveryMode(new TraceMessage()));
+        assertEquals(9, options.getPriority(error));
+        assertEquals(Message.DEFAULT_PRIORITY, options.getPriority(success));
+    }
+
+    @Test
+    public void testInvalidValuesUseDefault() {
+        Properties properties = new Properties();
+        properties.setProperty(JmsConstants.DELIVERY_MODE, "sometimes");
+        properties.setProperty(JmsConstants.PRIORITY, "10");
+        DeliveryOptions options = new DeliveryOptions(properties);
+        assertEquals(DeliveryMode.PERSISTENT, options.getDeliveryMode(new LogMessage()));
+        assertEquals(Message.DEFAULT_PRIORITY, options.getPriority(new LogMessage()));
+    }
+}
@@ -0,0 +1,158 @@
+package com.im.njams.sdk.communication.jms;
+
+import java.util.Properties;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.naming.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Uses mocked JNDI and JMS objects instead of a broker.
+ */
+public class JmsConnectionTest {
+
+    private static int providerCount = 0;
+
+    private Context context;
+    private ConnectionFactory factory;
+    private Destination destination;
+    private Properties properties;
+
+    @Before
+    public void setUp() throws Exception {
+        context = mock(Context.class);
+        TestContextFactory.context = context;
+        factory = mock(ConnectionFactory.class);
+        destination = mock(Destination.class);
+        when(context.lookup("ConnectionFactory")).thenReturn(factory);
+        when(context.lookup("njams.event")).thenReturn(destination);
+        properties = new Properties();
+        properties.setProperty(JmsConstants.INITIAL_CONTEXT_FACTORY, TestContextFactory.class.getName());
+        // a new provider for every test, so every test gets its own shared connection
+        properties.setProperty(JmsConstants.PROVIDER_URL, "test://provider" + providerCount++);
+        properties.setProperty(JmsConstants.CONNECTION_FACTORY, "ConnectionFactory");
+        properties.setProperty(JmsConstants.DESTINATION, "njams");
+    }
+
+    private Connection mockConnection() throws Exception {
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createProducer(any(Destination.class))).thenReturn(mock(MessageProducer.class));
+        return connection;
+    }
+
+    private JmsSender createSender() {
+        JmsSender sender = new JmsSender();
+        sender.init(properties);
+        return sender;
+    }
+
+    @Test
+    public void sendersShareOneConnection() throws Exception {
+        Connection connection = mockConnection();
+        when(factory.createConnection()).thenReturn(connection);
+
+        JmsSender sender1 = createSender();
+        JmsSender sender2 = createSender();
+
+        assertTrue(sender1.isConnected());
+        assertTrue(sender2.isConnected());
+        JmsConnection shared = JmsConnection.getInstance(properties);
+        assertEquals(2, shared.getListenerCount());
+        verify(factory, times(1)).createConnection();
+        verify(connection, times(2)).createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        // the jndi lookups are cached
+        verify(context, times(1)).lookup("ConnectionFactory");
+        verify(context, times(1)).lookup("njams.event");
+
+        sender1.close();
+        verify(connection, times(0)).close();
+        sender2.close();
+        verify(connection, times(1)).close();
+        assertFalse(shared.isOpen());
+        // released with its last sender
+        assertNotSame(shared, JmsConnection.getInstance(properties));
+    }
+
+    @Test
+    public void reconnectedSenderSharesItsConnectionAgain() throws Exception {
+        Connection connection = mockConnection();
+        when(factory.createConnection()).thenReturn(connection);
+        JmsSender sender = createSender();
+        JmsConnection shared = JmsConnection.getInstance(properties);
+
+        sender.close();
+        sender.connect();
+
+        assertTrue(sender.isConnected());
+        assertSame(shared, JmsConnection.getInstance(properties));
+        assertEquals(1, shared.getListenerCount());
+        sender.close();
+    }
+
+    @Test
+    public void failedConnectionIsReopenedOnce() throws Exception {
+        Connection connection = mockConnection();
+        Connection connection2 = mockConnection();
+        when(factory.createConnection()).thenReturn(connection, connection2);
+        JmsSender sender1 = createSender();
+        JmsSender sender2 = createSender();
+        ArgumentCaptor<ExceptionListener> listener = ArgumentCaptor.forClass(ExceptionListener.class);
+        verify(connection).setExceptionListener(listener.capture());
+
+        listener.getValue().onException(new JMSException("connection lost"));
+
+        verify(connection, times(1)).close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!(sender1.isConnected() && sender2.isConnected()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(sender1.isConnected());
+        assertTrue(sender2.isConnected());
+        JmsConnection shared = JmsConnection.getInstance(properties);
+        assertEquals(2, shared.getConnectCount());
+        verify(connection2, times(2)).createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        verify(context, times(1)).lookup("ConnectionFactory");
+        sender1.close();
+        sender2.close();
+    }
+
+    @Test
+    public void failedConnectIsNotRepeatedWithinRetryInterval() throws Exception {
+        when(factory.createConnection()).thenThrow(new JMSException("broker down"));
+        JmsConnection shared = JmsConnection.getInstance(properties);
+        ExceptionListener listener = mock(ExceptionListener.class);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                shared.open(listener);
+                fail();
+            } catch (NjamsSdkRuntimeException e) {
+                assertTrue(e.getCause() instanceof JMSException);
+            }
+        }
+        verify(factory, times(1)).createConnection();
+        assertEquals(0, shared.getListenerCount());
+    }
+}
@@ -16,18 +16,65 @@
  */
 package com.im.njams.sdk.communication.jms;
 
+import com.faizsiegeln.njams.messageformat.v4.common.CommonMessage;
 import com.faizsiegeln.njams.messageformat.v4.logmessage.LogMessage;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.im.njams.sdk.common.JsonSerializerFactory;
+import com.im.njams.sdk.common.NjamsSdkRuntimeException;
+import com.im.njams.sdk.communication.Sender;
+import com.im.njams.sdk.settings.Settings;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.jms.BytesMessage;
+import javax.jms.CompletionListener;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.naming.Context;
 
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * This class tests if the JmsSender works correctly.
@@ -71,4 +118,349 @@ public class JmsSenderTest {
             fail(ex.getMessage());
         }
     }
+
+    @Test
+    public void testTextMessageIsDefault() throws Exception {
+        Session session = mock(Session.class);
+        TextMessage textMessage = mock(TextMessage.class);
+        when(session.createTextMessage(anyString())).thenReturn(textMessage);
+        LogMessage message = createLogMessage();
+
+        Message created = createSender(new Properties()).createMessage(session, message,
+                Sender.NJAMS_MESSAGETYPE_EVENT);
+
+        assertSame(textMessage, created);
+        verify(session).createTextMessage(mapper.writeValueAsString(message));
+        verify(textMessage).setStringProperty(Sender.NJAMS_LOGID, "4711");
+    }
+
+    @Test
+    public void testTextPayloadSizeIsUtf8Length() throws Exception {
+        Session session = mock(Session.class);
+        when(session.createTextMessage(anyString())).thenReturn(mock(TextMessage.class));
+        LogMessage message = createLogMessage();
+        message.setProcessName("\uD83D\uDE00");
+        JmsSender sender = createSender(new Properties());
+
+        sender.createMessage(session, message, Sender.NJAMS_MESSAGETYPE_EVENT);
+
+        // the path holds two and three byte characters, the process name a surrogate pair
+        assertEquals(mapper.writeValueAsString(message).getBytes(StandardCharsets.UTF_8).length,
+                sender.getPayloadSize());
+    }
+
+    @Test
+    public void testBytesMessageIsUtf8() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(JmsConstants.MESSAGE_FORMAT, "bytes");
+        LogMessage message = createLogMessage();
+
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        createSender(properties).createMessage(mockSession(bytesMessage, body), message,
+                Sender.NJAMS_MESSAGETYPE_EVENT);
+
+        assertEquals(mapper.writeValueAsString(message), new String(body.toByteArray(), StandardCharsets.UTF_8));
+        verify(bytesMessage).setStringProperty(Sender.NJAMS_PATH, message.getPath());
+        verify(bytesMessage, never()).setStringProperty(Sender.NJAMS_COMPRESSION, "gzip");
+    }
+
+    @Test
+    public void testGzipCompression() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(JmsConstants.COMPRESSION, "gzip");
+        LogMessage message = createLogMessage();
+
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        JmsSender sender = createSender(properties);
+        Session session = mockSession(bytesMessage, body);
+        sender.createMessage(session, message, Sender.NJAMS_MESSAGETYPE_EVENT);
+
+        String expected = mapper.writeValueAsString(message);
+        assertEquals(expected, inflate(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+        verify(bytesMessage).setStringProperty(Sender.NJAMS_COMPRESSION, "gzip");
+
+        // the buffer is reused for the next message
+        body.reset();
+        sender.createMessage(session, message, Sender.NJAMS_MESSAGETYPE_EVENT);
+        assertEquals(expected, inflate(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    public void testDeflateCompression() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(JmsConstants.COMPRESSION, "deflate");
+        LogMessage message = createLogMessage();
+
+        BytesMessage bytesMessage = mock(BytesMessage.class);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        JmsSender sender = createSender(properties);
+        Session session = mockSession(bytesMessage, body);
+        sender.createMessage(session, message, Sender.NJAMS_MESSAGETYPE_EVENT);
+        body.reset();
+        sender.createMessage(session, message, Sender.NJAMS_MESSAGETYPE_EVENT);
+
+        assertEquals(mapper.writeValueAsString(message),
+                inflate(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray()))));
+        verify(bytesMessage, times(2)).setStringProperty(Sender.NJAMS_COMPRESSION, "deflate");
+    }
+
+    @Test
+    public void testTransactedSendCommitsEveryTransactionSize() throws Exception {
+        Properties properties = createConnectedProperties("transacted");
+        properties.setProperty(JmsConstants.TRANSACTION_SIZE, "3");
+        properties.setProperty(JmsConstants.TRANSACTION_INTERVAL, "60000");
+        Session session = mockConnectedSession();
+        JmsSender sender = createSender(properties);
+
+        for (int i = 0; i < 7; i++) {
+            sender.send(createLogMessage());
+        }
+        verify(session, times(2)).commit();
+        // the last message is committed on close
+        sender.close();
+        verify(session, times(3)).commit();
+    }
+
+    @Test
+    public void testTransactedSendCommitsAfterTransactionInterval() throws Exception {
+        Properties properties = createConnectedProperties("transacted");
+        properties.setProperty(JmsConstants.TRANSACTION_INTERVAL, "100");
+        Session session = mockConnectedSession();
+        JmsSender sender = createSender(properties);
+
+        sender.send(createLogMessage());
+        verify(session, timeout(2000).times(1)).commit();
+        sender.close();
+    }
+
+    @Test
+    public void testCloseWaitsForRunningCommit() throws Exception {
+        Properties properties = createConnectedProperties("transacted");
+        properties.setProperty(JmsConstants.TRANSACTION_INTERVAL, "50");
+        Session session = mockConnectedSession();
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            committing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).commit();
+        JmsSender sender = createSender(properties);
+
+        sender.send(createLogMessage());
+        assertTrue(committing.await(5, TimeUnit.SECONDS));
+        Thread closer = new Thread(sender::close);
+        closer.start();
+        closer.join(200);
+        // the session is not closed while the COMMIT_TIMER commits on it
+        assertTrue(closer.isAlive());
+        verify(session, never()).close();
+        release.countDown();
+        closer.join(5000);
+        assertFalse(closer.isAlive());
+        verify(session).close();
+        Thread.sleep(200);
+        verify(session, times(1)).commit();
+    }
+
+    @Test
+    public void testDeliveryOptionsPerMessageType() throws Exception {
+        Properties properties = createConnectedProperties("sync");
+        properties.setProperty(JmsConstants.DELIVERY_MODE + ".event.success", "non_persistent");
+        properties.setProperty(JmsConstants.PRIORITY + ".event", "2");
+        Session session = mockConnectedSession();
+        MessageProducer producer = session.createProducer(null);
+        JmsSender sender = createSender(properties);
+
+        LogMessage success = createLogMessage();
+        success.setStatus(1);
+        sender.send(success);
+        LogMessage error = createLogMessage();
+        error.setStatus(3);
+        sender.send(error);
+
+        verify(producer).send(any(Message.class), eq(DeliveryMode.NON_PERSISTENT), eq(2),
+                eq(Message.DEFAULT_TIME_TO_LIVE));
+        verify(producer).send(any(Message.class), eq(DeliveryMode.PERSISTENT), eq(2),
+                eq(Message.DEFAULT_TIME_TO_LIVE));
+        sender.close();
+    }
+
+    @Test
+    public void testAsyncSendFailureReconnectsWithNextSend() throws Exception {
+        Properties properties = createConnectedProperties("async");
+        Session session = mockConnectedSession();
+        MessageProducer producer = session.createProducer(null);
+        JmsSender sender = createSender(properties);
+
+        sender.send(createLogMessage());
+        ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+        verify(producer).send(any(Message.class), anyInt(), anyInt(), anyLong(), listener.capture());
+        listener.getValue().onException(mock(Message.class), new JMSException("not stored"));
+
+        // the failure is reported by the next send, which is sent after the reconnect together
+        // with the first one, its send was not completed
+        sender.send((CommonMessage) createLogMessage());
+        verify(producer, times(3)).send(any(Message.class), anyInt(), anyInt(), anyLong(),
+                any(CompletionListener.class));
+        assertTrue(sender.isConnected());
+        sender.close();
+    }
+
+    @Test
+    public void testFailedBatchKeepsOnlyUncommittedMessages() throws Exception {
+        Properties properties = createConnectedProperties("sync");
+        // every message is committed on its own
+        properties.setProperty(Settings.PROPERTY_BATCH_BYTES, "1");
+        Session session = mockConnectedSession();
+        doNothing().doThrow(new JMSException("broker down")).when(session).commit();
+        JmsSender sender = createSender(properties);
+        LogMessage first = createLogMessage();
+        LogMessage second = createLogMessage();
+        LogMessage third = createLogMessage();
+        List<LogMessage> msgs = new ArrayList<>(Arrays.asList(first, second, third));
+
+        try {
+            sender.sendLogMessages(msgs);
+            fail();
+        } catch (NjamsSdkRuntimeException e) {
+            assertTrue(e.getCause() instanceof JMSException);
+        }
+        // the first message is committed, a retry must not send it again
+        assertEquals(2, msgs.size());
+        assertSame(second, msgs.get(0));
+        assertSame(third, msgs.get(1));
+        verify(session).rollback();
+        sender.close();
+    }
+
+    @Test
+    public void testAsyncSendFailureIsSentAgain() throws Exception {
+        Properties properties = createConnectedProperties("async");
+        Session session = mockConnectedSession();
+        MessageProducer producer = session.createProducer(null);
+        JmsSender sender = createSender(properties);
+
+        sender.send(createLogMessage());
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+        verify(producer).send(message.capture(), anyInt(), anyInt(), anyLong(), listener.capture());
+        listener.getValue().onException(message.getValue(), new JMSException("not stored"));
+
+        // after the reconnect, the failed message is sent before the next one
+        sender.send((CommonMessage) createLogMessage());
+        verify(producer, times(3)).send(any(Message.class), anyInt(), anyInt(), anyLong(),
+                any(CompletionListener.class));
+        sender.close();
+    }
+
+    @Test
+    public void testAsyncSendFailureIsDiscardedOnConnectionLoss() throws Exception {
+        Properties properties = createConnectedProperties("async");
+        properties.setProperty(Settings.PROPERTY_DISCARD_POLICY, "onConnectionLoss");
+        Session session = mockConnectedSession();
+        MessageProducer producer = session.createProducer(null);
+        JmsSender sender = createSender(properties);
+
+        sender.send(createLogMessage());
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+        verify(producer).send(message.capture(), anyInt(), anyInt(), anyLong(), listener.capture());
+        listener.getValue().onException(message.getValue(), new JMSException("not stored"));
+
+        // the failed message is not sent again, the next one may be discarded while reconnecting
+        sender.send((CommonMessage) createLogMessage());
+        verify(producer, atMost(2)).send(any(Message.class), anyInt(), anyInt(), anyLong(),
+                any(CompletionListener.class));
+        sender.close();
+    }
+
+    @Test
+    public void testAsyncPendingSendIsSentAgainAfterReconnect() throws Exception {
+        Properties properties = createConnectedProperties("async");
+        Session session = mockConnectedSession();
+        MessageProducer producer = session.createProducer(null);
+        JmsSender sender = createSender(properties);
+
+        // the broker does not complete the send before the connection is lost
+        sender.send(createLogMessage());
+        sender.onException(new JMSException("connection lost"));
+        for (int i = 0; i < 50 && !sender.isConnected(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(sender.isConnected());
+
+        sender.send((CommonMessage) createLogMessage());
+        verify(producer, times(3)).send(any(Message.class), anyInt(), anyInt(), anyLong(),
+                any(CompletionListener.class));
+        sender.close();
+    }
+
+    private static int providerCount = 0;
+
+    private Properties createConnectedProperties(String sendMode) {
+        Properties properties = new Properties();
+        properties.setProperty(JmsConstants.INITIAL_CONTEXT_FACTORY, TestContextFactory.class.getName());
+        // a new provider for every test, so every test gets its own shared connection
+        properties.setProperty(JmsConstants.PROVIDER_URL, "test://sender" + providerCount++);
+        properties.setProperty(JmsConstants.CONNECTION_FACTORY, "ConnectionFactory");
+        properties.setProperty(JmsConstants.DESTINATION, "njams");
+        properties.setProperty(JmsConstants.SEND_MODE, sendMode);
+        return properties;
+    }
+
+    private Session mockConnectedSession() throws Exception {
+        Context context = mock(Context.class);
+        ConnectionFactory factory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Session session = mock(Session.class);
+        MessageProducer producer = mock(MessageProducer.class);
+        TestContextFactory.context = context;
+        when(context.lookup("ConnectionFactory")).thenReturn(factory);
+        when(context.lookup("njams.event")).thenReturn(mock(Destination.class));
+        when(factory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createProducer(any(Destination.class))).thenReturn(producer);
+        when(session.createTextMessage(anyString())).thenReturn(mock(TextMessage.class));
+        return session;
+    }
+
+    private LogMessage createLogMessage() {
+        LogMessage message = new LogMessage();
+        message.setLogId("4711");
+        message.setPath(">SDK4>Prozeß>€uro>");
+        message.setJobStart(JOBSTART);
+        return message;
+    }
+
+    private JmsSender createSender(Properties properties) {
+        JmsSender sender = new JmsSender();
+        // there is no connection factory, the sender stays disconnected
+        sender.init(properties);
+        return sender;
+    }
+
+    private Session mockSession(BytesMessage bytesMessage, ByteArrayOutputStream body) throws Exception {
+        Session session = mock(Session.class);
+        when(session.createBytesMessage()).thenReturn(bytesMessage);
+        doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            byte[] bytes = (byte[]) args[0];
+            body.write(Arrays.copyOfRange(bytes, (Integer) args[1], (Integer) args[1] + (Integer) args[2]));
+            return null;
+        }).when(bytesMessage).writeBytes(any(byte[].class), anyInt(), anyInt());
+        return session;
+    }
+
+    private String inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = new byte[1024];
+        int read;
+        while ((read = in.read(bytes)) > 0) {
+            out.write(bytes, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
 }
@@ -0,0 +1,20 @@
+package com.im.njams.sdk.communication.jms;
+
+import java.util.Hashtable;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+
+/**
+ * Returns a mocked JNDI context, set by the running test, instead of
+ * connecting to a naming service.
+ */
+public class TestContextFactory implements InitialContextFactory {
+
+    static Context context;
+
+    @Override
+    public Context getInitialContext(Hashtable<?, ?> environment) {
+        return context;
+    }
+}
@@ -14,8 +14,11 @@ import static com.faizsiegeln.njams.messageformat.v4.command.Command.SET_TRACING
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -24,6 +27,9 @@ import static org.mockito.Mockito.verify;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -89,17 +95,13 @@ public class ConfigurationInstructionListenerTest {
 
     private ProcessConfiguration addProcessConfig(String path) {
         ProcessConfiguration process = new ProcessConfiguration();
-        configuration.getProcesses().put(path, process);
+        configuration.putProcess(path, process);
         return process;
     }
 
     private ActivityConfiguration addActivityConfig(String path, String activityId) {
-        ProcessConfiguration process = configuration.getProcess(path);
-        if (process == null) {
-            process = addProcessConfig(path);
-        }
         ActivityConfiguration activity = new ActivityConfiguration();
-        process.getActivities().put(activityId, activity);
+        configuration.updateProcess(path, process -> process.setActivity(activityId, activity));
         return activity;
     }
 
@@ -189,6 +191,64 @@ public class ConfigurationInstructionListenerTest {
         assertEquals(LogLevel.ERROR, process.getLogLevel());
     }
 
+    @Test
+    public void testSetLogLevelPublishesNewSnapshot() {
+        ProcessConfiguration old = addProcessConfig(PATH);
+        long version = configuration.getVersion();
+
+        prepareInstruction(SET_LOG_LEVEL).addPath(PATH).addParameter("logLevel", LogLevel.ERROR.name());
+        listener.onInstruction(instruction);
+        assertEquals(0, instruction.getResponse().getResultCode());
+
+        assertEquals(LogLevel.INFO, old.getLogLevel());
+        assertNotSame(old, configuration.getProcess(PATH));
+        assertEquals(LogLevel.ERROR, configuration.getProcess(PATH).getLogLevel());
+        assertTrue(configuration.getVersion() > version);
+    }
+
+    @Test
+    public void testChangesThroughGettersArePublished() {
+        ProcessConfiguration process = new ProcessConfiguration();
+        long version = configuration.getVersion();
+        configuration.getProcesses().put(PATH, process);
+        assertSame(process, configuration.getProcess(PATH));
+        assertTrue(configuration.getVersion() > version);
+
+        ActivityConfiguration activity = new ActivityConfiguration();
+        process.getActivities().put(ACT, activity);
+        assertSame(activity, process.getActivity(ACT));
+        process.getActivities().values().removeIf(a -> a == activity);
+        assertNull(process.getActivity(ACT));
+
+        configuration.getProcesses().remove(PATH);
+        assertNull(configuration.getProcess(PATH));
+        assertTrue(configuration.getProcesses().isEmpty());
+    }
+
+    @Test
+    public void testSaveAsyncCoalescesSaves() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            saving.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(configuration).save();
+
+        // the first save starts right away
+        CompletableFuture<Void> first = configuration.saveAsync();
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+        // requests made while it is running are served by one save
+        CompletableFuture<Void> second = configuration.saveAsync();
+        CompletableFuture<Void> third = configuration.saveAsync();
+        assertNotSame(first, second);
+        assertSame(second, third);
+        release.countDown();
+        third.get(5, TimeUnit.SECONDS);
+        assertTrue(first.isDone());
+        verify(configuration, times(2)).save();
+    }
+
     @Test
     public void testSetLogLevelFail() {
         prepareInstruction(SET_LOG_LEVEL);
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package com.im.njams.sdk.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.im.njams.sdk.common.DateTimeUtility;
+
+/**
+ * This class tests the TracepointExpiryQueue
+ */
+public class TracepointExpiryQueueTest {
+
+    private static final String PATH = ">test>";
+
+    private static TracepointExt createTracepoint(LocalDateTime endtime, int iterations) {
+        TracepointExt tracepoint = new TracepointExt();
+        tracepoint.setStarttime(DateTimeUtility.now());
+        tracepoint.setEndtime(endtime);
+        tracepoint.setIterations(iterations);
+        return tracepoint;
+    }
+
+    /**
+     * This method tests that tracepoints are returned once their end time has
+     * passed, in the order of their end times.
+     */
+    @Test
+    public void testPollExpiredByEndtime() {
+        LocalDateTime now = DateTimeUtility.now();
+        TracepointExt later = createTracepoint(now.plusMinutes(10), 0);
+        TracepointExt sooner = createTracepoint(now.plusMinutes(5), 0);
+        Configuration configuration = new Configuration();
+        configuration.updateActivity(PATH, "a", a -> a.setTracepoint(later));
+        configuration.updateActivity(PATH, "b", a -> a.setTracepoint(sooner));
+        TracepointExpiryQueue queue = configuration.getTracepointQueue();
+        assertEquals(2, queue.size());
+
+        assertTrue(queue.pollExpired(now).isEmpty());
+        List<TracepointExpiryQueue.Entry> expired = queue.pollExpired(now.plusMinutes(11));
+        assertEquals(2, expired.size());
+        assertSame(sooner, expired.get(0).getTracepoint());
+        assertEquals("b", expired.get(0).getActivityId());
+        assertSame(later, expired.get(1).getTracepoint());
+        assertEquals(PATH, expired.get(1).getProcessPath());
+        assertEquals(0, queue.size());
+    }
+
+    /**
+     * This method tests that a tracepoint is returned as soon as its
+     * iterations are exhausted.
+     */
+    @Test
+    public void testPollExpiredByIterations() {
+        LocalDateTime now = DateTimeUtility.now();
+        TracepointExt tracepoint = createTracepoint(now.plusMinutes(10), 2);
+        Configuration configuration = new Configuration();
+        configuration.updateActivity(PATH, "a", a -> a.setTracepoint(tracepoint));
+        TracepointExpiryQueue queue = configuration.getTracepointQueue();
+
+        tracepoint.increaseCurrentIterations();
+        assertTrue(queue.pollExpired(now).isEmpty());
+        tracepoint.increaseCurrentIterations();
+        tracepoint.increaseCurrentIterations();
+        List<TracepointExpiryQueue.Entry> expired = queue.pollExpired(now);
+        assertEquals(1, expired.size());
+        assertSame(tracepoint, expired.get(0).getTracepoint());
+        assertTrue(queue.pollExpired(now).isEmpty());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package com.im.njams.sdk.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.im.njams.sdk.common.DateTimeUtility;
+
+/**
+ * This class tests the TracepointExt
+ */
+public class TracepointExtTest {
+
+    private static TracepointExt createTracepoint(LocalDateTime start, LocalDateTime end, int iterations) {
+        TracepointExt tracepoint = new TracepointExt();
+        tracepoint.setStarttime(start);
+        tracepoint.setEndtime(end);
+        tracepoint.setIterations(iterations);
+        return tracepoint;
+    }
+
+    /**
+     * This method tests that a tracepoint is only active between its start and
+     * end time.
+     */
+    @Test
+    public void testIsActive() {
+        LocalDateTime start = DateTimeUtility.now();
+        LocalDateTime end = start.plusMinutes(15);
+        TracepointExt tracepoint = createTracepoint(start, end, 0);
+        long startMillis = DateTimeUtility.toMilli(start);
+        long endMillis = DateTimeUtility.toMilli(end);
+
+        assertFalse(tracepoint.isActive(startMillis));
+        assertTrue(tracepoint.isActive(startMillis + 1));
+        assertTrue(tracepoint.isActive(System.currentTimeMillis() + 1));
+        assertFalse(tracepoint.isActive(endMillis));
+        assertFalse(tracepoint.claimIteration(endMillis));
+        assertEquals(0, tracepoint.getCurrentIterations());
+    }
+
+    /**
+     * This method tests that concurrent jobs never claim more iterations than
+     * configured.
+     *
+     * @throws Exception if a thread fails
+     */
+    @Test
+    public void testClaimIterationHonorsIterationsUnderContention() throws Exception {
+        final int threads = 64;
+        final int iterations = 1000;
+        LocalDateTime start = DateTimeUtility.now().minusMinutes(1);
+        TracepointExt tracepoint = createTracepoint(start, start.plusMinutes(15), iterations);
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger exhausted = new AtomicInteger();
+        tracepoint.setExhaustionListener(exhausted::incrementAndGet);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                go.await();
+                for (int j = 0; j < iterations / 10; j++) {
+                    if (tracepoint.claimIteration(System.currentTimeMillis())) {
+                        claimed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(iterations, claimed.get());
+        assertEquals(iterations, tracepoint.getCurrentIterations());
+        assertTrue(tracepoint.iterationsExceeded());
+        assertFalse(tracepoint.isActive(System.currentTimeMillis()));
+        assertEquals(1, exhausted.get());
+    }
+}
@@ -0,0 +1,73 @@
+package com.im.njams.sdk.configuration.provider;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogMode;
+import com.im.njams.sdk.configuration.Configuration;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class FileConfigurationProviderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileConfigurationProvider provider;
+
+    @Before
+    public void setUp() {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        provider = new FileConfigurationProvider();
+    }
+
+    private void configure(File file) {
+        Properties properties = new Properties();
+        properties.setProperty(FileConfigurationProvider.FILE_CONFIGURATION, file.getPath());
+        provider.configure(properties, null);
+    }
+
+    @Test
+    public void testSaveKeepsPermissions() throws Exception {
+        File file = folder.newFile("configuration.json");
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(file.toPath(), permissions);
+        configure(file);
+
+        Configuration configuration = new Configuration();
+        configuration.setLogMode(LogMode.EXCLUSIVE);
+        provider.saveConfiguration(configuration);
+
+        assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+        assertEquals(LogMode.EXCLUSIVE, provider.loadConfiguration().getLogMode());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSaveReplacesTargetOfLink() throws Exception {
+        File target = folder.newFile("target.json");
+        Path link = Files.createSymbolicLink(new File(folder.getRoot(), "configuration.json").toPath(),
+                target.toPath());
+        configure(link.toFile());
+
+        Configuration configuration = new Configuration();
+        configuration.setLogMode(LogMode.EXCLUSIVE);
+        provider.saveConfiguration(configuration);
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(LogMode.EXCLUSIVE, provider.loadConfiguration().getLogMode());
+        assertTrue(target.length() > 0);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the single pass masking of {@link DataMaskingRules} with the former
+ * implementation of {@link DataMasking#maskString(String)}, which scanned the
+ * input once per pattern and replaced every match in the whole string. Ten
+ * patterns are applied to a 200 KB payload that either contains some matches
+ * or none at all. Either every pattern starts with a literal, or one of them
+ * doesn't, which prevents the literal driven scan.
+ * <p>
+ * Run it with the main method of this class from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataMaskingBenchmark {
+
+    private static final String[] PATTERNS = {"IBAN: \\p{Alpha}\\p{Alpha}\\p{Digit}+", "password=\\w+",
+        "<creditcard>\\d+</creditcard>", "secret", "ssn: \\d{3}-\\d{2}-\\d{4}", "token=[A-Za-z0-9]+",
+        "<pin>\\d{4}</pin>", "apikey: \\w+", "<password>[^<]*</password>", "birthdate: \\d{4}-\\d{2}-\\d{2}"};
+
+    private static final String UNPREFIXED_PATTERN = "\\b\\d{16}\\b";
+
+    private static final int PAYLOAD_SIZE = 200 * 1024;
+
+    @Param({"true", "false"})
+    private boolean matching;
+
+    @Param({"true", "false"})
+    private boolean prefixed;
+
+    private List<Pattern> patterns;
+    private DataMaskingRules rules;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        patterns = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            patterns.add(Pattern.compile(pattern));
+        }
+        if (!prefixed) {
+            patterns.set(3, Pattern.compile(UNPREFIXED_PATTERN));
+        }
+        rules = DataMaskingRules.of(patterns);
+        StringBuilder sb = new StringBuilder(PAYLOAD_SIZE);
+        int i = 0;
+        while (sb.length() < PAYLOAD_SIZE) {
+            sb.append("<order><id>").append(i).append("</id><customer>Faiz &amp; Siegeln</customer>");
+            if (matching && i % 50 == 0) {
+                sb.append("<account>IBAN: DE1542346541531</account><password>geheim</password>");
+            }
+            sb.append("</order>\n");
+            i++;
+        }
+        payload = sb.toString();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return rules.mask(payload);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyMaskString(payload, patterns);
+    }
+
+    /**
+     * The former implementation of {@link DataMasking#maskString(String)}.
+     */
+    private static String legacyMaskString(String inString, List<Pattern> patterns) {
+        String maskedString = inString;
+        for (Pattern p : patterns) {
+            Matcher m = p.matcher(inString);
+            while (m.find()) {
+                String patternMatch = inString.substring(m.start(), m.end());
+                String mask = "";
+                for (int i = 0; i < patternMatch.length(); i++) {
+                    mask = mask + "*";
+                }
+                maskedString = maskedString.replace(patternMatch, mask);
+            }
+        }
+        return maskedString;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DataMaskingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * This class tests the single pass masking of the DataMaskingRules.
+ */
+public class DataMaskingRulesTest {
+
+    private static DataMaskingRules rules(String... patterns) {
+        return DataMaskingRules.of(Arrays.stream(patterns).map(Pattern::compile).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testEmptyRulesReturnInput() {
+        String input = "this is a test";
+        assertSame(input, DataMaskingRules.EMPTY.mask(input));
+        assertTrue(rules().isEmpty());
+    }
+
+    @Test
+    public void testMultiplePatternsInOneString() {
+        DataMaskingRules rules = rules("IBAN: \\p{Alpha}\\p{Alpha}\\p{Digit}+", "IBAN", "secret");
+        assertEquals("********************* is an **** and ******",
+                rules.mask("IBAN: DE1542346541531 is an IBAN and secret"));
+    }
+
+    @Test
+    public void testInputWithoutMatchIsNotCopied() {
+        String input = "nothing to hide";
+        assertSame(input, rules("IBAN", "secret").mask(input));
+        assertSame(input, rules("\\d+").mask(input));
+    }
+
+    @Test
+    public void testOverlappingMatchesOfSeparateScans() {
+        // the second pattern doesn't start with a literal, so the matches are merged
+        DataMaskingRules rules = rules("abc", "(c)\\1d");
+        assertEquals("x*****x", rules.mask("xabccdx"));
+    }
+
+    @Test
+    public void testPatternsWithFlagsAndQuotes() {
+        DataMaskingRules rules = rules("(?i)password", "\\Q a+b \\E");
+        assertEquals("******** and*****", rules.mask("PassWord and a+b "));
+        rules = DataMaskingRules.EMPTY.with(Pattern.compile("user", Pattern.CASE_INSENSITIVE));
+        assertEquals("**** and ****", rules.mask("USER and user"));
+    }
+
+    @Test
+    public void testAllPatternsMatchAtSamePosition() {
+        assertEquals("****ef", rules("ab\\w", "abcd").mask("abcdef"));
+        assertEquals("****ef", rules("abcd", "ab\\w").mask("abcdef"));
+    }
+
+    @Test
+    public void testOverlappingRulesMaskEverythingTheOldMaskingDid() {
+        // the second match starts inside of the first one
+        assertMasksBaseline("************", "id card=1234", "card=\\d+", "id card");
+        assertMasksBaseline("************", "id card=1234", "id card", "card=\\d+");
+        // nested matches, in both orders
+        assertMasksBaseline("************* and ******", "my secret key and secret", "secret", "my secret \\w+");
+        assertMasksBaseline("************* and ******", "my secret key and secret", "my secret \\w+", "secret");
+        assertMasksBaseline("x*****x", "xabccdx", "abc", "cd");
+    }
+
+    private static void assertMasksBaseline(String expected, String input, String... patterns) {
+        String masked = rules(patterns).mask(input);
+        assertEquals(expected, masked);
+        String baseline = maskLikeBaseline(input, patterns);
+        for (int i = 0; i < input.length(); i++) {
+            if (baseline.charAt(i) == '*') {
+                assertEquals("position " + i + " of " + input, '*', masked.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * The masking of DataMasking.maskString before the single pass masking.
+     */
+    private static String maskLikeBaseline(String inString, String... patterns) {
+        String maskedString = inString;
+        for (String pattern : patterns) {
+            Matcher m = Pattern.compile(pattern).matcher(inString);
+            while (m.find()) {
+                String patternMatch = inString.substring(m.start(), m.end());
+                String mask = "";
+                for (int i = 0; i < patternMatch.length(); i++) {
+                    mask = mask + "*";
+                }
+                maskedString = maskedString.replace(patternMatch, mask);
+            }
+        }
+        return maskedString;
+    }
+
+    @Test
+    public void testLiteralPrefix() {
+        assertEquals("test", DataMaskingRules.getLiteralPrefix("test"));
+        assertEquals("IBAN: ", DataMaskingRules.getLiteralPrefix("IBAN: \\p{Alpha}+"));
+        assertEquals("<requesturi>", DataMaskingRules.getLiteralPrefix("<requesturi>(\\p{Alpha}|/)*</requesturi>"));
+        assertEquals("ab", DataMaskingRules.getLiteralPrefix("abc?"));
+        assertEquals("ab", DataMaskingRules.getLiteralPrefix("ab+"));
+        assertEquals("", DataMaskingRules.getLiteralPrefix("ab|cd"));
+        assertEquals("", DataMaskingRules.getLiteralPrefix(".*"));
+        assertEquals("", DataMaskingRules.getLiteralPrefix("a*"));
+    }
+}
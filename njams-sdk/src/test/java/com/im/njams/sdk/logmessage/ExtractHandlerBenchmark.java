@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.AttributeType;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.Extract;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.ExtractRule;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.RuleType;
+import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.communication.TestSender;
+import com.im.njams.sdk.logmessage.ExtractHandler.ExtractSource;
+import com.im.njams.sdk.model.ActivityModel;
+import com.im.njams.sdk.model.ProcessModel;
+
+/**
+ * Measures the throughput of regex and XPath extract rules with 1, 8 and 32
+ * threads that evaluate the same rules on their own activities.
+ * <p>
+ * Run it with the main method of this class from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractHandlerBenchmark {
+
+    private static final String DATA = "<o:order xmlns:o=\"urn:orders\" id=\"4711\">"
+            + "<o:customer>Faiz &amp; Siegeln</o:customer><o:state>shipped</o:state></o:order>";
+
+    /**
+     * The Njams instance and the extracts that are shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Extracts {
+
+        private Njams njams;
+        private ProcessModel process;
+        private ActivityModel model;
+        private Extract regexExtract;
+        private Extract xpathExtract;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            njams = new Njams(new Path("SDK4", "BENCHMARK"), "TEST", "SDK4", TestSender.getSettings());
+            process = njams.createProcess(new Path("PROCESSES"));
+            model = process.createActivity("act", "Act", null);
+            njams.start();
+            regexExtract = createExtract(RuleType.REGEXP, "id=\"(\\d+)\"");
+            xpathExtract = createExtract(RuleType.XPATH, "/o:order/@id");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            njams.stop();
+        }
+
+        private static Extract createExtract(RuleType ruleType, String rule) {
+            ExtractRule extractRule = new ExtractRule();
+            extractRule.setAttribute("orderId");
+            extractRule.setAttributeType(AttributeType.ATTRIBUTE);
+            extractRule.setRuleType(ruleType);
+            extractRule.setRule(rule);
+            extractRule.setInout("in");
+            Extract extract = new Extract();
+            extract.setName("benchmark");
+            extract.setExtractRules(Collections.singletonList(extractRule));
+            return extract;
+        }
+    }
+
+    /**
+     * The job and activity of one thread.
+     */
+    @State(Scope.Thread)
+    public static class Activities {
+
+        private JobImpl job;
+        private ActivityImpl activity;
+
+        @Setup(Level.Trial)
+        public void setUp(Extracts extracts) {
+            job = (JobImpl) extracts.process.createJob();
+            job.start();
+            activity = (ActivityImpl) job.createActivity(extracts.model).build();
+        }
+    }
+
+    private static void regex(Extracts extracts, Activities activities) {
+        ExtractHandler.handleExtract(activities.job, extracts.regexExtract, activities.activity, ExtractSource.INPUT,
+                null, DATA);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void regex1Thread(Extracts extracts, Activities activities) {
+        regex(extracts, activities);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void regex8Threads(Extracts extracts, Activities activities) {
+        regex(extracts, activities);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void regex32Threads(Extracts extracts, Activities activities) {
+        regex(extracts, activities);
+    }
+
+    private static void xpath(Extracts extracts, Activities activities) {
+        ExtractHandler.handleExtract(activities.job, extracts.xpathExtract, activities.activity, ExtractSource.INPUT,
+                null, DATA);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void xpath1Thread(Extracts extracts, Activities activities) {
+        xpath(extracts, activities);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void xpath8Threads(Extracts extracts, Activities activities) {
+        xpath(extracts, activities);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void xpath32Threads(Extracts extracts, Activities activities) {
+        xpath(extracts, activities);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExtractHandlerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -25,6 +25,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -124,6 +127,25 @@ public class ExtractHandlerTest {
         Assert.assertEquals(TESTVALUE, impl.getAttributes().get(TESTKEY));
     }
 
+    /**
+     * This method tests if the deprecated handling of an activity without a
+     * model still applies no extract.
+     */
+    @Test
+    public void testHandleExtractWithoutActivityModel() {
+        final String ACTIVITYNAME = "testHandleExtractWithoutActivityModel";
+
+        ActivityImpl impl = testExtract(ACTIVITYNAME, RuleType.VALUE, TESTVALUE);
+        JobImpl job = (JobImpl) impl.getJob();
+        ActivityImpl withoutModel = new ActivityImpl(job, impl.getModelId());
+
+        ExtractHandler.handleExtract(job, withoutModel, ExtractSource.INPUT, null, null);
+        Assert.assertNull(withoutModel.getAttributes().get(TESTKEY));
+
+        ExtractHandler.handleExtract(job, impl, ExtractSource.INPUT, null, null);
+        Assert.assertEquals(TESTVALUE, impl.getAttributes().get(TESTKEY));
+    }
+
     /**
      * This method sets a Extract for the ActivityModel with name activityName
      * @param activityName the name of the ActivityModel
@@ -223,4 +245,102 @@ public class ExtractHandlerTest {
         Assert.assertNotNull(impl.getAttributes().get(TESTKEY));
         Assert.assertEquals("ABC****Rule", impl.getAttributes().get(TESTKEY));
     }
+
+    /**
+     * This method tests if regex extracts work correctly when they are
+     * evaluated by many threads at the same time.
+     */
+    @Test
+    public void testHandleExtractRegExConcurrently() throws Exception {
+        final String ACTIVITYNAME = "testHandleExtractRegExConcurrently";
+        final String EXTRACTPATTERN = "id=(\\d+)";
+
+        ActivityImpl impl = testExtract(ACTIVITYNAME, RuleType.REGEXP, EXTRACTPATTERN);
+        JobImpl job = (JobImpl) impl.getJob();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                final String id = String.valueOf(i);
+                results.add(executor.submit(() -> {
+                    ActivityImpl activity = (ActivityImpl) job.createActivity(impl.getActivityModel()).build();
+                    ExtractHandler.handleExtract(job, extract, activity, ExtractSource.INPUT,
+                            "<order id=" + id + " />", null);
+                    return id.equals(activity.getAttributes().get(TESTKEY));
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertTrue(ExtractHandler.getCachedPatternCount() <= ExtractHandler.MAX_CACHED_PATTERNS);
+    }
+
+    /**
+     * This method tests if the ExtractHandler evaluates XPath rules with
+     * namespace prefixes that are declared in the document.
+     */
+    @Test
+    public void testHandleExtractXPathWithNamespaces() {
+        final String ACTIVITYNAME = "testHandleExtractXPathWithNamespaces";
+        final String EXTRACTPATTERN = "/o:order/o:item/@id";
+
+        ActivityImpl impl = testExtract(ACTIVITYNAME, RuleType.XPATH, EXTRACTPATTERN);
+        JobImpl job = (JobImpl) impl.getJob();
+
+        ExtractHandler.handleExtract(job, extract, impl, ExtractSource.INPUT, null,
+                "<o:order xmlns:o=\"urn:orders\"><o:item id=\"4711\"/></o:order>");
+        Assert.assertEquals("4711", impl.getAttributes().get(TESTKEY));
+
+        //the prefix is bound to the uri of each document, not of the first one
+        ExtractHandler.handleExtract(job, extract, impl, ExtractSource.INPUT, null,
+                "<o:order xmlns:o=\"urn:other\"><o:item id=\"0815\"/></o:order>");
+        Assert.assertEquals("0815", impl.getAttributes().get(TESTKEY));
+
+        ExtractHandler.handleExtract(job, extract, impl, ExtractSource.INPUT, null,
+                "<o:order xmlns:o=\"urn:orders\"><o:item id=\"4712\"/></o:order>");
+        Assert.assertEquals("4712", impl.getAttributes().get(TESTKEY));
+    }
+
+    /**
+     * This method tests if the ExtractHandler concatenates the values of all
+     * nodes an XPath rule selects.
+     */
+    @Test
+    public void testHandleExtractXPathWithMultipleNodes() {
+        final String ACTIVITYNAME = "testHandleExtractXPathWithMultipleNodes";
+        final String EXTRACTPATTERN = "/order/item/text()";
+
+        ActivityImpl impl = testExtract(ACTIVITYNAME, RuleType.XPATH, EXTRACTPATTERN);
+        JobImpl job = (JobImpl) impl.getJob();
+
+        ExtractHandler.handleExtract(job, extract, impl, ExtractSource.INPUT, null,
+                "<order><item>A</item><item>B</item><item>C</item></order>");
+        Assert.assertEquals("ABC", impl.getAttributes().get(TESTKEY));
+    }
+
+    /**
+     * This method tests if the XPath support of an extract is returned to
+     * the pool, and dropped when the pool is cleared.
+     */
+    @Test
+    public void testXPathSupportIsPooled() {
+        final String ACTIVITYNAME = "testXPathSupportIsPooled";
+        final String EXTRACTPATTERN = "/order/item/text()";
+
+        ActivityImpl impl = testExtract(ACTIVITYNAME, RuleType.XPATH, EXTRACTPATTERN);
+        JobImpl job = (JobImpl) impl.getJob();
+
+        ExtractHandler.clearXPathSupport();
+        ExtractHandler.handleExtract(job, extract, impl, ExtractSource.INPUT, null, "<order><item>A</item></order>");
+        ExtractHandler.handleExtract(job, extract, impl, ExtractSource.INPUT, null, "<order><item>B</item></order>");
+        Assert.assertEquals("B", impl.getAttributes().get(TESTKEY));
+        Assert.assertEquals(1, XPathSupport.getPoolSize());
+
+        ExtractHandler.clearXPathSupport();
+        Assert.assertEquals(0, XPathSupport.getPoolSize());
+    }
 }
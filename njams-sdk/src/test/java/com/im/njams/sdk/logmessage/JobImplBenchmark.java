@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.logmessage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.im.njams.sdk.Njams;
+import com.im.njams.sdk.common.Path;
+import com.im.njams.sdk.communication.TestSender;
+import com.im.njams.sdk.model.ActivityModel;
+import com.im.njams.sdk.model.ProcessModel;
+import com.im.njams.sdk.settings.Settings;
+
+/**
+ * Measures the lookups by model id that are done on every stepTo, depending
+ * on the number of activities the job holds since its last flush. The cost
+ * per lookup should not grow with the size of the job.
+ * <p>
+ * Run it with the main method of this class from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobImplBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int activityCount;
+
+    private Njams njams;
+
+    private JobImpl job;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Settings settings = TestSender.getSettings();
+        // the job must not be flushed during the measurement
+        settings.getProperties().setProperty(Settings.PROPERTY_FLUSH_INTERVAL, "3600");
+        njams = new Njams(new Path("SDK4", "BENCHMARK"), "TEST", "SDK4", settings);
+        ProcessModel process = njams.createProcess(new Path("PROCESSES"));
+        ActivityModel loop = process.createActivity("loop", "Loop", null);
+        ActivityModel other = process.createActivity("other", "Other", null);
+        njams.start();
+        job = (JobImpl) process.createJob();
+        job.start();
+        job.createActivity(other).build();
+        for (int i = 0; i < activityCount; i++) {
+            job.createActivity(loop).build().end();
+        }
+        job.createActivity(loop).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        njams.stop();
+    }
+
+    @Benchmark
+    public Activity activityByModelId() {
+        return job.getActivityByModelId("loop");
+    }
+
+    @Benchmark
+    public Activity runningActivityByModelId() {
+        return job.getRunningActivityByModelId("other");
+    }
+
+    @Benchmark
+    public Activity completedActivityByModelId() {
+        return job.getCompletedActivityByModelId("loop");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JobImplBenchmark.class.getSimpleName()).build()).run();
+    }
+}
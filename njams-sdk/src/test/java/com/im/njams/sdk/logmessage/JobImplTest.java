@@ -28,9 +28,13 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.junit.After;
@@ -476,4 +480,120 @@ public class JobImplTest extends AbstractTest {
         assertFalse(job.getAttributes().isEmpty());
         assertEquals("b", job.getAttribute("a"));
     }
+
+    /**
+     * While the sender of a flush is blocked, activities can still be added
+     * to the job.
+     */
+    @Test
+    public void testFlushDoesNotBlockActivitiesWhileSending() throws InterruptedException {
+        Path clientPath = new Path("SDK4", "TEST");
+        Njams mockedNjams = spy(new Njams(clientPath, "1.0.0", "sdk4", new Settings()));
+        mockedNjams.createProcess(new Path("PROCESSES"));
+        mockedNjams.start();
+        ProcessModel process = mockedNjams.getProcessModel(new Path(PROCESSPATHNAME));
+        process.createActivity("id", "name", null);
+        JobImpl job = (JobImpl) process.createJob();
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        NjamsSender sender = mock(NjamsSender.class);
+        when(mockedNjams.getSender()).thenReturn(sender);
+        doAnswer((Answer<Object>) (InvocationOnMock invocation) -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(sender).send(any(CommonMessage.class));
+
+        job.start();
+        job.createActivity("id").build().end();
+        Thread flusher = new Thread(job::flush);
+        flusher.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        //the sender is blocked, but the job can still be used
+        Activity activity = job.createActivity("id").build();
+        assertEquals(activity, job.getActivityByInstanceId(activity.getInstanceId()));
+        assertTrue(flusher.isAlive());
+        release.countDown();
+        flusher.join(5000);
+        assertFalse(flusher.isAlive());
+        mockedNjams.stop();
+    }
+
+    /**
+     * While a flush is handed over to a blocked sender, the end of the job
+     * does not wait for it. Its LogMessage is sent afterwards, in order.
+     */
+    @Test
+    public void testEndDoesNotWaitForBlockedFlush() throws InterruptedException {
+        Path clientPath = new Path("SDK4", "TEST");
+        Njams mockedNjams = spy(new Njams(clientPath, "1.0.0", "sdk4", new Settings()));
+        mockedNjams.createProcess(new Path("PROCESSES"));
+        mockedNjams.start();
+        ProcessModel process = mockedNjams.getProcessModel(new Path(PROCESSPATHNAME));
+        process.createActivity("id", "name", null);
+        JobImpl job = (JobImpl) process.createJob();
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<LogMessage> sent = Collections.synchronizedList(new ArrayList<>());
+        NjamsSender sender = mock(NjamsSender.class);
+        when(mockedNjams.getSender()).thenReturn(sender);
+        doAnswer((Answer<Object>) (InvocationOnMock invocation) -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            sent.add((LogMessage) invocation.getArguments()[0]);
+            return null;
+        }).when(sender).send(any(CommonMessage.class));
+
+        job.start();
+        job.createActivity("id").build().end();
+        Thread flusher = new Thread(job::flush);
+        flusher.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        //the flushing thread sends the LogMessage of the end as well
+        job.end();
+        assertTrue(sent.isEmpty());
+        release.countDown();
+        flusher.join(5000);
+        assertFalse(flusher.isAlive());
+        assertEquals(2, sent.size());
+        assertEquals(1, (int) sent.get(0).getMessageNo());
+        assertEquals(2, (int) sent.get(1).getMessageNo());
+        assertEquals(JobStatus.SUCCESS.getValue(), (int) sent.get(1).getStatus());
+        mockedNjams.stop();
+    }
+
+    /**
+     * The lookups by model id return the most recent activity of each kind,
+     * also after status changes and after flushing.
+     */
+    @Test
+    public void testActivitiesByModelId() {
+        JobImpl job = createDefaultStartedJob();
+        Activity first = createDefaultActivity(job);
+        Activity second = createDefaultActivity(job);
+        assertEquals(second, job.getActivityByModelId(ACTIVITYMODELID));
+        assertEquals(second, job.getRunningActivityByModelId(ACTIVITYMODELID));
+        assertEquals(null, job.getCompletedActivityByModelId(ACTIVITYMODELID));
+
+        first.end();
+        assertEquals(second, job.getRunningActivityByModelId(ACTIVITYMODELID));
+        assertEquals(first, job.getCompletedActivityByModelId(ACTIVITYMODELID));
+
+        second.setActivityStatus(ActivityStatus.ERROR);
+        assertEquals(null, job.getRunningActivityByModelId(ACTIVITYMODELID));
+        assertEquals(second, job.getCompletedActivityByModelId(ACTIVITYMODELID));
+
+        first.setActivityStatus(ActivityStatus.RUNNING);
+        assertEquals(first, job.getRunningActivityByModelId(ACTIVITYMODELID));
+        assertEquals(null, job.getActivityByModelId("unknown"));
+
+        //the completed activity is removed by the flush
+        job.flush();
+        assertEquals(first, job.getActivityByModelId(ACTIVITYMODELID));
+        assertEquals(null, job.getCompletedActivityByModelId(ACTIVITYMODELID));
+    }
 }
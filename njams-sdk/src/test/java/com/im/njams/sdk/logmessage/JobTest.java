@@ -31,8 +31,6 @@ import com.faizsiegeln.njams.messageformat.v4.projectmessage.ExtractRule;
 import com.faizsiegeln.njams.messageformat.v4.projectmessage.RuleType;
 import com.im.njams.sdk.Njams;
 import com.im.njams.sdk.common.Path;
-import com.im.njams.sdk.configuration.ActivityConfiguration;
-import com.im.njams.sdk.configuration.ProcessConfiguration;
 import com.im.njams.sdk.model.ProcessModel;
 import com.im.njams.sdk.settings.Settings;
 
@@ -71,10 +69,8 @@ public class JobTest {
         extract.setName("test");
         extract.getExtractRules().add(rule);
 
-        njams.getConfiguration().getProcesses().put(process.getPath().toString(), new ProcessConfiguration());
-        njams.getConfiguration().getProcess(process.getPath().toString()).getActivities().put("b",
-                new ActivityConfiguration());
-        njams.getConfiguration().getProcess(process.getPath().toString()).getActivity("b").setExtract(extract);
+        njams.getConfiguration().updateActivity(process.getPath().toString(), "b",
+                activity -> activity.setExtract(extract));
 
         // Start client and flush resources
         //        njams.start();
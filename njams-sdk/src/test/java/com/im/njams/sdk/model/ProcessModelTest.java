@@ -17,7 +17,14 @@
 
 package com.im.njams.sdk.model;
 
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.Extract;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.ExtractRule;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.LogLevel;
+import com.faizsiegeln.njams.messageformat.v4.projectmessage.RuleType;
 import com.im.njams.sdk.AbstractTest;
+import com.im.njams.sdk.configuration.CompiledActivityConfiguration;
+import com.im.njams.sdk.configuration.CompiledProcessConfiguration;
+import com.im.njams.sdk.configuration.ProcessConfiguration;
 import com.im.njams.sdk.logmessage.Job;
 import org.junit.Test;
 
@@ -72,4 +79,85 @@ public class ProcessModelTest extends AbstractTest {
         assertEquals(testLogId, job.getLogId());
         assertEquals(testJobId, job.getJobId());
     }
+
+    /**
+     * This method tests that the compiled process configuration is reused until
+     * the configuration has changed.
+     */
+    @Test
+    public void testCompiledConfigurationIsRebuiltAfterChange() {
+        CompiledProcessConfiguration compiled = process.getCompiledConfiguration();
+        assertSame(compiled, process.getCompiledConfiguration());
+        assertEquals(LogLevel.INFO, compiled.getLogLevel());
+        assertFalse(compiled.isExclude());
+
+        njams.getConfiguration().updateProcess(process.getPath().toString(), processConfiguration -> {
+            processConfiguration.setLogLevel(LogLevel.ERROR);
+            processConfiguration.setExclude(true);
+        });
+
+        CompiledProcessConfiguration recompiled = process.getCompiledConfiguration();
+        assertNotSame(compiled, recompiled);
+        assertEquals(LogLevel.ERROR, recompiled.getLogLevel());
+        assertTrue(recompiled.isExclude());
+        assertSame(recompiled, process.getCompiledConfiguration());
+    }
+
+    /**
+     * This method tests that the compiled configurations are rebuilt after a
+     * process or activity configuration has been changed in place.
+     */
+    @Test
+    public void testCompiledConfigurationIsRebuiltAfterChangeInPlace() {
+        ActivityModel model = process.createActivity("inPlace", "InPlace", null);
+        njams.getConfiguration().updateActivity(process.getPath().toString(), "inPlace",
+                activityConfiguration -> activityConfiguration.setExtract(null));
+        CompiledProcessConfiguration compiled = process.getCompiledConfiguration();
+        CompiledActivityConfiguration compiledActivity = model.getCompiledConfiguration();
+
+        ProcessConfiguration processConfiguration = njams.getConfiguration().getProcess(process.getPath().toString());
+        processConfiguration.setLogLevel(LogLevel.WARNING);
+        Extract extract = new Extract();
+        processConfiguration.getActivity("inPlace").setExtract(extract);
+
+        assertNotSame(compiled, process.getCompiledConfiguration());
+        assertEquals(LogLevel.WARNING, process.getCompiledConfiguration().getLogLevel());
+        assertNotSame(compiledActivity, model.getCompiledConfiguration());
+        assertSame(extract, model.getCompiledConfiguration().getExtract());
+    }
+
+    /**
+     * This method tests that the compiled activity configuration splits the
+     * enabled extract rules by direction.
+     */
+    @Test
+    public void testCompiledActivityConfigurationSplitsExtractRules() {
+        ActivityModel model = process.createActivity("compiled", "Compiled", null);
+        CompiledActivityConfiguration compiled = model.getCompiledConfiguration();
+        assertNull(compiled.getExtract());
+        assertTrue(compiled.getExtractRules("in").isEmpty());
+        assertSame(compiled, model.getCompiledConfiguration());
+
+        Extract extract = new Extract();
+        extract.getExtractRules().add(createRule(RuleType.VALUE, "in"));
+        extract.getExtractRules().add(createRule(RuleType.VALUE, "out"));
+        extract.getExtractRules().add(createRule(RuleType.DISABLED, "in"));
+        njams.getConfiguration().updateActivity(process.getPath().toString(), "compiled",
+                activityConfiguration -> activityConfiguration.setExtract(extract));
+
+        CompiledActivityConfiguration recompiled = model.getCompiledConfiguration();
+        assertSame(extract, recompiled.getExtract());
+        assertEquals(1, recompiled.getExtractRules("in").size());
+        assertEquals(1, recompiled.getExtractRules("out").size());
+        assertEquals("out", recompiled.getExtractRules("out").get(0).getInout());
+    }
+
+    private ExtractRule createRule(RuleType ruleType, String inout) {
+        ExtractRule rule = new ExtractRule();
+        rule.setRuleType(ruleType);
+        rule.setInout(inout);
+        rule.setAttribute("attribute");
+        rule.setRule("value");
+        return rule;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package com.im.njams.sdk.pools;
 
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -52,4 +55,119 @@ public class ObjectPoolTest {
         //This hasn't been closed again, because it isn't in the maps anymore
         verify(get1, times(1)).close();
     }
-}
\ No newline at end of file
+
+    private static class TestPool extends ObjectPool<AutoCloseable> {
+        private final Set<AutoCloseable> invalid = new HashSet<>();
+        private int created = 0;
+
+        private TestPool(int maxCapacity, int minIdle, long maxIdleTime) {
+            super(maxCapacity, minIdle, maxIdleTime);
+        }
+
+        @Override
+        protected synchronized AutoCloseable create() {
+            created++;
+            return mock(AutoCloseable.class);
+        }
+
+        @Override
+        public boolean validate(AutoCloseable o) {
+            return !invalid.contains(o);
+        }
+
+        @Override
+        public void expire(AutoCloseable o) {
+            try {
+                o.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Test
+    public void getWaitsForReturnedObject() throws Exception {
+        TestPool op = new TestPool(1, 0, 0);
+        AutoCloseable get1 = op.get();
+        assertNull(op.get(0));
+        assertNull(op.get(50));
+        assertEquals(1, op.getMetrics().getWaitCount());
+
+        Thread returner = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            op.close(get1);
+        });
+        returner.start();
+        AutoCloseable get2 = op.get(5000);
+        returner.join();
+        assertSame(get1, get2);
+        assertEquals(1, op.created);
+        assertEquals(2, op.getMetrics().getWaitCount());
+        assertTrue(op.getMetrics().getMaxWaitMillis() >= 50);
+    }
+
+    @Test
+    public void getReturnsMostRecentlyUsed() {
+        TestPool op = new TestPool(0, 0, 0);
+        AutoCloseable get1 = op.get();
+        AutoCloseable get2 = op.get();
+        op.close(get1);
+        op.close(get2);
+        assertSame(get2, op.get());
+        assertEquals(1, op.getIdleCount());
+        assertEquals(1, op.getActiveCount());
+    }
+
+    @Test
+    public void invalidObjectIsExpired() throws Exception {
+        TestPool op = new TestPool(2, 0, 0);
+        AutoCloseable get1 = op.get();
+        op.close(get1);
+        op.invalid.add(get1);
+        AutoCloseable get2 = op.get();
+        assertNotSame(get1, get2);
+        verify(get1, times(1)).close();
+        assertEquals(1, op.getMetrics().getInvalidCount());
+        assertEquals(2, op.getMetrics().getCreateCount());
+    }
+
+    @Test
+    public void evictIdleKeepsMinIdle() throws Exception {
+        TestPool op = new TestPool(4, 1, 50);
+        AutoCloseable get1 = op.get();
+        AutoCloseable get2 = op.get();
+        AutoCloseable get3 = op.get();
+        op.close(get1);
+        op.close(get2);
+        assertEquals(0, op.evictIdle());
+        Thread.sleep(100);
+        op.close(get3);
+        // get1 and get2 are evicted, get3 has just been returned
+        assertEquals(2, op.evictIdle());
+        verify(get1, times(1)).close();
+        verify(get2, times(1)).close();
+        verify(get3, never()).close();
+        Thread.sleep(100);
+        // get3 is kept as the minimum idle object
+        assertEquals(0, op.evictIdle());
+        verify(get3, never()).close();
+        assertEquals(1, op.getIdleCount());
+        assertEquals(2, op.getMetrics().getIdleEvictionCount());
+    }
+
+    @Test
+    public void prewarmCreatesMinIdle() {
+        TestPool op = new TestPool(2, 3, 0);
+        assertEquals(2, op.prewarm());
+        assertEquals(0, op.prewarm());
+        assertEquals(2, op.getIdleCount());
+        op.get();
+        op.get();
+        assertEquals(2, op.created);
+        assertEquals(2, op.getActiveCount());
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2019 Faiz & Siegeln Software GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ *
+ * The Software shall be used for Good, not Evil.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.im.njams.sdk.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class tests the BoundedCache
+ */
+public class BoundedCacheTest {
+
+    @Test
+    public void testComputeIfAbsentCachesValue() {
+        BoundedCache<String, Object> cache = new BoundedCache<>(10);
+        Object value = cache.computeIfAbsent("key", k -> new Object());
+        assertSame(value, cache.computeIfAbsent("key", k -> new Object()));
+        assertSame(value, cache.get("key"));
+    }
+
+    @Test
+    public void testNullIsNotCached() {
+        BoundedCache<String, Object> cache = new BoundedCache<>(10);
+        assertNull(cache.computeIfAbsent("key", k -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), cache.computeIfAbsent(i, k -> k));
+        }
+        assertEquals(10, cache.size());
+        assertEquals(Integer.valueOf(99), cache.get(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxSize() {
+        new BoundedCache<>(0);
+    }
+}